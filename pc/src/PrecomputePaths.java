@@ -12,28 +12,247 @@
  * along with this program. If not, see <http://www.gnu.org/licenses/>
  */
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import config.Config;
 import config.ConfigInfo;
 import container.Container;
 import exceptions.ContainerException;
+import exceptions.MemoryManagerException;
+import obstacles.types.ObstaclesFixes;
+import pathfinding.ChronoGameState;
+import pathfinding.KeyPathCache;
 import pathfinding.PathCache;
+import robot.Cinematique;
+import robot.CinematiqueObs;
+import scripts.ScriptNames;
+import utils.Log;
 
 /**
  * Précalcul les chemins
- * 
+ * Énumère les clés (position de départ × script × shoot), retire celles déjà
+ * calculées (ce qui permet de reprendre un précalcul interrompu) et répartit
+ * le reste sur un fork-join pool.
+ * Le container étant unique par JVM, chaque tâche feuille lance son propre
+ * processus de calcul, qui a donc sa propre pile de pathfinding. Chaque chemin
+ * est sauvegardé dès qu'il est trouvé.
+ *
+ * Usage : PrecomputePaths [nbWorkers] [pas de la grille en mm] [nb
+ * d'orientations]
+ *
  * @author pf
  *
  */
 
 public class PrecomputePaths
 {
+	private static final String fichierEchecs = "paths-echecs.txt";
+	private static final String fichierLog = "precompute.log";
+	private static final String optionWorker = "-worker";
 
-	public static void main(String[] args) throws ContainerException, InterruptedException
+	/**
+	 * Une tâche du fork-join pool : découpe la liste de clés jusqu'à obtenir
+	 * des lots assez petits, qui sont confiés à un processus de calcul
+	 *
+	 * @author pf
+	 *
+	 */
+	private static class LotPrecalcul extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final List<String> cles;
+		private final int tailleLot;
+		private final Log log;
+
+		public LotPrecalcul(Log log, List<String> cles, int tailleLot)
+		{
+			this.log = log;
+			this.cles = cles;
+			this.tailleLot = tailleLot;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(cles.size() > tailleLot)
+			{
+				int milieu = cles.size() / 2;
+				invokeAll(new LotPrecalcul(log, cles.subList(0, milieu), tailleLot), new LotPrecalcul(log, cles.subList(milieu, cles.size()), tailleLot));
+				return;
+			}
+
+			File lot = null;
+			try
+			{
+				lot = File.createTempFile("precompute-", ".txt");
+				FileWriter fw = new FileWriter(lot);
+				for(String c : cles)
+					fw.write(c + "\n");
+				fw.close();
+
+				ProcessBuilder pb = new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java", "-cp", System.getProperty("java.class.path"), "-Djava.library.path=" + System.getProperty("java.library.path"), PrecomputePaths.class.getName(), optionWorker, lot.getAbsolutePath());
+				pb.redirectErrorStream(true);
+				pb.redirectOutput(ProcessBuilder.Redirect.appendTo(new File(fichierLog)));
+				Process p = pb.start();
+				try
+				{
+					int code = p.waitFor();
+					log.debug("Lot de " + cles.size() + " clés terminé (code " + code + ")");
+				}
+				catch(InterruptedException e)
+				{
+					// le précalcul est interrompu : les chemins déjà
+					// sauvegardés seront conservés
+					p.destroy();
+					Thread.currentThread().interrupt();
+				}
+			}
+			catch(IOException e)
+			{
+				log.critical("Erreur lors du lancement d'un lot de précalcul : " + e);
+			}
+			finally
+			{
+				if(lot != null)
+					lot.delete();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws ContainerException, InterruptedException, IOException, MemoryManagerException
 	{
 		// timeout très grand (on a le temps)
 		ConfigInfo.DUREE_MAX_RECHERCHE_PF.setDefaultValue(20000);
+		ConfigInfo.SIMULE_SERIE.setDefaultValue(true);
 		PathCache.precompute = true;
+
+		if(args.length == 2 && args[0].equals(optionWorker))
+			worker(new File(args[1]));
+		else
+			coordinateur(args);
+	}
+
+	/**
+	 * Énumère les clés manquantes et les répartit
+	 *
+	 * @param args
+	 * @throws ContainerException
+	 * @throws InterruptedException
+	 * @throws IOException
+	 */
+	private static void coordinateur(String[] args) throws ContainerException, InterruptedException, IOException
+	{
+		int nbWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int pas = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int nbOrientations = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
 		Container c = new Container();
-		c.getService(PathCache.class);
+		Log log = c.getService(Log.class);
+		Config config = c.getService(Config.class);
+
+		Set<String> echecs = new HashSet<String>();
+		if(new File(fichierEchecs).exists())
+		{
+			BufferedReader br = new BufferedReader(new FileReader(fichierEchecs));
+			String ligne;
+			while((ligne = br.readLine()) != null)
+				echecs.add(ligne);
+			br.close();
+		}
+
+		List<Cinematique> departs = new ArrayList<Cinematique>();
+		departs.add(new Cinematique(550, 1905, -Math.PI / 2, true, 0));
+		departs.add(new Cinematique(-550, 1905, -Math.PI / 2, true, 0));
+
+		CinematiqueObs test = new CinematiqueObs(config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2, config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE), config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT), config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT));
+		for(int x = -1500 + pas / 2; x < 1500; x += pas)
+			for(int y = pas / 2; y < 2000; y += pas)
+				for(int o = 0; o < nbOrientations; o++)
+				{
+					test.updateReel(x, y, 2 * Math.PI * o / nbOrientations, true, 0);
+					boolean collision = false;
+					for(ObstaclesFixes obs : ObstaclesFixes.values())
+						if(obs.getObstacle().isColliding(test.obstacle))
+						{
+							collision = true;
+							break;
+						}
+					if(!collision)
+						departs.add(new Cinematique(test));
+				}
+
+		/*
+		 * Une clé est décrite par une ligne "x y orientation script shoot"
+		 */
+		List<String> cles = new ArrayList<String>();
+		int dejaFaites = 0;
+		for(Cinematique d : departs)
+			for(ScriptNames s : ScriptNames.values())
+				for(boolean shoot : new boolean[] { false, true })
+				{
+					String nom = s + "-" + d.codeForPFCache() + "-" + shoot;
+					if(new File("paths/" + nom + ".dat").exists() || echecs.contains(nom))
+						dejaFaites++;
+					else
+						cles.add(d.getPosition().getX() + " " + d.getPosition().getY() + " " + d.orientationReelle + " " + s + " " + shoot);
+				}
+
+		log.debug(departs.size() + " positions de départ, " + (cles.size() + dejaFaites) + " clés dont " + dejaFaites + " déjà traitées. " + nbWorkers + " workers.");
+
+		if(!cles.isEmpty())
+		{
+			ForkJoinPool pool = new ForkJoinPool(nbWorkers);
+			long avant = System.currentTimeMillis();
+			pool.invoke(new LotPrecalcul(log, cles, Math.max(1, cles.size() / (4 * nbWorkers))));
+			pool.shutdown();
+			log.debug("Précalcul terminé en " + (System.currentTimeMillis() - avant) / 1000 + " s");
+		}
+		c.destructor();
+	}
+
+	/**
+	 * Calcule (et sauvegarde au fur et à mesure) les chemins d'un lot
+	 *
+	 * @param lot
+	 * @throws ContainerException
+	 * @throws InterruptedException
+	 * @throws IOException
+	 * @throws MemoryManagerException
+	 */
+	private static void worker(File lot) throws ContainerException, InterruptedException, IOException, MemoryManagerException
+	{
+		Container c = new Container();
+		Log log = c.getService(Log.class);
+		PathCache cache = c.getService(PathCache.class);
+		ChronoGameState chrono = c.make(ChronoGameState.class);
+
+		BufferedReader br = new BufferedReader(new FileReader(lot));
+		String ligne;
+		while((ligne = br.readLine()) != null && !Thread.currentThread().isInterrupted())
+		{
+			String[] champs = ligne.split(" ");
+			chrono.robot.setCinematique(new Cinematique(Double.parseDouble(champs[0]), Double.parseDouble(champs[1]), Double.parseDouble(champs[2]), true, 0));
+			KeyPathCache k = new KeyPathCache(chrono, ScriptNames.valueOf(champs[3]), Boolean.parseBoolean(champs[4]));
+			if(!cache.computeAndSave(k))
+			{
+				// plusieurs processus écrivent ici : on ajoute en fin de
+				// fichier
+				FileWriter fw = new FileWriter(fichierEchecs, true);
+				fw.write(k + "\n");
+				fw.close();
+			}
+		}
+		br.close();
+		log.debug("Lot terminé");
 		c.destructor();
 	}
 
@@ -40,6 +40,11 @@ public class CapteurMobile extends Capteur
 		roueDroite = positionRelative.getY() < 0;
 	}
 
+	public boolean isRoueDroite()
+	{
+		return roueDroite;
+	}
+
 	@Override
 	public void computePosOrientationRelative(Cinematique c, double angleRoueGauche, double angleRoueDroite)
 	{
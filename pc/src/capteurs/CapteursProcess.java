@@ -22,7 +22,6 @@ import obstacles.types.ObstaclesFixes;
 import pathfinding.chemin.CheminPathfinding;
 import pathfinding.dstarlite.DStarLite;
 import pathfinding.dstarlite.gridspace.GridSpace;
-import robot.Cinematique;
 import robot.RobotReal;
 import serie.BufferOutgoingOrder;
 import java.util.ArrayList;
@@ -59,6 +58,7 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 	private CheminPathfinding chemin;
 	private RobotReal robot;
 	private BufferOutgoingOrder serie;
+	private GrilleOccupation occupation;
 
 	private int nbCapteurs;
 	private int largeurEnnemi, longueurEnnemi;
@@ -69,16 +69,40 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 	private double imprecisionMaxAngle;
 
 	private long dateLastMesureCorrection = -1;
+	private long dateDerniereCorrection = -1;
 	private long peremptionCorrection;
 	private boolean enableCorrection;
-	private int indexCorrection = 0;
 	private boolean scan = false;
-	private Cinematique[] bufferCorrection;
+	private EstimateurCorrection estimateur;
+	private int nbMesuresCorrection;
+	private int periodeMinCorrection;
 
+	/*
+	 * Les données des capteurs sont recyclées par le buffer : on recopie
+	 * celles du scan dans des emplacements réutilisés d'un scan à l'autre
+	 */
 	private List<SensorsData> mesuresScan = new ArrayList<SensorsData>();
-
-	public CapteursProcess(Container container, Log log, GridSpace gridspace, RealTable table, DStarLite dstarlite, CheminPathfinding chemin, PrintBufferInterface buffer, RobotReal robot, BufferOutgoingOrder serie, Config config)
+	private int nbMesuresScan = 0;
+
+	// vecteurs et obstacle de travail, pour ne rien allouer à chaque mesure
+	private Vec2RW positionVue = new Vec2RW();
+	private Vec2RW positionEnnemi = new Vec2RW();
+	private Vec2RW pointVu1 = new Vec2RW();
+	private Vec2RW pointVu2 = new Vec2RW();
+	private Vec2RW delta = new Vec2RW();
+	private Vec2RW posmoy = new Vec2RW();
+	private ObstacleRectangular obs;
+	private PositionsVues vues;
+	private NuagePoints nuage = new NuagePoints();
+	private int distanceRegroupementScan;
+	private int nbPointsMinScan;
+
+	// on ne s'occupe que des ToF avant pendant le scan
+	private static final int[] tofAvant = new int[] { CapteursRobot.ToF_AVANT_DROITE.ordinal(), CapteursRobot.ToF_AVANT_GAUCHE.ordinal() };
+
+	public CapteursProcess(Container container, Log log, GridSpace gridspace, RealTable table, DStarLite dstarlite, CheminPathfinding chemin, PrintBufferInterface buffer, RobotReal robot, BufferOutgoingOrder serie, GrilleOccupation occupation, Config config)
 	{
+		this.occupation = occupation;
 		this.table = table;
 		this.log = log;
 		this.gridspace = gridspace;
@@ -93,7 +117,10 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 		nbCapteurs = CapteursRobot.values().length;
 		imprecisionMaxPos = config.getDouble(ConfigInfo.IMPRECISION_MAX_POSITION);
 		imprecisionMaxAngle = config.getDouble(ConfigInfo.IMPRECISION_MAX_ORIENTATION);
-		bufferCorrection = new Cinematique[config.getInt(ConfigInfo.TAILLE_BUFFER_RECALAGE)];
+		nbMesuresCorrection = config.getInt(ConfigInfo.TAILLE_BUFFER_RECALAGE);
+		periodeMinCorrection = config.getInt(ConfigInfo.CORRECTION_PERIODE_MIN);
+		estimateur = new EstimateurCorrection(imprecisionMaxPos, imprecisionMaxAngle, config.getDouble(ConfigInfo.CORRECTION_BRUIT_POSITION), config.getDouble(ConfigInfo.CORRECTION_BRUIT_ORIENTATION), config.getDouble(ConfigInfo.CORRECTION_DERIVE_POSITION), config.getDouble(ConfigInfo.CORRECTION_DERIVE_ORIENTATION));
+		obs = new ObstacleRectangular(positionEnnemi, longueurEnnemi, largeurEnnemi, 0);
 		peremptionCorrection = config.getInt(ConfigInfo.PEREMPTION_CORRECTION);
 		enableCorrection = config.getBoolean(ConfigInfo.ENABLE_CORRECTION);
 
@@ -120,6 +147,10 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 			log.critical(e);
 		}
 
+		vues = new PositionsVues(capteurs);
+		distanceRegroupementScan = config.getInt(ConfigInfo.SCAN_DISTANCE_REGROUPEMENT);
+		nbPointsMinScan = config.getInt(ConfigInfo.SCAN_NB_POINTS_MIN);
+
 		if(config.getBoolean(ConfigInfo.GRAPHIC_ROBOT_AND_SENSORS))
 			for(Capteur c : capteurs)
 				buffer.add(c);
@@ -127,39 +158,46 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 
 	public synchronized void startScan()
 	{
-		mesuresScan.clear();
+		nbMesuresScan = 0;
 		scan = true;
 	}
 
 	public synchronized void endScan()
 	{
-		// on ne s'occupe que tes tof avant
-		int[] tofAvant = new int[] {CapteursRobot.ToF_AVANT_DROITE.ordinal(), CapteursRobot.ToF_AVANT_GAUCHE.ordinal()};
-		for(SensorsData data : mesuresScan)
-		{			
-			double orientationRobot = data.cinematique.orientationReelle;
-			Vec2RO positionRobot = data.cinematique.getPosition();
+		/*
+		 * Les mesures du scan forment un nuage de points (les centres des
+		 * ennemis vus), qu'on regroupe en amas. Chaque amas assez gros donne
+		 * un seul obstacle, les points isolés sont du bruit.
+		 */
+		nuage.clear();
+		for(int k = 0; k < nbMesuresScan; k++)
+		{
+			SensorsData data = mesuresScan.get(k);
+			vues.calcule(data);
 			for(int j = 0; j < 2; j++)
 			{
 				int i = tofAvant[j];
- 				Vec2RO positionVue = getPositionVue(capteurs[i], data.mesures[i], data.cinematique, data.angleRoueGauche, data.angleRoueDroite);
-				if(positionVue == null)
+				if(!vues.valide[i] || isObstacleFixeVu(i))
 					continue;
-				
-				Vec2RW positionEnnemi = new Vec2RW(data.mesures[i] + longueurEnnemi / 2, capteurs[i].orientationRelativeRotate, true);
-				positionEnnemi.plus(capteurs[i].positionRelativeRotate);
-				positionEnnemi.rotate(orientationRobot);
-				positionEnnemi.plus(positionRobot);
-				ObstacleRectangular obs = new ObstacleRectangular(positionEnnemi, longueurEnnemi, (int)(data.mesures[i] * 0.2), orientationRobot + capteurs[i].orientationRelativeRotate, Couleur.SCAN);
-
-				if(obs.isHorsTable())
+
+				setPositionEnnemi(i, data.mesures[i]);
+				if(positionEnnemi.isHorsTable())
 					continue; // hors table
 
-				gridspace.addObstacleAndRemoveNearbyObstacles(obs);
+				nuage.ajoute(positionEnnemi.getX(), positionEnnemi.getY());
 			}
+		}
 
+		int nbAmas = nuage.regroupe(distanceRegroupementScan, nbPointsMinScan);
+		log.debug("Scan : " + nuage.size() + " points, " + nbAmas + " obstacles", Verbose.CAPTEURS.masque);
+		for(int a = 0; a < nbAmas; a++)
+		{
+			positionEnnemi.setX(nuage.getCentreX(a));
+			positionEnnemi.setY(nuage.getCentreY(a));
+			obs.update(positionEnnemi, (int) nuage.getLongueur(a) + longueurEnnemi, (int) nuage.getLargeur(a) + largeurEnnemi, nuage.getOrientation(a), Couleur.SCAN);
+			gridspace.addObstacleAndRemoveNearbyObstacles(obs);
 		}
-		
+
 		scan = false;
 		dstarlite.updateObstaclesEnnemi();
 		dstarlite.updateObstaclesTable();
@@ -194,10 +232,18 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 
 		if(scan)
 		{
-			mesuresScan.add(data);
+			if(nbMesuresScan == mesuresScan.size())
+				mesuresScan.add(new SensorsData());
+			mesuresScan.get(nbMesuresScan++).update(data);
 			return;
 		}
 
+		long date = System.currentTimeMillis();
+		boolean modif = false;
+
+		// toutes les positions vues de cette trame, en une passe
+		vues.calcule(data);
+
 		/**
 		 * Suppression des mesures qui sont hors-table ou qui voient un obstacle
 		 * de table
@@ -216,26 +262,17 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 				continue;
 			}
 
-			Vec2RO positionVue = getPositionVue(capteurs[i], data.mesures[i], data.cinematique, data.angleRoueGauche, data.angleRoueDroite);
-			if(positionVue == null)
+			if(!vues.valide[i])
 				continue;
 
-			boolean stop = false;
-
 			/**
 			 * Si ce qu'on voit est un obstacle de table, on l'ignore
 			 */
-			for(ObstaclesFixes o : ObstaclesFixes.values())
-				if(o.isVisible(capteurs[i].sureleve) && o.getObstacle().squaredDistance(positionVue) < distanceApproximation * distanceApproximation)
-				{
-					log.debug("Obstacle de table vu : " + o, Verbose.CAPTEURS.masque);
-					stop = true;
-					break;
-				}
-
-			if(stop)
+			if(isObstacleFixeVu(i))
 				continue;
 
+			boolean stop = false;
+
 			for(GameElementNames o : GameElementNames.values())
 				if(table.isDone(o) != EtatElement.PRIS_PAR_NOUS && o.isVisible(c, capteurs[i].sureleve) && o.obstacle.squaredDistance(positionVue) < distanceApproximation * distanceApproximation)
 				{
@@ -250,12 +287,8 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 			/**
 			 * Sinon, on ajoute
 			 */
-			Vec2RW positionEnnemi = new Vec2RW(data.mesures[i] + longueurEnnemi / 2, capteurs[i].orientationRelativeRotate, true);
-			positionEnnemi.plus(capteurs[i].positionRelativeRotate);
-			positionEnnemi.rotate(orientationRobot);
-			positionEnnemi.plus(positionRobot);
-
-			ObstacleRectangular obs = new ObstacleRectangular(positionEnnemi, longueurEnnemi, largeurEnnemi, orientationRobot + capteurs[i].orientationRelativeRotate, c.type.couleurOrig);
+			setPositionEnnemi(i, data.mesures[i]);
+			obs.update(positionEnnemi, longueurEnnemi, largeurEnnemi, vues.orientation[i], c.type.couleurOrig);
 
 			if(obs.isHorsTable())
 			{
@@ -264,10 +297,11 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 				continue; // hors table
 			}
 
-			log.debug("Ajout d'un obstacle d'ennemi en " + positionEnnemi + " vu par " + c, Verbose.CAPTEURS.masque);
+			if(log.shouldLog(Verbose.CAPTEURS.masque))
+				log.debug("Mesure d'un ennemi en " + positionEnnemi + " vu par " + c, Verbose.CAPTEURS.masque);
 
-			// ObstacleProximity o =
-			gridspace.addObstacleAndRemoveNearbyObstacles(obs);
+			if(occupation.ajoute(obs, date))
+				modif = true;
 
 			/**
 			 * Mise à jour de l'état de la table : un ennemi est passé
@@ -278,7 +312,9 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 */
 		}
 
-		dstarlite.updateObstaclesEnnemi();
+		// les obstacles périmés sont gérés par le thread de péremption
+		if(modif)
+			dstarlite.updateObstaclesEnnemi();
 		dstarlite.updateObstaclesTable();
 		chemin.checkColliding(false);
 
@@ -312,13 +348,14 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 			if(data.mesures[index1] <= 4 || data.mesures[index2] <= 4)
 				continue;
 			
-			Vec2RW pointVu1 = getPositionVue(capteurs[index1], data.mesures[index1], data.cinematique, data.angleRoueGauche, data.angleRoueDroite);
-			if(pointVu1 == null)
+			// les positions vues ont été calculées par updateObstaclesMobiles
+			if(!vues.valide[index1] || !vues.valide[index2])
 				continue;
 
-			Vec2RW pointVu2 = getPositionVue(capteurs[index2], data.mesures[index2], data.cinematique, data.angleRoueGauche, data.angleRoueDroite);
-			if(pointVu2 == null)
-				continue;
+			pointVu1.setX(vues.xVu[index1]);
+			pointVu1.setY(vues.yVu[index1]);
+			pointVu2.setX(vues.xVu[index2]);
+			pointVu2.setY(vues.yVu[index2]);
 
 			Mur mur1 = orientationMurProche(pointVu1);
 			Mur mur2 = orientationMurProche(pointVu2);
@@ -332,7 +369,8 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 			if(mur1 == null || mur2 == null || mur1 != mur2)
 				continue;
 
-			Vec2RO delta = pointVu1.minusNewVector(pointVu2);
+			pointVu1.copy(delta);
+			delta.minus(pointVu2);
 			double deltaOrientation = (mur1.orientation - delta.getArgument()) % Math.PI; // on
 																				// veut
 																				// une
@@ -388,7 +426,6 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 			// log.debug("Correction : "+deltaX+" "+deltaY+"
 			// "+deltaOrientation);
 
-			Cinematique correction = new Cinematique(deltaX, deltaY, deltaOrientation, true, 0);
 			if(System.currentTimeMillis() - dateLastMesureCorrection > peremptionCorrection) // trop
 																								// de
 																								// temps
@@ -398,27 +435,27 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 																								// calcul
 			{
 				log.debug("Correction timeout", Verbose.CORRECTION.masque);
-				indexCorrection = 0;
+				estimateur.reinit();
 			}
 
-			bufferCorrection[indexCorrection] = correction;
-			indexCorrection++;
+			estimateur.integre(deltaX, mur1 == Mur.MUR_GAUCHE || mur1 == Mur.MUR_DROIT, deltaY, mur1 == Mur.MUR_BAS || mur1 == Mur.MUR_HAUT, deltaOrientation);
 			log.debug("Intégration d'une donnée de correction", Verbose.CORRECTION.masque);
-			if(indexCorrection == bufferCorrection.length)
+
+			/*
+			 * Une seule correction lissée, et pas trop souvent : le bas niveau
+			 * doit avoir appliqué la précédente avant que les mesures ne
+			 * servent à nouveau
+			 */
+			long date = System.currentTimeMillis();
+			if(estimateur.getNbMesures() >= nbMesuresCorrection && date - dateDerniereCorrection >= periodeMinCorrection)
 			{
-				Vec2RW posmoy = new Vec2RW();
-				double orientationmoy = 0;
-				for(int i = 0; i < bufferCorrection.length; i++)
-				{
-					if(i >= bufferCorrection.length / 2)
-						posmoy.plus(bufferCorrection[i].getPosition());
-					orientationmoy += bufferCorrection[i].orientationReelle;
-				}
-				posmoy.scalar(2. / bufferCorrection.length);
-				orientationmoy /= bufferCorrection.length;
+				posmoy.setX(estimateur.get(EstimateurCorrection.X));
+				posmoy.setY(estimateur.get(EstimateurCorrection.Y));
+				double orientationmoy = estimateur.get(EstimateurCorrection.ORIENTATION);
 				log.debug("Envoi d'une correction XYO : " + posmoy + " " + orientationmoy, Verbose.CORRECTION.masque | Verbose.DEBUG.masque);
 				serie.correctPosition(posmoy, orientationmoy);
-				indexCorrection = 0;
+				estimateur.reinit();
+				dateDerniereCorrection = date;
 			}
 		}
 		dateLastMesureCorrection = System.currentTimeMillis();
@@ -426,32 +463,36 @@ public class CapteursProcess implements Service, LowPFClass, HighPFClass
 	}
 
 	/**
-	 * Renvoie la position vue par ce capteurs
+	 * Le capteur i voit-il un obstacle de table ? Met à jour positionVue.
 	 * 
-	 * @param c
-	 * @param mesure
-	 * @param cinematique
+	 * @param i
 	 * @return
 	 */
-	private Vec2RW getPositionVue(Capteur c, int mesure, Cinematique cinematique, double angleRoueGauche, double angleRoueDroite)
+	private boolean isObstacleFixeVu(int i)
 	{
-		c.computePosOrientationRelative(cinematique, angleRoueGauche, angleRoueDroite);
-
-		/**
-		 * Si le capteur voit trop proche ou trop loin, on ne peut pas lui faire
-		 * confiance
-		 */
-		if(mesure <= c.distanceMin || mesure >= c.portee)
-		{
-			// log.debug("Mesure d'un capteur trop loin ou trop proche.");
-			return null;
-		}
+		positionVue.setX(vues.xVu[i]);
+		positionVue.setY(vues.yVu[i]);
+		for(ObstaclesFixes o : ObstaclesFixes.values())
+			if(o.isVisible(capteurs[i].sureleve) && o.getObstacle().squaredDistance(positionVue) < distanceApproximation * distanceApproximation)
+			{
+				log.debug("Obstacle de table vu : " + o, Verbose.CAPTEURS.masque);
+				return true;
+			}
+		return false;
+	}
 
-		Vec2RW positionVue = new Vec2RW(mesure, c.orientationRelativeRotate, true);
-		positionVue.plus(c.positionRelativeRotate);
-		positionVue.rotate(cinematique.orientationReelle);
-		positionVue.plus(cinematique.getPosition());
-		return positionVue;
+	/**
+	 * Le centre de l'ennemi vu par le capteur i (l'ennemi est derrière le
+	 * point vu)
+	 * 
+	 * @param i
+	 * @param mesure
+	 */
+	private void setPositionEnnemi(int i, int mesure)
+	{
+		double distance = mesure + longueurEnnemi / 2;
+		positionEnnemi.setX(vues.xCapteur[i] + distance * vues.cosDirection[i]);
+		positionEnnemi.setY(vues.yCapteur[i] + distance * vues.sinDirection[i]);
 	}
 
 	private enum Mur
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package capteurs;
+
+/**
+ * Estimation récursive de l'erreur d'odométrie (x, y, orientation) à partir
+ * des mesures de correction successives.
+ * Chaque composante est un filtre de Kalman scalaire (équivalent à des
+ * moindres carrés récursifs avec oubli) : l'erreur dérive un peu entre deux
+ * mesures (bruit de processus) et chaque mesure est bruitée (bruit de
+ * mesure). Une mesure ne concerne pas forcément toutes les composantes : un
+ * mur horizontal ne renseigne pas sur x.
+ * 
+ * @author pf
+ *
+ */
+
+public class EstimateurCorrection
+{
+	public static final int X = 0, Y = 1, ORIENTATION = 2;
+
+	private final double[] estimation = new double[3];
+	private final double[] variance = new double[3];
+	private final double[] varianceInitiale;
+	private final double[] bruitMesure;
+	private final double[] bruitProcessus;
+	private int nbMesures;
+
+	/**
+	 * Les écarts-types sont en mm pour la position, en radians pour
+	 * l'orientation
+	 * 
+	 * @param ecartInitialPos
+	 * @param ecartInitialAngle
+	 * @param bruitMesurePos
+	 * @param bruitMesureAngle
+	 * @param deriveePos
+	 * @param deriveeAngle
+	 */
+	public EstimateurCorrection(double ecartInitialPos, double ecartInitialAngle, double bruitMesurePos, double bruitMesureAngle, double deriveePos, double deriveeAngle)
+	{
+		varianceInitiale = new double[] { ecartInitialPos * ecartInitialPos, ecartInitialPos * ecartInitialPos, ecartInitialAngle * ecartInitialAngle };
+		bruitMesure = new double[] { bruitMesurePos * bruitMesurePos, bruitMesurePos * bruitMesurePos, bruitMesureAngle * bruitMesureAngle };
+		bruitProcessus = new double[] { deriveePos * deriveePos, deriveePos * deriveePos, deriveeAngle * deriveeAngle };
+		reinit();
+	}
+
+	/**
+	 * Oublie tout : l'erreur est supposée nulle, avec l'incertitude initiale
+	 */
+	public void reinit()
+	{
+		for(int i = 0; i < 3; i++)
+		{
+			estimation[i] = 0;
+			variance[i] = varianceInitiale[i];
+		}
+		nbMesures = 0;
+	}
+
+	/**
+	 * Intègre une mesure de l'erreur. Les composantes non mesurées ne font que
+	 * dériver.
+	 * 
+	 * @param deltaX
+	 * @param xMesure
+	 * @param deltaY
+	 * @param yMesure
+	 * @param deltaOrientation
+	 */
+	public void integre(double deltaX, boolean xMesure, double deltaY, boolean yMesure, double deltaOrientation)
+	{
+		for(int i = 0; i < 3; i++)
+			variance[i] += bruitProcessus[i];
+		if(xMesure)
+			miseAJour(X, deltaX);
+		if(yMesure)
+			miseAJour(Y, deltaY);
+		miseAJour(ORIENTATION, deltaOrientation);
+		nbMesures++;
+	}
+
+	private void miseAJour(int i, double mesure)
+	{
+		double gain = variance[i] / (variance[i] + bruitMesure[i]);
+		estimation[i] += gain * (mesure - estimation[i]);
+		variance[i] *= 1 - gain;
+	}
+
+	public double get(int composante)
+	{
+		return estimation[composante];
+	}
+
+	/**
+	 * Écart-type de l'estimation de cette composante
+	 * 
+	 * @param composante
+	 * @return
+	 */
+	public double getEcartType(int composante)
+	{
+		return Math.sqrt(variance[composante]);
+	}
+
+	/**
+	 * Nombre de mesures intégrées depuis la dernière réinitialisation
+	 * 
+	 * @return
+	 */
+	public int getNbMesures()
+	{
+		return nbMesures;
+	}
+}
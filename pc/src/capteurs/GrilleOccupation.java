@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package capteurs;
+
+import obstacles.memory.ObstaclesMemory;
+import obstacles.memory.SuiviEnnemis;
+import obstacles.types.ObstacleProximity;
+import obstacles.types.ObstacleRectangular;
+import pathfinding.dstarlite.gridspace.GridSpace;
+import utils.Log;
+import utils.Vec2RO;
+import utils.Vec2RW;
+import utils.Log.Verbose;
+import config.Config;
+import config.ConfigInfo;
+import container.Service;
+import container.dependances.HighPFClass;
+import container.dependances.LowPFClass;
+
+/**
+ * Fusion des mesures des capteurs sur plusieurs trames.
+ * Chaque mesure incrémente le score d'une case de la table, score qui décroît
+ * exponentiellement avec le temps. Les mesures proches sont regroupées en
+ * amas, et chaque amas n'a qu'un seul obstacle de proximité :
+ * - un amas dont la case atteint le seuil crée son obstacle
+ * - l'obstacle n'est réémis que si l'amas s'est déplacé, ou si l'obstacle
+ * approche de sa péremption alors que l'amas est toujours vu
+ * - un amas qui n'est plus vu est oublié, son obstacle périme normalement
+ * Entre deux émissions, les mesures ne servent qu'à suivre l'ennemi, sans
+ * nouveau masque ni mise à jour du D* Lite.
+ * 
+ * @author pf
+ *
+ */
+
+public class GrilleOccupation implements Service, LowPFClass, HighPFClass
+{
+	/**
+	 * Un groupe de mesures qui correspondent au même objet
+	 * 
+	 * @author pf
+	 *
+	 */
+	private static class Amas
+	{
+		private final Vec2RW centre = new Vec2RW();
+		private final Vec2RW positionEmise = new Vec2RW();
+		private long dateDerniereMesure;
+		private long dateEmission;
+		private ObstacleProximity obstacle;
+		private long dateMortObstacle;
+	}
+
+	private static final int NB_MAX_AMAS = 20;
+	private static final double LISSAGE_CENTRE = 0.3;
+
+	protected Log log;
+	private GridSpace gridspace;
+	private ObstaclesMemory memory;
+	private SuiviEnnemis suivi;
+
+	private boolean enable;
+	private boolean prediction;
+	private int tailleCase;
+	private int nbCasesX, nbCasesY;
+	private double[] scores;
+	private long[] datesScores;
+	private double seuil;
+	private double demieVie;
+	private int rayonAmas;
+	private int deplacementMax;
+	private int dureePeremption;
+
+	private Amas[] amas = new Amas[NB_MAX_AMAS];
+	private int nbAmas = 0;
+
+	private long nbMesures = 0, nbEmissions = 0;
+
+	public GrilleOccupation(Log log, Config config, GridSpace gridspace, ObstaclesMemory memory, SuiviEnnemis suivi)
+	{
+		this.log = log;
+		this.gridspace = gridspace;
+		this.memory = memory;
+		this.suivi = suivi;
+
+		enable = config.getBoolean(ConfigInfo.ENABLE_FUSION_CAPTEURS);
+		prediction = config.getBoolean(ConfigInfo.ENABLE_PREDICTION_ENNEMI);
+		tailleCase = config.getInt(ConfigInfo.FUSION_TAILLE_CASE);
+		seuil = config.getDouble(ConfigInfo.FUSION_SEUIL);
+		demieVie = config.getInt(ConfigInfo.FUSION_DEMIE_VIE);
+		rayonAmas = config.getInt(ConfigInfo.FUSION_RAYON_AMAS);
+		deplacementMax = config.getInt(ConfigInfo.FUSION_DEPLACEMENT_MAX);
+		dureePeremption = config.getInt(ConfigInfo.DUREE_PEREMPTION_OBSTACLES);
+
+		nbCasesX = (3000 + tailleCase - 1) / tailleCase;
+		nbCasesY = (2000 + tailleCase - 1) / tailleCase;
+		scores = new double[nbCasesX * nbCasesY];
+		datesScores = new long[nbCasesX * nbCasesY];
+		for(int i = 0; i < NB_MAX_AMAS; i++)
+			amas[i] = new Amas();
+	}
+
+	/**
+	 * Intègre la mesure d'un ennemi, dont la forme est "obs" (qui peut être
+	 * réutilisé par l'appelant, mais qui peut être déplacé au centre de son
+	 * amas). Renvoie vrai si les obstacles de proximité ont changé.
+	 * 
+	 * @param obs
+	 * @param date
+	 * @return
+	 */
+	public synchronized boolean ajoute(ObstacleRectangular obs, long date)
+	{
+		if(!enable)
+		{
+			gridspace.addObstacleAndRemoveNearbyObstacles(obs);
+			return true;
+		}
+
+		nbMesures++;
+		Vec2RO position = obs.getPosition();
+		double score = incrementeCase(position, date);
+
+		oublieAmas(date);
+		Amas a = getAmasProche(position);
+
+		if(a == null)
+		{
+			// pas encore assez de mesures
+			if(score < seuil)
+				return false;
+			a = nouvelAmas(position);
+		}
+		else
+		{
+			a.centre.scalar(1 - LISSAGE_CENTRE);
+			a.centre.setX(a.centre.getX() + LISSAGE_CENTRE * position.getX());
+			a.centre.setY(a.centre.getY() + LISSAGE_CENTRE * position.getY());
+		}
+		a.dateDerniereMesure = date;
+
+		// l'obstacle actuel de l'amas suffit
+		if(isObstacleValide(a) && a.centre.squaredDistance(a.positionEmise) < deplacementMax * deplacementMax && date - a.dateEmission < dureePeremption / 2)
+		{
+			if(prediction)
+				suivi.associe(position, date);
+			return false;
+		}
+
+		if(isObstacleValide(a))
+			memory.remove(a.obstacle);
+
+		// l'obstacle est émis au centre lissé de l'amas, pas à la dernière
+		// mesure
+		obs.deplace(a.centre);
+		if(log.shouldLog(Verbose.CAPTEURS.masque))
+			log.debug("Émission d'un obstacle d'ennemi en " + a.centre, Verbose.CAPTEURS.masque);
+		a.obstacle = gridspace.addObstacleAndRemoveNearbyObstacles(obs);
+		a.dateMortObstacle = a.obstacle.getDeathDate();
+		a.dateEmission = date;
+		a.centre.copy(a.positionEmise);
+		nbEmissions++;
+		return true;
+	}
+
+	/**
+	 * L'obstacle est-il toujours celui que l'amas a émis ? Il peut avoir été
+	 * supprimé par un voisin, ou être périmé (et donc recyclé à terme)
+	 * 
+	 * @param a
+	 * @return
+	 */
+	private boolean isObstacleValide(Amas a)
+	{
+		return a.obstacle != null && a.obstacle.getDeathDate() == a.dateMortObstacle && !a.obstacle.isDestructionNecessary(System.currentTimeMillis());
+	}
+
+	private double incrementeCase(Vec2RO position, long date)
+	{
+		int x = Math.min(nbCasesX - 1, Math.max(0, (int) ((position.getX() + 1500) / tailleCase)));
+		int y = Math.min(nbCasesY - 1, Math.max(0, (int) (position.getY() / tailleCase)));
+		int i = y * nbCasesX + x;
+		scores[i] = scores[i] * Math.pow(0.5, (date - datesScores[i]) / demieVie) + 1;
+		datesScores[i] = date;
+		return scores[i];
+	}
+
+	private Amas getAmasProche(Vec2RO position)
+	{
+		Amas meilleur = null;
+		double meilleureDistance = rayonAmas * rayonAmas;
+		for(int i = 0; i < nbAmas; i++)
+		{
+			double d = amas[i].centre.squaredDistance(position);
+			if(d < meilleureDistance)
+			{
+				meilleureDistance = d;
+				meilleur = amas[i];
+			}
+		}
+		return meilleur;
+	}
+
+	/**
+	 * Les amas non vus depuis la durée de péremption sont oubliés. On échange
+	 * avec le dernier pour garder les amas actifs au début du tableau.
+	 * 
+	 * @param date
+	 */
+	private void oublieAmas(long date)
+	{
+		for(int i = nbAmas - 1; i >= 0; i--)
+			if(date - amas[i].dateDerniereMesure > dureePeremption)
+				retire(i);
+	}
+
+	private void retire(int i)
+	{
+		Amas tmp = amas[i];
+		amas[i] = amas[--nbAmas];
+		amas[nbAmas] = tmp;
+		tmp.obstacle = null;
+	}
+
+	private Amas nouvelAmas(Vec2RO position)
+	{
+		// trop d'amas : on oublie le plus ancien
+		if(nbAmas == NB_MAX_AMAS)
+		{
+			int plusVieux = 0;
+			for(int i = 1; i < nbAmas; i++)
+				if(amas[i].dateDerniereMesure < amas[plusVieux].dateDerniereMesure)
+					plusVieux = i;
+			retire(plusVieux);
+		}
+		Amas a = amas[nbAmas++];
+		position.copy(a.centre);
+		a.obstacle = null;
+		return a;
+	}
+
+	/**
+	 * Nombre de mesures intégrées
+	 * 
+	 * @return
+	 */
+	public synchronized long getNbMesures()
+	{
+		return nbMesures;
+	}
+
+	/**
+	 * Nombre d'obstacles effectivement créés
+	 * 
+	 * @return
+	 */
+	public synchronized long getNbEmissions()
+	{
+		return nbEmissions;
+	}
+}
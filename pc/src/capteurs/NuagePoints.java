@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package capteurs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Nuage de points (dans le repère de la table) regroupés en amas.
+ * Le regroupement est un DBSCAN simplifié : les points sont rangés dans une
+ * grille dont les cases ont pour côté la distance de regroupement, si bien
+ * que les voisins d'un point sont à chercher dans les 9 cases autour de lui.
+ * Deux points voisins sont dans le même amas (union-find). Les amas trop
+ * petits sont considérés comme du bruit.
+ * Chaque amas est ensuite approché par un rectangle orienté selon son axe
+ * principal (analyse en composantes principales).
+ * 
+ * @author pf
+ *
+ */
+
+public class NuagePoints
+{
+	private int nbPoints = 0;
+	private double[] x = new double[64], y = new double[64];
+	private int[] parent = new int[64];
+	private int[] suivant = new int[64]; // liste chaînée des points d'une case
+	private HashMap<Integer, Integer> premierDeLaCase = new HashMap<Integer, Integer>();
+
+	// résultat du regroupement
+	private int nbAmas = 0;
+	private int[] amasDuPoint = new int[64];
+	private double[] centreX = new double[16], centreY = new double[16];
+	private double[] orientation = new double[16], longueur = new double[16], largeur = new double[16];
+
+	public void clear()
+	{
+		nbPoints = 0;
+		nbAmas = 0;
+	}
+
+	public void ajoute(double px, double py)
+	{
+		if(nbPoints == x.length)
+		{
+			int taille = 2 * nbPoints;
+			x = Arrays.copyOf(x, taille);
+			y = Arrays.copyOf(y, taille);
+			parent = new int[taille];
+			suivant = new int[taille];
+			amasDuPoint = new int[taille];
+		}
+		x[nbPoints] = px;
+		y[nbPoints] = py;
+		nbPoints++;
+	}
+
+	public int size()
+	{
+		return nbPoints;
+	}
+
+	/**
+	 * Regroupe les points. Renvoie le nombre d'amas.
+	 * 
+	 * @param distance distance maximale entre deux points voisins (en mm)
+	 * @param nbPointsMin taille minimale d'un amas
+	 * @return
+	 */
+	public int regroupe(double distance, int nbPointsMin)
+	{
+		premierDeLaCase.clear();
+		double distance2 = distance * distance;
+
+		for(int i = 0; i < nbPoints; i++)
+		{
+			parent[i] = i;
+			int cx = (int) Math.floor(x[i] / distance);
+			int cy = (int) Math.floor(y[i] / distance);
+
+			// on relie le point à ses voisins déjà rangés dans la grille
+			for(int dx = -1; dx <= 1; dx++)
+				for(int dy = -1; dy <= 1; dy++)
+				{
+					Integer j = premierDeLaCase.get(cle(cx + dx, cy + dy));
+					while(j != null && j >= 0)
+					{
+						double ex = x[i] - x[j], ey = y[i] - y[j];
+						if(ex * ex + ey * ey <= distance2)
+							union(i, j);
+						j = suivant[j];
+					}
+				}
+
+			Integer premier = premierDeLaCase.put(cle(cx, cy), i);
+			suivant[i] = premier == null ? -1 : premier;
+		}
+
+		// numérotation des amas assez gros
+		nbAmas = 0;
+		int[] taille = suivant; // on réutilise ce tableau, dont on n'a plus besoin
+		Arrays.fill(taille, 0, nbPoints, 0);
+		for(int i = 0; i < nbPoints; i++)
+			taille[find(i)]++;
+		for(int i = 0; i < nbPoints; i++)
+			amasDuPoint[i] = -1;
+		for(int i = 0; i < nbPoints; i++)
+		{
+			int r = find(i);
+			if(taille[r] >= nbPointsMin && amasDuPoint[r] == -1)
+				amasDuPoint[r] = nbAmas++;
+		}
+		for(int i = 0; i < nbPoints; i++)
+			amasDuPoint[i] = amasDuPoint[find(i)];
+
+		if(centreX.length < nbAmas)
+		{
+			centreX = new double[nbAmas];
+			centreY = new double[nbAmas];
+			orientation = new double[nbAmas];
+			longueur = new double[nbAmas];
+			largeur = new double[nbAmas];
+		}
+		for(int a = 0; a < nbAmas; a++)
+			ajuste(a);
+		return nbAmas;
+	}
+
+	/**
+	 * Rectangle englobant l'amas, orienté selon son axe principal
+	 * 
+	 * @param a
+	 */
+	private void ajuste(int a)
+	{
+		double mx = 0, my = 0;
+		int n = 0;
+		for(int i = 0; i < nbPoints; i++)
+			if(amasDuPoint[i] == a)
+			{
+				mx += x[i];
+				my += y[i];
+				n++;
+			}
+		mx /= n;
+		my /= n;
+
+		double sxx = 0, syy = 0, sxy = 0;
+		for(int i = 0; i < nbPoints; i++)
+			if(amasDuPoint[i] == a)
+			{
+				sxx += (x[i] - mx) * (x[i] - mx);
+				syy += (y[i] - my) * (y[i] - my);
+				sxy += (x[i] - mx) * (y[i] - my);
+			}
+		double angle = Math.atan2(2 * sxy, sxx - syy) / 2;
+		double cos = Math.cos(angle), sin = Math.sin(angle);
+
+		double minU = Double.MAX_VALUE, maxU = -Double.MAX_VALUE, minV = Double.MAX_VALUE, maxV = -Double.MAX_VALUE;
+		for(int i = 0; i < nbPoints; i++)
+			if(amasDuPoint[i] == a)
+			{
+				double u = cos * (x[i] - mx) + sin * (y[i] - my);
+				double v = -sin * (x[i] - mx) + cos * (y[i] - my);
+				minU = Math.min(minU, u);
+				maxU = Math.max(maxU, u);
+				minV = Math.min(minV, v);
+				maxV = Math.max(maxV, v);
+			}
+
+		double u = (minU + maxU) / 2, v = (minV + maxV) / 2;
+		centreX[a] = mx + cos * u - sin * v;
+		centreY[a] = my + sin * u + cos * v;
+		orientation[a] = angle;
+		longueur[a] = maxU - minU;
+		largeur[a] = maxV - minV;
+	}
+
+	private int cle(int cx, int cy)
+	{
+		return cx * 65536 + cy;
+	}
+
+	private int find(int i)
+	{
+		while(parent[i] != i)
+		{
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private void union(int i, int j)
+	{
+		int ri = find(i), rj = find(j);
+		if(ri != rj)
+			parent[ri] = rj;
+	}
+
+	public double getCentreX(int amas)
+	{
+		return centreX[amas];
+	}
+
+	public double getCentreY(int amas)
+	{
+		return centreY[amas];
+	}
+
+	/**
+	 * Orientation de l'axe principal de l'amas
+	 * 
+	 * @param amas
+	 * @return
+	 */
+	public double getOrientation(int amas)
+	{
+		return orientation[amas];
+	}
+
+	/**
+	 * Étendue de l'amas selon son axe principal
+	 * 
+	 * @param amas
+	 * @return
+	 */
+	public double getLongueur(int amas)
+	{
+		return longueur[amas];
+	}
+
+	/**
+	 * Étendue de l'amas perpendiculairement à son axe principal
+	 * 
+	 * @param amas
+	 * @return
+	 */
+	public double getLargeur(int amas)
+	{
+		return largeur[amas];
+	}
+}
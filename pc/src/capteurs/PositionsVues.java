@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package capteurs;
+
+import robot.Cinematique;
+
+/**
+ * Calcul groupé des positions vues par tous les capteurs pour une même trame.
+ * Le montage de chaque capteur (position et orientation relatives, centre de
+ * rotation des roues pour les capteurs mobiles) est précalculé. Pour chaque
+ * trame, on ne calcule que trois cos/sin (orientation du robot et angles des
+ * deux roues), les rotations des capteurs s'en déduisant par composition.
+ * Les résultats, dans le repère de la table, sont rangés dans des tableaux
+ * indicés par CapteursRobot.ordinal().
+ * 
+ * @author pf
+ *
+ */
+
+public class PositionsVues
+{
+	private final int nb;
+
+	/*
+	 * Montage des capteurs. Pour un capteur mobile, la position est relative
+	 * au centre de rotation de sa roue.
+	 */
+	private final boolean[] mobile, roueDroite;
+	private final double[] orientationMontage, cosMontage, sinMontage;
+	private final double[] xMontage, yMontage, xCentre, yCentre;
+	private final int[] distanceMin, portee;
+
+	/*
+	 * Résultats du dernier calcul
+	 */
+	public final double[] xCapteur, yCapteur; // position du capteur
+	public final double[] cosDirection, sinDirection; // direction visée
+	public final double[] orientation; // orientation du capteur
+	public final boolean[] valide; // la mesure est-elle exploitable ?
+	public final double[] xVu, yVu; // le point vu
+
+	public PositionsVues(Capteur[] capteurs)
+	{
+		nb = capteurs.length;
+		mobile = new boolean[nb];
+		roueDroite = new boolean[nb];
+		orientationMontage = new double[nb];
+		cosMontage = new double[nb];
+		sinMontage = new double[nb];
+		xMontage = new double[nb];
+		yMontage = new double[nb];
+		xCentre = new double[nb];
+		yCentre = new double[nb];
+		distanceMin = new int[nb];
+		portee = new int[nb];
+
+		xCapteur = new double[nb];
+		yCapteur = new double[nb];
+		cosDirection = new double[nb];
+		sinDirection = new double[nb];
+		orientation = new double[nb];
+		valide = new boolean[nb];
+		xVu = new double[nb];
+		yVu = new double[nb];
+
+		for(int i = 0; i < nb; i++)
+		{
+			Capteur c = capteurs[i];
+			mobile[i] = c instanceof CapteurMobile;
+			roueDroite[i] = mobile[i] && ((CapteurMobile) c).isRoueDroite();
+			orientationMontage[i] = c.orientationRelative;
+			cosMontage[i] = Math.cos(c.orientationRelative);
+			sinMontage[i] = Math.sin(c.orientationRelative);
+			if(mobile[i])
+			{
+				xCentre[i] = roueDroite[i] ? c.centreRotationDroite.getX() : c.centreRotationGauche.getX();
+				yCentre[i] = roueDroite[i] ? c.centreRotationDroite.getY() : c.centreRotationGauche.getY();
+			}
+			xMontage[i] = c.positionRelative.getX() - xCentre[i];
+			yMontage[i] = c.positionRelative.getY() - yCentre[i];
+			distanceMin[i] = c.distanceMin;
+			portee[i] = c.portee;
+		}
+	}
+
+	/**
+	 * Calcule en une passe la position et la direction de tous les capteurs,
+	 * ainsi que les points vus
+	 * 
+	 * @param data
+	 */
+	public void calcule(SensorsData data)
+	{
+		Cinematique cinematique = data.cinematique;
+		double orientationRobot = cinematique.orientationReelle;
+		double xRobot = cinematique.getPosition().getX();
+		double yRobot = cinematique.getPosition().getY();
+		double cosRobot = Math.cos(orientationRobot);
+		double sinRobot = Math.sin(orientationRobot);
+		double cosGauche = Math.cos(data.angleRoueGauche);
+		double sinGauche = Math.sin(data.angleRoueGauche);
+		double cosDroite = Math.cos(data.angleRoueDroite);
+		double sinDroite = Math.sin(data.angleRoueDroite);
+		int[] mesures = data.mesures;
+
+		for(int i = 0; i < nb; i++)
+		{
+			double cos = cosMontage[i], sin = sinMontage[i];
+			double o = orientationMontage[i];
+			double x = xMontage[i], y = yMontage[i];
+
+			// le capteur tourne avec la roue, autour du centre de rotation
+			if(mobile[i])
+			{
+				double cosRoue = roueDroite[i] ? cosDroite : cosGauche;
+				double sinRoue = roueDroite[i] ? sinDroite : sinGauche;
+				o += roueDroite[i] ? data.angleRoueDroite : data.angleRoueGauche;
+				double tmp = cos * cosRoue - sin * sinRoue;
+				sin = sin * cosRoue + cos * sinRoue;
+				cos = tmp;
+				tmp = cos * x - sin * y + xCentre[i];
+				y = sin * x + cos * y + yCentre[i];
+				x = tmp;
+			}
+
+			xCapteur[i] = xRobot + cosRobot * x - sinRobot * y;
+			yCapteur[i] = yRobot + sinRobot * x + cosRobot * y;
+			cosDirection[i] = cosRobot * cos - sinRobot * sin;
+			sinDirection[i] = sinRobot * cos + cosRobot * sin;
+			orientation[i] = orientationRobot + o;
+
+			valide[i] = mesures != null && mesures[i] > distanceMin[i] && mesures[i] < portee[i];
+			if(valide[i])
+			{
+				xVu[i] = xCapteur[i] + mesures[i] * cosDirection[i];
+				yVu[i] = yCapteur[i] + mesures[i] * sinDirection[i];
+			}
+		}
+	}
+}
@@ -18,6 +18,9 @@ import robot.Cinematique;
 
 /**
  * Un groupe de mesures qui proviennent des capteurs
+ * Les SensorsData sont réutilisés (voir SensorsDataBuffer) : elles possèdent
+ * leur propre cinématique et leur propre tableau de mesures, dans lesquels
+ * les données sont recopiées.
  * 
  * @author pf
  *
@@ -25,25 +28,73 @@ import robot.Cinematique;
 
 public class SensorsData
 {
-	public Cinematique cinematique;
-	/** Ce que voit chacun des capteurs */
+	public final Cinematique cinematique = new Cinematique();
+	/** Ce que voit chacun des capteurs (null s'il n'y a pas de mesure) */
 	public int[] mesures;
+	private final int[] tampon = new int[CapteursRobot.values.length];
 	public double angleRoueGauche, angleRoueDroite;
 
+	public SensorsData()
+	{}
+
 	public SensorsData(double angleRoueGauche, double angleRoueDroite, int[] mesures, Cinematique cinematique)
+	{
+		update(angleRoueGauche, angleRoueDroite, mesures, cinematique);
+	}
+
+	public SensorsData(Cinematique cinematique)
+	{
+		update(cinematique);
+	}
+
+	/**
+	 * Recopie des mesures et de la cinématique
+	 * 
+	 * @param angleRoueGauche
+	 * @param angleRoueDroite
+	 * @param mesures
+	 * @param cinematique
+	 * @return
+	 */
+	public SensorsData update(double angleRoueGauche, double angleRoueDroite, int[] mesures, Cinematique cinematique)
 	{
 		this.angleRoueDroite = angleRoueDroite;
 		this.angleRoueGauche = angleRoueGauche;
-		this.mesures = mesures;
-		this.cinematique = cinematique;
+		System.arraycopy(mesures, 0, tampon, 0, tampon.length);
+		this.mesures = tampon;
+		cinematique.copy(this.cinematique);
+		return this;
 	}
 
-	public SensorsData(Cinematique cinematique)
+	/**
+	 * Seulement la cinématique, sans mesure
+	 * 
+	 * @param cinematique
+	 * @return
+	 */
+	public SensorsData update(Cinematique cinematique)
 	{
 		this.angleRoueDroite = 0;
 		this.angleRoueGauche = 0;
 		this.mesures = null;
-		this.cinematique = cinematique;
+		cinematique.copy(this.cinematique);
+		return this;
+	}
+
+	/**
+	 * Recopie une autre SensorsData
+	 * 
+	 * @param autre
+	 * @return
+	 */
+	public SensorsData update(SensorsData autre)
+	{
+		// lu une seule fois : "autre" peut être modifiée pendant la copie (voir
+		// SensorsDataBuffer)
+		int[] m = autre.mesures;
+		if(m == null)
+			return update(autre.cinematique);
+		return update(autre.angleRoueGauche, autre.angleRoueDroite, m, autre.cinematique);
 	}
 
 }
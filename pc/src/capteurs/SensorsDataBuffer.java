@@ -14,15 +14,31 @@
 
 package capteurs;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import config.Config;
+import config.ConfigInfo;
 import utils.Log;
 import container.Service;
 import container.dependances.SerialClass;
 
 /**
  * Buffer qui contient les infos provenant des capteurs de la STM
+ * C'est un anneau sans verrou à un seul producteur (le thread de la série) et
+ * un seul consommateur (le thread des capteurs). Les SensorsData de l'anneau
+ * sont préallouées : le producteur remplit directement l'emplacement libre,
+ * le consommateur recopie la donnée la plus ancienne dans sa propre
+ * SensorsData.
+ * La lecture est optimiste : si le producteur a supprimé la donnée pendant
+ * qu'on la recopiait, le compareAndSet sur l'indice de lecture échoue et on
+ * recommence. L'anneau a un emplacement de plus que sa capacité, ce qui
+ * garantit que le producteur n'écrit jamais dans une donnée encore lisible.
+ * 
+ * Quand l'anneau est plein, la politique configurée s'applique :
+ * - SUPPRIME_ANCIENNE : la plus vieille donnée est perdue
+ * - FUSIONNE : idem, et en plus le consommateur saute directement à la
+ * donnée la plus récente (seule la dernière position compte)
+ * - BLOQUE : le producteur attend qu'une place se libère (aucune perte)
  * 
  * @author pf
  *
@@ -30,11 +46,45 @@ import container.dependances.SerialClass;
 
 public class SensorsDataBuffer implements Service, SerialClass
 {
+	public enum Politique
+	{
+		SUPPRIME_ANCIENNE,
+		FUSIONNE,
+		BLOQUE;
+	}
+
 	protected Log log;
 
-	public SensorsDataBuffer(Log log)
+	private final Politique politique;
+	private final int capacite;
+	private final SensorsData[] anneau;
+	private final long[] datesProduction; // en ns
+
+	// prochaine donnée à lire. Avancé par le consommateur, ou par le
+	// producteur quand il supprime une donnée
+	private final AtomicLong lecture = new AtomicLong(0);
+	// prochain emplacement à écrire. Seul le producteur le modifie
+	private volatile long ecriture = 0;
+
+	private volatile Thread consommateur, producteur;
+	private volatile boolean consommateurEnAttente = false, producteurEnAttente = false;
+
+	/*
+	 * Métriques. Chacune n'a qu'un seul thread qui l'écrit.
+	 */
+	private volatile long nbPerdues = 0, nbFusionnees = 0, nbAttentes = 0;
+	private volatile long occupationMax = 0;
+	private volatile long nbConsommees = 0, latenceTotale = 0, latenceMax = 0, latenceDerniere = 0;
+
+	public SensorsDataBuffer(Log log, Config config)
 	{
 		this.log = log;
+		politique = Politique.valueOf(config.getString(ConfigInfo.POLITIQUE_BUFFER_CAPTEURS));
+		capacite = Math.max(1, config.getInt(ConfigInfo.TAILLE_BUFFER_CAPTEURS));
+		anneau = new SensorsData[capacite + 1];
+		datesProduction = new long[capacite + 1];
+		for(int i = 0; i < anneau.length; i++)
+			anneau[i] = new SensorsData();
 	}
 
 	/**
@@ -42,37 +92,217 @@ public class SensorsDataBuffer implements Service, SerialClass
 	 * 
 	 * @return
 	 */
-	public synchronized boolean isEmpty()
+	public boolean isEmpty()
 	{
-		return buffer.isEmpty();
+		return ecriture == lecture.get();
 	}
 
-	private Queue<SensorsData> buffer = new ConcurrentLinkedQueue<SensorsData>();
+	/**
+	 * Fournit l'emplacement à remplir par le producteur. Si l'anneau est
+	 * plein, la politique est appliquée (ce qui peut bloquer).
+	 * 
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public SensorsData getLibre() throws InterruptedException
+	{
+		long l;
+		while(ecriture - (l = lecture.get()) >= capacite)
+		{
+			if(politique == Politique.BLOQUE)
+				attendPlace();
+			else if(lecture.compareAndSet(l, l + 1)) // on évacue une ancienne
+														// valeur
+			{
+				nbPerdues++;
+				log.critical("Capteurs traités trop lentement !");
+			}
+		}
+		return anneau[(int) (ecriture % anneau.length)];
+	}
 
 	/**
-	 * Ajout d'un élément dans le buffer et provoque un "notifyAll"
+	 * Publie une donnée. Si ce n'est pas l'emplacement fourni par getLibre(),
+	 * elle est recopiée.
 	 * 
 	 * @param elem
+	 * @throws InterruptedException
+	 */
+	public void add(SensorsData elem) throws InterruptedException
+	{
+		SensorsData s = getLibre();
+		if(s != elem)
+			s.update(elem);
+		long e = ecriture;
+		datesProduction[(int) (e % anneau.length)] = System.nanoTime();
+		ecriture = e + 1;
+
+		long occupation = e + 1 - lecture.get();
+		if(occupation > occupationMax)
+			occupationMax = occupation;
+
+		if(consommateurEnAttente)
+			LockSupport.unpark(consommateur);
+	}
+
+	/**
+	 * Recopie la prochaine donnée dans "out". Renvoie faux si le buffer est
+	 * vide.
+	 * 
+	 * @param out
+	 * @return
 	 */
-	public synchronized void add(SensorsData elem)
+	public boolean poll(SensorsData out)
 	{
-		buffer.add(elem);
-		if(buffer.size() > 5)
+		while(true)
 		{
-			buffer.poll(); // on évacue une ancienne valeur
-			log.critical("Capteurs traités trop lentement !");
+			long l = lecture.get();
+			long e = ecriture;
+			if(l == e)
+				return false;
+
+			if(politique == Politique.FUSIONNE && e - l > 1)
+			{
+				if(lecture.compareAndSet(l, e - 1))
+					nbFusionnees += e - 1 - l;
+				continue;
+			}
+
+			int indice = (int) (l % anneau.length);
+			out.update(anneau[indice]);
+			long date = datesProduction[indice];
+
+			// si le producteur a supprimé cette donnée entre temps, la copie
+			// est peut-être incohérente : on recommence
+			if(lecture.compareAndSet(l, l + 1))
+			{
+				long latence = System.nanoTime() - date;
+				latenceDerniere = latence;
+				latenceTotale += latence;
+				nbConsommees++;
+				if(latence > latenceMax)
+					latenceMax = latence;
+
+				if(producteurEnAttente)
+					LockSupport.unpark(producteur);
+				return true;
+			}
 		}
-		notify();
 	}
 
 	/**
-	 * Retire un élément du buffer
+	 * Attend qu'une donnée soit disponible (appelé par le consommateur)
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void attend() throws InterruptedException
+	{
+		consommateur = Thread.currentThread();
+		consommateurEnAttente = true;
+		try
+		{
+			while(isEmpty())
+			{
+				LockSupport.park(this);
+				if(Thread.interrupted())
+					throw new InterruptedException();
+			}
+		}
+		finally
+		{
+			consommateurEnAttente = false;
+		}
+	}
+
+	private void attendPlace() throws InterruptedException
+	{
+		producteur = Thread.currentThread();
+		producteurEnAttente = true;
+		nbAttentes++;
+		try
+		{
+			while(ecriture - lecture.get() >= capacite)
+			{
+				LockSupport.park(this);
+				if(Thread.interrupted())
+					throw new InterruptedException();
+			}
+		}
+		finally
+		{
+			producteurEnAttente = false;
+		}
+	}
+
+	/**
+	 * Nombre de données en attente de traitement
+	 * 
+	 * @return
+	 */
+	public int getOccupation()
+	{
+		return (int) (ecriture - lecture.get());
+	}
+
+	public int getOccupationMax()
+	{
+		return (int) occupationMax;
+	}
+
+	/**
+	 * Données perdues parce que l'anneau était plein
 	 * 
 	 * @return
 	 */
-	public synchronized SensorsData poll()
+	public long getNbPerdues()
 	{
-		return buffer.poll();
+		return nbPerdues;
 	}
 
+	/**
+	 * Données sautées par le consommateur avec la politique FUSIONNE
+	 * 
+	 * @return
+	 */
+	public long getNbFusionnees()
+	{
+		return nbFusionnees;
+	}
+
+	/**
+	 * Nombre de fois où le producteur a dû attendre avec la politique BLOQUE
+	 * 
+	 * @return
+	 */
+	public long getNbAttentes()
+	{
+		return nbAttentes;
+	}
+
+	/**
+	 * Délai entre la publication et la lecture de la dernière donnée (en ns)
+	 * 
+	 * @return
+	 */
+	public long getLatenceDerniere()
+	{
+		return latenceDerniere;
+	}
+
+	public long getLatenceMax()
+	{
+		return latenceMax;
+	}
+
+	public long getLatenceMoyenne()
+	{
+		long nb = nbConsommees;
+		return nb == 0 ? 0 : latenceTotale / nb;
+	}
+
+	@Override
+	public String toString()
+	{
+		return politique + " : occupation " + getOccupation() + "/" + capacite + " (max " + getOccupationMax() + "), " + nbPerdues + " perdues, " + nbFusionnees + " fusionnées, " + nbAttentes + " attentes, latence moyenne " + getLatenceMoyenne() / 1000 + " µs (max " + latenceMax / 1000 + " µs)";
+	}
 }
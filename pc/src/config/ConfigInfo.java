@@ -67,12 +67,26 @@ public enum ConfigInfo
 	SAUVEGARDE_LOG(false), // sauvegarde les logs dans un fichier externe
 	AFFICHE_CONFIG(false), // affiche la configuration complète au lancement
 	COLORED_LOG(false), // de la couleur dans les sauvegardes de logs !
+	LOG_ASYNCHRONE(true), // la mise en forme et l'écriture des logs sont
+							// faites par un thread dédié
+	TAILLE_BUFFER_LOG(4096), // nombre de messages qui peuvent attendre
+								// d'être écrits
 
 	/**
 	 * Infos sur l'ennemi
 	 */
 	LARGEUR_OBSTACLE_ENNEMI(100), // largeur du robot vu
 	LONGUEUR_OBSTACLE_ENNEMI(200), // longueur / profondeur du robot vu
+	ENABLE_PREDICTION_ENNEMI(true), // suit-on les ennemis pour prévoir leur
+									// position ?
+	DISTANCE_ASSOCIATION_PISTE(250), // distance maximale entre une mesure et
+										// la position prévue d'une piste pour
+										// les associer (en mm)
+	VITESSE_MAX_ENNEMI(1.), // vitesse maximale plausible d'un ennemi (en
+							// mm/ms)
+	HORIZON_PREDICTION_ENNEMI(1000), // jusqu'à quand extrapole-t-on la
+										// position d'un ennemi après sa
+										// dernière mesure (en ms)
 
 	/**
 	 * Paramètres du pathfinding
@@ -89,6 +103,10 @@ public enum ConfigInfo
 								// avoir
 	PF_MARGE_INITIALE(100), // combien de mm garde-t-on obligatoirement au début
 							// de la replanification
+	PF_ANTICIPATION_REPLANIF(100), // combien de ms avant que le robot
+									// n'atteigne la marge nécessaire envoie-t-on
+									// un chemin partiel lors d'une
+									// replanification
 	DUREE_MAX_RECHERCHE_PF(10000), // durée maximale que peut prendre le
 									// pathfinding
 	TAILLE_FAISCEAU_PF(20), // combien de voisins sont ajoutés à l'openset à
@@ -97,6 +115,10 @@ public enum ConfigInfo
 	ALLOW_PRECOMPUTED_PATH(true), // autorise-t-on l'utilisation de chemins
 									// précalculés
 	SAVE_FOUND_PATH(true), // sauvegarde tous les trajets calculés en match
+	SPECULATIVE_PF(true), // calcule les prochains trajets probables pendant
+							// que les actionneurs travaillent
+	NB_CANDIDATS_SPECULATIFS(3), // combien de prochains scripts probables
+									// précalcule-t-on au maximum
 
 	/**
 	 * Télécommande
@@ -113,7 +135,18 @@ public enum ConfigInfo
 	SERIAL_PORT("/dev/ttyS0"), // le port de la liaison série
 	SLEEP_ENTRE_TRAMES(0), // la durée minimale entre deux envois de nouvelles
 							// trames
+	FENETRE_BATCH_SERIE(2), // durée (en ms) pendant laquelle on regroupe les
+							// ordres courts dans une seule trame BATCH (0
+							// pour désactiver)
 	SIMULE_SERIE(false), // la série doit-elle être simulée (utile pour debug)
+	SIMULE_BAS_NIVEAU(false), // remplace la carte par un simulateur en
+								// mémoire qui parle le vrai protocole
+								// (ignoré si la série est simulée)
+	SERIE_NIO(false), // ouvre le tty comme un fichier plutôt que par RXTX
+						// (pas encore testé sur le robot)
+	COMPRESSION_TRAJECTOIRE(true), // envoie les trajectoires en écarts
+									// (SEND_ARC_DELTA) plutôt qu'en points
+									// absolus
 
 	REMOTE_CONTROL(false), // contrôle à distance ?
 	SPEED_UP_KEY(38),
@@ -159,6 +192,17 @@ public enum ConfigInfo
 								// correction au sein d'un même buffer (en ms)
 	ENABLE_CORRECTION(true), // la correction de position et d'orientation
 								// est-elle activée ?
+	CORRECTION_PERIODE_MIN(500), // durée minimale entre deux envois de
+									// correction (en ms)
+	CORRECTION_BRUIT_POSITION(5.), // écart-type d'une mesure de correction en
+									// position (en mm)
+	CORRECTION_BRUIT_ORIENTATION(0.01), // écart-type d'une mesure de
+										// correction en orientation (en
+										// radians)
+	CORRECTION_DERIVE_POSITION(0.2), // dérive de l'erreur de position entre
+										// deux mesures (en mm)
+	CORRECTION_DERIVE_ORIENTATION(0.0005), // dérive de l'erreur d'orientation
+											// entre deux mesures (en radians)
 	RAYON_ROBOT_SUPPRESSION_OBSTACLES_FIXES(300), // dans quel rayon
 													// supprime-t-on les
 													// obstacles fixes si on est
@@ -166,6 +210,27 @@ public enum ConfigInfo
 	SUPPRESSION_AUTO_OBSTACLES_FIXES(true), // si on démarre dans un obstacle
 											// fixe, est-ce qu'on le vire ?
 	ENABLE_SCAN(true), // scan-t-on autour du robot s'il est coincé ?
+	SCAN_DISTANCE_REGROUPEMENT(100), // distance maximale entre deux points
+										// d'un même amas lors d'un scan (en
+										// mm)
+	SCAN_NB_POINTS_MIN(3), // nombre minimal de points d'un amas pour créer un
+							// obstacle lors d'un scan
+	ENABLE_FUSION_CAPTEURS(true), // regroupe-t-on les mesures sur plusieurs
+									// trames avant de créer des obstacles ?
+	FUSION_TAILLE_CASE(50), // côté d'une case de la grille d'occupation (en mm)
+	FUSION_SEUIL(1.), // score d'une case à partir duquel on crée un obstacle
+						// (une mesure vaut 1)
+	FUSION_DEMIE_VIE(300), // demi-vie du score d'une case (en ms)
+	FUSION_RAYON_AMAS(150), // distance maximale entre une mesure et le centre
+							// d'un amas pour l'y ajouter (en mm)
+	FUSION_DEPLACEMENT_MAX(50), // de combien un amas doit-il bouger pour que
+								// son obstacle soit réémis (en mm)
+	TAILLE_BUFFER_CAPTEURS(5), // combien de mesures peuvent attendre d'être
+								// traitées
+	POLITIQUE_BUFFER_CAPTEURS("SUPPRIME_ANCIENNE"), // que faire quand le buffer
+													// des capteurs est plein :
+													// SUPPRIME_ANCIENNE,
+													// FUSIONNE ou BLOQUE
 
 	/**
 	 * Paramètres sur la gestion de la mémoire
@@ -191,6 +256,9 @@ public enum ConfigInfo
 	 * Graphe de dépendances
 	 */
 	GENERATE_DEPENDENCY_GRAPH(false), // génère le graphe des dépendances
+	NB_THREADS_INITIALISATION(4), // nombre de threads qui construisent les
+									// services indépendants en parallèle (1 :
+									// construction séquentielle)
 
 	/**
 	 * Interface graphique
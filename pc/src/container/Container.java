@@ -23,13 +23,25 @@ import java.io.InputStreamReader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import config.Config;
 import config.ConfigInfo;
 import config.DynamicConfigurable;
@@ -80,7 +92,24 @@ public class Container implements Service
 	private boolean showGraph;
 
 	private List<DynamicConfigurable> dynaConf = new ArrayList<DynamicConfigurable>();
-	private HashMap<Class<? extends Service>, Set<String>> grapheDep = new HashMap<Class<? extends Service>, Set<String>>();
+
+	// services confiés aux threads d'initialisation et pas encore enregistrés
+	private Set<Class<?>> enConstruction = new HashSet<Class<?>>();
+	// services dont la construction parallèle a échoué : l'erreur est
+	// renvoyée sans rappeler le constructeur
+	private HashMap<Class<?>, ContainerException> echecs = new HashMap<Class<?>, ContainerException>();
+	private HashMap<Class<?>, Set<String>> grapheDep = new HashMap<Class<?>, Set<String>>();
+
+	/*
+	 * Recettes de construction, résolues une seule fois par JVM. Celles des
+	 * services sont sauvegardées sur disque dans l'ordre de construction, et
+	 * rechargées au démarrage suivant sans parcourir les constructeurs.
+	 */
+	private static HashMap<Class<?>, Fabrique<?>> fabriques = new HashMap<Class<?>, Fabrique<?>>();
+	private static List<Fabrique<?>> ordreFabriques = new ArrayList<Fabrique<?>>();
+	private static boolean fabriquesChargees = false;
+	private static boolean fabriquesModifiees = false;
+	private static final String fichierFabriques = "construction.dat";
 	
 	public boolean isShutdownInProgress()
 	{
@@ -203,7 +232,7 @@ public class Container implements Service
 		List<String> classesGUI = new ArrayList<String>();
 		List<String> classesAutres = new ArrayList<String>();
 
-		for(Class<? extends Service> classe : grapheDep.keySet())
+		for(Class<?> classe : grapheDep.keySet())
 		{
 			String nom = classe.getSimpleName();
 			if(nom.startsWith("Thread"))
@@ -275,7 +304,7 @@ public class Container implements Service
 
 			fw.write("\n");
 
-			for(Class<? extends Service> classe : grapheDep.keySet())
+			for(Class<?> classe : grapheDep.keySet())
 			{
 				Set<String> enf = grapheDep.get(classe);
 				if(!enf.isEmpty())
@@ -296,6 +325,128 @@ public class Container implements Service
 		}
 	}
 
+	/**
+	 * Mémorise les dépendances de ce service pour le graphe. Seuls les
+	 * "nbParam" premiers paramètres sont fournis par le container, les
+	 * suivants étant des paramètres supplémentaires.
+	 * 
+	 * @param fabrique
+	 * @param nbParam
+	 */
+	private synchronized void noteDependances(Fabrique<?> fabrique, int nbParam)
+	{
+		if(!showGraph || !fabrique.isService || fabrique.classe.equals(Log.class) || fabrique.classe.equals(Config.class) || PrintBufferInterface.class.isAssignableFrom(fabrique.classe))
+			return;
+
+		Set<String> enf = grapheDep.get(fabrique.classe);
+		if(enf == null)
+		{
+			enf = new HashSet<String>();
+			grapheDep.put(fabrique.classe, enf);
+		}
+		for(int i = 0; i < nbParam; i++)
+		{
+			Class<?> p = fabrique.param[i];
+			if(!p.equals(Log.class) && !PrintBufferInterface.class.isAssignableFrom(p) && !p.equals(Config.class) && !p.equals(Container.class) && Service.class.isAssignableFrom(p))
+				enf.add(p.getSimpleName());
+		}
+	}
+
+	/**
+	 * Charge les recettes des services sauvegardées par une exécution
+	 * précédente. Chaque ligne contient une classe et les types des
+	 * paramètres de son constructeur ; le constructeur est retrouvé
+	 * directement par sa signature. Si une classe ou un constructeur a changé
+	 * depuis, tout le fichier est ignoré et sera réécrit.
+	 */
+	private static synchronized void chargeFabriques(Log log)
+	{
+		if(fabriquesChargees)
+			return;
+		fabriquesChargees = true;
+
+		if(!new File(fichierFabriques).exists())
+		{
+			fabriquesModifiees = true;
+			return;
+		}
+
+		List<Fabrique<?>> chargees = new ArrayList<Fabrique<?>>();
+		try
+		{
+			BufferedReader in = new BufferedReader(new FileReader(fichierFabriques));
+			String ligne;
+			try
+			{
+				while((ligne = in.readLine()) != null)
+				{
+					String[] noms = ligne.trim().split(" ");
+					if(noms[0].isEmpty())
+						continue;
+					Class<?>[] param = new Class<?>[noms.length - 1];
+					for(int i = 1; i < noms.length; i++)
+						param[i - 1] = Class.forName(noms[i]);
+					chargees.add(creeFabrique(Class.forName(noms[0]), param));
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch(IOException | ClassNotFoundException | NoSuchMethodException e)
+		{
+			log.warning("Recettes de construction obsolètes, elles seront recalculées : " + e);
+			fabriquesModifiees = true;
+			return;
+		}
+
+		for(Fabrique<?> f : chargees)
+		{
+			f.sauvegardee = true;
+			fabriques.put(f.classe, f);
+			ordreFabriques.add(f);
+		}
+		log.debug(chargees.size() + " recettes de construction chargées");
+	}
+
+	private static <S> Fabrique<S> creeFabrique(Class<S> classe, Class<?>[] param) throws NoSuchMethodException
+	{
+		return new Fabrique<S>(classe, classe.getConstructor(param));
+	}
+
+	/**
+	 * Sauvegarde les recettes des services, dans l'ordre où ils ont été
+	 * construits (les dépendances d'un service sont donc avant lui), si de
+	 * nouveaux services sont apparus.
+	 */
+	private static synchronized void sauvegardeFabriques(Log log)
+	{
+		if(!fabriquesModifiees)
+			return;
+		fabriquesModifiees = false;
+
+		try
+		{
+			File tmp = new File(fichierFabriques + ".tmp");
+			FileWriter fw = new FileWriter(tmp);
+			for(Fabrique<?> f : ordreFabriques)
+			{
+				fw.write(f.classe.getName());
+				for(Class<?> p : f.param)
+					fw.write(" " + p.getName());
+				fw.write("\n");
+			}
+			fw.close();
+			if(!tmp.renameTo(new File(fichierFabriques)))
+				log.warning("Impossible d'écrire " + fichierFabriques);
+		}
+		catch(IOException e)
+		{
+			log.warning("Sauvegarde des recettes de construction impossible : " + e);
+		}
+	}
+
 	/**
 	 * Instancie le gestionnaire de dépendances et quelques services critiques
 	 * (log et config qui sont interdépendants)
@@ -374,6 +525,8 @@ public class Container implements Service
 
 		// Le container est aussi un service
 		instanciedServices.put(getClass().getSimpleName(), this);
+
+		chargeFabriques(log);
 		
 		/**
 		 * Planification du hook de fermeture
@@ -405,6 +558,7 @@ public class Container implements Service
 		Script.setLogCercle(log, getService(CercleArrivee.class));
 		
 		startAllThreads();
+		sauvegardeFabriques(log);
 	}
 
 	/**
@@ -459,24 +613,34 @@ public class Container implements Service
 	{
 		try
 		{
-			/**
-			 * Si l'objet existe déjà et que c'est un Service, on le renvoie
-			 */
-			if(Service.class.isAssignableFrom(classe) && instanciedServices.containsKey(classe.getSimpleName()))
-				return (S) instanciedServices.get(classe.getSimpleName());
+			if(Service.class.isAssignableFrom(classe))
+			{
+				/**
+				 * S'il est en cours de construction par un thread
+				 * d'initialisation, on l'attend plutôt que d'en construire un
+				 * second
+				 */
+				while(enConstruction.contains(classe))
+					wait();
+
+				/**
+				 * Si l'objet existe déjà et que c'est un Service, on le renvoie
+				 */
+				if(instanciedServices.containsKey(classe.getSimpleName()))
+					return (S) instanciedServices.get(classe.getSimpleName());
+
+				/**
+				 * Sa construction parallèle a échoué : on ne rappelle pas le
+				 * constructeur
+				 */
+				if(echecs.containsKey(classe))
+					throw echecs.get(classe);
+			}
 
 			/**
 			 * Détection de dépendances circulaires
 			 */
-			if(stack.contains(classe.getSimpleName()))
-			{
-				// Dépendance circulaire détectée !
-				String out = "Dépendance circulaire détectée : ";
-				for(String s : stack)
-					out += s + " -> ";
-				out += classe.getSimpleName();
-				throw new ContainerException(out);
-			}
+			checkCycle(classe, stack);
 
 			// Pas de dépendance circulaire
 
@@ -484,98 +648,424 @@ public class Container implements Service
 			stack.push(classe.getSimpleName());
 
 			/**
-			 * Récupération du constructeur et de ses paramètres
-			 * On suppose qu'il n'y a chaque fois qu'un seul constructeur pour
-			 * cette classe
+			 * Récupération de la recette de construction, résolue par
+			 * réflexion la première fois seulement
 			 */
-			Constructor<S> constructeur;
+			Fabrique<S> fabrique = getFabrique(classe, stack);
+			Class<?>[] param = fabrique.param;
 
-			if(classe.getConstructors().length > 1)
+			/**
+			 * On demande récursivement chacun de ses paramètres
+			 * On complète automatiquement avec ceux déjà donnés
+			 */
+			Object[] paramObject = new Object[param.length];
+			for(int i = 0; i < param.length - extraParam.length; i++)
+				paramObject[i] = getServiceRecursif(param[i], stack);
+			for(int i = 0; i < extraParam.length; i++)
+				paramObject[i + param.length - extraParam.length] = extraParam[i];
+
+			/**
+			 * Instanciation et sauvegarde
+			 */
+			S s = fabrique.construit(paramObject);
+			enregistre(fabrique, s);
+			noteDependances(fabrique, param.length - extraParam.length);
+
+			// Mise à jour de la pile
+			stack.pop();
+
+			return s;
+		}
+		catch(IllegalAccessException | IllegalArgumentException | InvocationTargetException | SecurityException | InstantiationException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(log.getPrintWriter());
+			throw new ContainerException(e.toString() + "\nClasse demandée : " + classe.getSimpleName());
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ContainerException("Interrompu en attendant " + classe.getSimpleName());
+		}
+	}
+
+	/**
+	 * Sauvegarde d'un objet qui vient d'être construit
+	 * 
+	 * @param fabrique
+	 * @param s
+	 */
+	private synchronized <S> void enregistre(Fabrique<S> fabrique, S s)
+	{
+		if(fabrique.isService)
+		{
+			instanciedServices.put(fabrique.classe.getSimpleName(), (Service) s);
+			synchronized(Container.class)
 			{
-				try
+				// seuls les services effectivement construits sont sauvegardés
+				if(!fabrique.sauvegardee)
 				{
-					// Plus d'un constructeur ? On prend celui par défaut
-					constructeur = classe.getConstructor();
-				}
-				catch(Exception e)
-				{
-					throw new ContainerException(classe.getSimpleName() + " a plusieurs constructeurs et aucun constructeur par défaut !");
+					fabrique.sauvegardee = true;
+					ordreFabriques.add(fabrique);
+					fabriquesModifiees = true;
 				}
 			}
-			else if(classe.getConstructors().length == 0)
+		}
+
+		/**
+		 * Mise à jour de la config
+		 */
+		if(fabrique.isDynamicConfigurable)
+		{
+			synchronized(dynaConf)
 			{
-				String out = "";
-				for(String s : stack)
-					out += s + " -> ";
-				out += classe.getSimpleName();
-				throw new ContainerException(classe.getSimpleName() + " n'a aucun constructeur ! " + out);
+				dynaConf.add((DynamicConfigurable) s);
 			}
-			else
-				constructeur = (Constructor<S>) classe.getConstructors()[0];
+			if(config != null)
+				((DynamicConfigurable) s).updateConfig(config);
+		}
+	}
+
+	/**
+	 * Récupère la recette de construction de cette classe, en la créant si
+	 * besoin
+	 * 
+	 * @param classe
+	 * @param stack
+	 * @return
+	 * @throws ContainerException
+	 */
+	@SuppressWarnings("unchecked")
+	private synchronized <S> Fabrique<S> getFabrique(Class<S> classe, Stack<String> stack) throws ContainerException
+	{
+		synchronized(Container.class)
+		{
+			Fabrique<S> fabrique = (Fabrique<S>) fabriques.get(classe);
+			if(fabrique == null)
+			{
+				fabrique = new Fabrique<S>(classe, getConstructeur(classe, stack));
+				fabriques.put(classe, fabrique);
+			}
+			return fabrique;
+		}
+	}
+
+	/**
+	 * Détection de dépendances circulaires
+	 * 
+	 * @param classe
+	 * @param stack
+	 * @throws ContainerException
+	 */
+	private void checkCycle(Class<?> classe, Stack<String> stack) throws ContainerException
+	{
+		if(stack.contains(classe.getSimpleName()))
+		{
+			// Dépendance circulaire détectée !
+			String out = "Dépendance circulaire détectée : ";
+			for(String s : stack)
+				out += s + " -> ";
+			out += classe.getSimpleName();
+			throw new ContainerException(out);
+		}
+	}
+
+	/**
+	 * Construit en parallèle les services nécessaires à ces classes.
+	 * Le graphe des services qui restent à construire est d'abord résolu
+	 * (sans rien instancier) ; chaque service est ensuite confié à un petit
+	 * pool de threads dès que toutes ses dépendances sont construites. Les
+	 * sous-arbres indépendants sont donc construits en même temps, et la durée
+	 * totale se rapproche de celle de la plus longue chaîne de dépendances.
+	 * Un service n'est jamais construit deux fois : celui qui est demandé au
+	 * container pendant sa construction parallèle est attendu, et celui qui a
+	 * été construit entre-temps par un getService n'est pas lancé.
+	 * Un constructeur qui échoue n'est jamais rappelé : son erreur est
+	 * mémorisée, propagée aux services qui en dépendent (qui ne sont pas
+	 * construits) et renvoyée par getService. Tous les autres services sont
+	 * construits, et les erreurs sont affichées dans l'ordre d'une construction
+	 * séquentielle, quel que soit l'ordre dans lequel elles sont survenues.
+	 * 
+	 * @param racines
+	 * @param nbThreads
+	 * @throws InterruptedException
+	 */
+	public void construitEnParallele(List<Class<? extends Service>> racines, int nbThreads) throws InterruptedException
+	{
+		/*
+		 * Les services à construire, dans l'ordre dans lequel une construction
+		 * séquentielle les aurait construits, avec leurs dépendances pas encore
+		 * construites et leurs recettes
+		 */
+		LinkedHashMap<Class<?>, Set<Class<?>>> plan = new LinkedHashMap<Class<?>, Set<Class<?>>>();
+		Map<Class<?>, Fabrique<?>> recettes = new HashMap<Class<?>, Fabrique<?>>();
+		try
+		{
+			synchronized(this)
+			{
+				for(Class<? extends Service> c : racines)
+					planifie(c, new Stack<String>(), plan, recettes);
+			}
+		}
+		catch(ContainerException e)
+		{
+			log.warning("Construction parallèle impossible : " + e.getMessage());
+			return;
+		}
+
+		if(plan.isEmpty())
+			return;
 
-			Class<?>[] param = constructeur.getParameterTypes();
+		Map<Class<?>, Integer> nbDependances = new HashMap<Class<?>, Integer>();
+		Map<Class<?>, List<Class<?>>> dependants = new HashMap<Class<?>, List<Class<?>>>();
+		ArrayDeque<Class<?>> prets = new ArrayDeque<Class<?>>();
+		for(Class<?> c : plan.keySet())
+		{
+			nbDependances.put(c, plan.get(c).size());
+			dependants.put(c, new ArrayList<Class<?>>());
+			if(plan.get(c).isEmpty())
+				prets.add(c);
+		}
+		for(Class<?> c : plan.keySet())
+			for(Class<?> d : plan.get(c))
+				dependants.get(d).add(c);
+
+		ExecutorService pool = Executors.newFixedThreadPool(nbThreads, new ThreadFactory()
+		{
+			private int nb = 0;
 
 			/*
-			 * Récupération du graphe de dépendances
+			 * Les threads ne sont pas des démons : les ThreadService créés
+			 * par ces threads hériteraient de cet attribut
 			 */
-			if(showGraph && Service.class.isAssignableFrom(classe) && !classe.equals(Log.class) && !classe.equals(Config.class) && !PrintBufferInterface.class.isAssignableFrom(classe))
+			@Override
+			public Thread newThread(Runnable r)
 			{
-				Set<String> enf = grapheDep.get(classe);
-				if(enf == null)
+				return new Thread(r, "ThreadInitialisation-" + (nb++));
+			}
+		});
+		CompletionService<Object> termines = new ExecutorCompletionService<Object>(pool);
+		Map<Future<Object>, Fabrique<?>> enCours = new HashMap<Future<Object>, Fabrique<?>>();
+		Set<Class<?>> echecsPropres = new HashSet<Class<?>>();
+		long avant = System.currentTimeMillis();
+
+		try
+		{
+			while(true)
+			{
+				while(!prets.isEmpty())
 				{
-					enf = new HashSet<String>();
-					grapheDep.put((Class<Service>) classe, enf);
+					Class<?> c = prets.poll();
+					synchronized(this)
+					{
+						ContainerException echecDependance = null;
+						for(Class<?> d : plan.get(c))
+							if(echecDependance == null)
+								echecDependance = echecs.get(d);
+
+						if(echecDependance != null)
+							echecs.put(c, echecDependance);
+						else if(!instanciedServices.containsKey(c.getSimpleName()))
+						{
+							lance(recettes.get(c), termines, enCours);
+							continue;
+						}
+					}
+					// déjà construit par un getService, ou impossible à
+					// construire : ses dépendants n'ont pas à l'attendre
+					debloque(c, nbDependances, dependants, prets);
 				}
-				for(int i = 0; i < param.length - extraParam.length; i++)
+
+				if(enCours.isEmpty())
+					break;
+
+				Future<Object> f = termines.take();
+				Fabrique<?> fabrique = enCours.remove(f);
+				synchronized(this)
 				{
-					String fils = param[i].getSimpleName();
-					if(!param[i].equals(Log.class) && !PrintBufferInterface.class.isAssignableFrom(param[i]) && !param[i].equals(Config.class) && !param[i].equals(Container.class) && Service.class.isAssignableFrom(param[i]))
-						enf.add(fils);
+					enConstruction.remove(fabrique.classe);
+					try
+					{
+						enregistreService(fabrique, f.get());
+						noteDependances(fabrique, fabrique.param.length);
+					}
+					catch(ExecutionException e)
+					{
+						echecs.put(fabrique.classe, enContainerException(fabrique.classe, e.getCause()));
+						echecsPropres.add(fabrique.classe);
+					}
+					// réveille ceux qui attendaient ce service
+					notifyAll();
 				}
+				debloque(fabrique.classe, nbDependances, dependants, prets);
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+			synchronized(this)
+			{
+				enConstruction.clear();
+				notifyAll();
 			}
+		}
 
-			/**
-			 * On demande récursivement chacun de ses paramètres
-			 * On complète automatiquement avec ceux déjà donnés
-			 */
-			Object[] paramObject = new Object[param.length];
-			for(int i = 0; i < param.length - extraParam.length; i++)
-				paramObject[i] = getServiceRecursif(param[i], stack);
-			for(int i = 0; i < extraParam.length; i++)
-				paramObject[i + param.length - extraParam.length] = extraParam[i];
+		for(Class<?> c : plan.keySet())
+			if(echecsPropres.contains(c))
+				log.critical("Erreur lors de la construction parallèle de " + c.getSimpleName() + " : " + echecs.get(c).getMessage());
+		log.debug(plan.size() + " services construits en parallèle en " + (System.currentTimeMillis() - avant) + " ms");
+	}
 
-			/**
-			 * Instanciation et sauvegarde
-			 */
-			S s = constructeur.newInstance(paramObject);
+	/**
+	 * Ce service est traité : ses dépendants qui n'attendaient plus que lui
+	 * sont prêts
+	 * 
+	 * @param c
+	 * @param nbDependances
+	 * @param dependants
+	 * @param prets
+	 */
+	private static void debloque(Class<?> c, Map<Class<?>, Integer> nbDependances, Map<Class<?>, List<Class<?>>> dependants, ArrayDeque<Class<?>> prets)
+	{
+		for(Class<?> d : dependants.get(c))
+		{
+			int nb = nbDependances.get(d) - 1;
+			nbDependances.put(d, nb);
+			if(nb == 0)
+				prets.add(d);
+		}
+	}
 
-			if(Service.class.isAssignableFrom(classe))
-				instanciedServices.put(classe.getSimpleName(), (Service) s);
+	/**
+	 * Le même message que lors d'une construction séquentielle
+	 * 
+	 * @param classe
+	 * @param cause
+	 * @return
+	 */
+	private static ContainerException enContainerException(Class<?> classe, Throwable cause)
+	{
+		if(cause instanceof ContainerException)
+			return (ContainerException) cause;
+		if(cause instanceof InvocationTargetException && cause.getCause() != null)
+			cause = cause.getCause();
+		return new ContainerException(cause.toString() + "\nClasse demandée : " + classe.getSimpleName());
+	}
 
-			/**
-			 * Mise à jour de la config
-			 */
-			if(DynamicConfigurable.class.isAssignableFrom(classe))
+	@SuppressWarnings("unchecked")
+	private <S> void enregistreService(Fabrique<S> fabrique, Object s)
+	{
+		enregistre(fabrique, (S) s);
+	}
+
+	/**
+	 * Résout récursivement les dépendances de cette classe sans rien
+	 * instancier.
+	 * 
+	 * @param classe
+	 * @param stack
+	 * @param plan
+	 * @param recettes
+	 * @return les services pas encore construits dont a besoin une instance de
+	 * cette classe
+	 * @throws ContainerException
+	 */
+	private Set<Class<?>> planifie(Class<?> classe, Stack<String> stack, LinkedHashMap<Class<?>, Set<Class<?>>> plan, Map<Class<?>, Fabrique<?>> recettes) throws ContainerException
+	{
+		Set<Class<?>> out = new LinkedHashSet<Class<?>>();
+		boolean isService = Service.class.isAssignableFrom(classe);
+		if(isService)
+		{
+			if(instanciedServices.containsKey(classe.getSimpleName()))
+				return out;
+			out.add(classe);
+			if(plan.containsKey(classe))
+				return out;
+		}
+
+		checkCycle(classe, stack);
+		stack.push(classe.getSimpleName());
+		Fabrique<?> fabrique = getFabrique(classe, stack);
+
+		Set<Class<?>> dependances = new LinkedHashSet<Class<?>>();
+		for(Class<?> p : fabrique.param)
+			dependances.addAll(planifie(p, stack, plan, recettes));
+		stack.pop();
+
+		if(isService)
+		{
+			plan.put(classe, dependances);
+			recettes.put(classe, fabrique);
+		}
+		else
+			out.addAll(dependances);
+		return out;
+	}
+
+	/**
+	 * Confie la construction de ce service au pool. Ses dépendances qui sont
+	 * des services sont déjà construites ; les autres sont construites par le
+	 * thread du pool.
+	 * 
+	 * @param fabrique
+	 * @param termines
+	 * @param enCours
+	 */
+	private synchronized void lance(final Fabrique<?> fabrique, CompletionService<Object> termines, Map<Future<Object>, Fabrique<?>> enCours)
+	{
+		final Object[] paramObject = new Object[fabrique.param.length];
+		for(int i = 0; i < paramObject.length; i++)
+			if(Service.class.isAssignableFrom(fabrique.param[i]))
+				paramObject[i] = instanciedServices.get(fabrique.param[i].getSimpleName());
+
+		enConstruction.add(fabrique.classe);
+		enCours.put(termines.submit(new Callable<Object>()
+		{
+			@Override
+			public Object call() throws Exception
 			{
-				synchronized(dynaConf)
-				{
-					dynaConf.add((DynamicConfigurable) s);
-				}
-				if(config != null)
-					((DynamicConfigurable) s).updateConfig(config);
+				for(int i = 0; i < paramObject.length; i++)
+					if(paramObject[i] == null)
+						paramObject[i] = getServiceRecursif(fabrique.param[i], new Stack<String>());
+				return fabrique.construit(paramObject);
 			}
+		}), fabrique);
+	}
 
-			// Mise à jour de la pile
-			stack.pop();
-
-			return s;
+	/**
+	 * Récupère le constructeur à utiliser.
+	 * On suppose qu'il n'y a chaque fois qu'un seul constructeur pour
+	 * cette classe
+	 * 
+	 * @param classe
+	 * @param stack
+	 * @return
+	 * @throws ContainerException
+	 */
+	@SuppressWarnings("unchecked")
+	private <S> Constructor<S> getConstructeur(Class<S> classe, Stack<String> stack) throws ContainerException
+	{
+		if(classe.getConstructors().length > 1)
+		{
+			try
+			{
+				// Plus d'un constructeur ? On prend celui par défaut
+				return classe.getConstructor();
+			}
+			catch(Exception e)
+			{
+				throw new ContainerException(classe.getSimpleName() + " a plusieurs constructeurs et aucun constructeur par défaut !");
+			}
 		}
-		catch(IllegalAccessException | IllegalArgumentException | InvocationTargetException | SecurityException | InstantiationException e)
+		else if(classe.getConstructors().length == 0)
 		{
-			e.printStackTrace();
-			e.printStackTrace(log.getPrintWriter());
-			throw new ContainerException(e.toString() + "\nClasse demandée : " + classe.getSimpleName());
+			String out = "";
+			for(String s : stack)
+				out += s + " -> ";
+			out += classe.getSimpleName();
+			throw new ContainerException(classe.getSimpleName() + " n'a aucun constructeur ! " + out);
 		}
+		return (Constructor<S>) classe.getConstructors()[0];
 	}
 
 	public void restartThread(ThreadName n) throws InterruptedException
@@ -603,6 +1093,15 @@ public class Container implements Service
 	 */
 	private void startAllThreads() throws InterruptedException
 	{
+		int nbThreads = config.getInt(ConfigInfo.NB_THREADS_INITIALISATION);
+		if(nbThreads > 1)
+		{
+			List<Class<? extends Service>> racines = new ArrayList<Class<? extends Service>>();
+			for(ThreadName n : ThreadName.values())
+				racines.add(n.c);
+			construitEnParallele(racines, nbThreads);
+		}
+
 		for(ThreadName n : ThreadName.values())
 		{
 			try
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package container;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import config.DynamicConfigurable;
+
+/**
+ * Recette de construction d'une classe : son constructeur et les types de ses
+ * paramètres, résolus une seule fois par réflexion.
+ * Les classes ne changent pas pendant l'exécution, donc ces recettes sont
+ * partagées par tous les containers successifs de la JVM (ce qui arrive dans
+ * les tests unitaires). Celles des services sont aussi sauvegardées d'une
+ * exécution à l'autre par le container.
+ * 
+ * @author pf
+ *
+ */
+
+class Fabrique<S>
+{
+	public final Class<S> classe;
+	public final Class<?>[] param;
+	public final boolean isService;
+	public final boolean isDynamicConfigurable;
+	private final Constructor<S> constructeur;
+	boolean sauvegardee = false; // déjà dans l'ordre de construction sauvegardé
+
+	public Fabrique(Class<S> classe, Constructor<S> constructeur)
+	{
+		this.classe = classe;
+		this.constructeur = constructeur;
+		param = constructeur.getParameterTypes();
+		isService = Service.class.isAssignableFrom(classe);
+		isDynamicConfigurable = DynamicConfigurable.class.isAssignableFrom(classe);
+	}
+
+	/**
+	 * Appel direct du constructeur, les paramètres étant déjà résolus
+	 * 
+	 * @param paramObject
+	 * @return
+	 * @throws InstantiationException
+	 * @throws IllegalAccessException
+	 * @throws IllegalArgumentException
+	 * @throws InvocationTargetException
+	 */
+	public S construit(Object[] paramObject) throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		return constructeur.newInstance(paramObject);
+	}
+}
@@ -15,11 +15,15 @@
 package obstacles.memory;
 
 import graphic.PrintBufferInterface;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import obstacles.types.Obstacle;
 import obstacles.types.ObstacleProximity;
+import obstacles.types.ObstacleRectangular;
 import pathfinding.dstarlite.gridspace.Masque;
+import pathfinding.dstarlite.gridspace.MasqueManager;
 import utils.Log;
 import config.Config;
 import config.ConfigInfo;
@@ -36,9 +40,19 @@ import container.dependances.LowPFClass;
 
 public class ObstaclesMemory implements Service, LowPFClass
 {
-	// Les obstacles mobiles, c'est-à-dire des obstacles de proximité
-	private volatile LinkedList<ObstacleProximity> listObstaclesMobiles = new LinkedList<ObstacleProximity>();
+	// Les obstacles mobiles, c'est-à-dire des obstacles de proximité. Accès
+	// direct par indice, pour que la suppression d'un obstacle connu soit
+	// en temps constant
+	private volatile ArrayList<ObstacleProximity> listObstaclesMobiles = new ArrayList<ObstacleProximity>();
 	private volatile LinkedList<ObstacleProximity> listObstaclesMortsTot = new LinkedList<ObstacleProximity>();
+	/*
+	 * Les obstacles recyclables qui ne sont plus référencés. Les obstacles
+	 * morts tôt passent d'abord par une quarantaine aussi longue que le délai
+	 * de suppression des obstacles périmés, pour que les itérateurs qui les
+	 * lisaient encore aient le temps de les oublier.
+	 */
+	private final ArrayDeque<ObstacleProximity> libres = new ArrayDeque<ObstacleProximity>();
+	private final ArrayDeque<ObstacleProximity> quarantaine = new ArrayDeque<ObstacleProximity>();
 	private int dureeAvantPeremption;
 	private volatile int size = 0;
 	private volatile int indicePremierObstacle = 0;
@@ -47,14 +61,18 @@ public class ObstaclesMemory implements Service, LowPFClass
 	private boolean printProx;
 	private boolean printDStarLite;
 	private final int tempsAvantSuppression = 2000;
+	private boolean prediction;
+	private SuiviEnnemis suivi;
 
 	protected Log log;
 	private PrintBufferInterface buffer;
 
-	public ObstaclesMemory(Log log, PrintBufferInterface buffer, Config config)
+	public ObstaclesMemory(Log log, PrintBufferInterface buffer, SuiviEnnemis suivi, Config config)
 	{
 		this.log = log;
 		this.buffer = buffer;
+		this.suivi = suivi;
+		prediction = config.getBoolean(ConfigInfo.ENABLE_PREDICTION_ENNEMI);
 		dureeAvantPeremption = config.getInt(ConfigInfo.DUREE_PEREMPTION_OBSTACLES);
 		printProx = config.getBoolean(ConfigInfo.GRAPHIC_PROXIMITY_OBSTACLES);
 		printDStarLite = config.getBoolean(ConfigInfo.GRAPHIC_D_STAR_LITE);
@@ -65,9 +83,44 @@ public class ObstaclesMemory implements Service, LowPFClass
 		return add(obstacle, System.currentTimeMillis(), masque);
 	}
 
+	/**
+	 * Ajoute un obstacle rectangulaire. La forme est recopiée (elle peut donc
+	 * être réutilisée par l'appelant) dans un obstacle recyclé si possible,
+	 * sinon dans un nouvel obstacle.
+	 * 
+	 * @param forme
+	 * @param masquemanager
+	 * @return
+	 */
+	public synchronized ObstacleProximity add(ObstacleRectangular forme, MasqueManager masquemanager)
+	{
+		long date = System.currentTimeMillis();
+		ObstacleProximity obstacle = libres.poll();
+		if(obstacle == null)
+		{
+			ObstacleRectangular copie = new ObstacleRectangular(forme);
+			obstacle = new ObstacleProximity(copie, date + dureeAvantPeremption, masquemanager.getMasqueEnnemi(copie));
+			obstacle.setRecyclable();
+		}
+		else
+		{
+			forme.copy((ObstacleRectangular) obstacle.getForme());
+			masquemanager.getMasqueEnnemi(obstacle.getForme(), obstacle.getMasque());
+			obstacle.update(date + dureeAvantPeremption);
+		}
+		return add(obstacle, date);
+	}
+
 	private synchronized ObstacleProximity add(Obstacle obstacleParam, long date, Masque masque)
 	{
-		ObstacleProximity obstacle = new ObstacleProximity(obstacleParam, date + dureeAvantPeremption, masque);
+		return add(new ObstacleProximity(obstacleParam, date + dureeAvantPeremption, masque), date);
+	}
+
+	private ObstacleProximity add(ObstacleProximity obstacle, long date)
+	{
+		if(prediction)
+			obstacle.setPiste(suivi.associe(obstacle.getPosition(), date), date);
+		obstacle.setIndiceMemoire(size);
 		listObstaclesMobiles.add(obstacle);
 
 		if(printProx)
@@ -109,6 +162,7 @@ public class ObstaclesMemory implements Service, LowPFClass
 			buffer.removeSupprimable(o.getMasque());
 		}
 
+		o.setDeathDate(System.currentTimeMillis());
 		listObstaclesMortsTot.add(o);
 		listObstaclesMobiles.set(indice - indicePremierObstacle, null);
 
@@ -125,6 +179,20 @@ public class ObstaclesMemory implements Service, LowPFClass
 		firstNotDeadNow += indicePremierObstacle;
 	}
 
+	/**
+	 * Supprime cet obstacle s'il est encore dans la mémoire
+	 * 
+	 * @param o
+	 */
+	public synchronized void remove(ObstacleProximity o)
+	{
+		// l'obstacle connaît son indice ; il a pu être oublié ou recyclé
+		// depuis, auquel cas l'indice désigne un autre obstacle (ou aucun)
+		int indice = o.getIndiceMemoire();
+		if(indice >= indicePremierObstacle && indice < size && listObstaclesMobiles.get(indice - indicePremierObstacle) == o)
+			remove(indice);
+	}
+
 	/**
 	 * Renvoie vrai s'il y a effectivement suppression.
 	 * On conserve les obstacles récemment périmés, car le DStarLite en a
@@ -160,15 +228,19 @@ public class ObstaclesMemory implements Service, LowPFClass
 			tmp++;
 		}
 
-		iter = listObstaclesMobiles.iterator();
-		tmp = 0;
-		while(iter.hasNext() && tmp <= last)
+		for(tmp = 0; tmp <= last; tmp++)
 		{
-			indicePremierObstacle++;
-			o = iter.next();
-			iter.remove();
-			tmp++;
+			o = listObstaclesMobiles.get(tmp);
+			if(o != null && o.isRecyclable())
+				libres.add(o);
 		}
+		// une seule recopie pour tous les obstacles oubliés
+		listObstaclesMobiles.subList(0, last + 1).clear();
+		indicePremierObstacle += last + 1;
+
+		// fin de quarantaine des obstacles morts tôt
+		while(!quarantaine.isEmpty() && quarantaine.peek().isDestructionNecessary(dateActuelle - tempsAvantSuppression))
+			libres.add(quarantaine.poll());
 
 		// Mise à jour de firstNotDeadNow
 		iter = listObstaclesMobiles.iterator();
@@ -218,7 +290,10 @@ public class ObstaclesMemory implements Service, LowPFClass
 	 */
 	public synchronized ObstacleProximity pollMortTot()
 	{
-		return listObstaclesMortsTot.poll();
+		ObstacleProximity o = listObstaclesMortsTot.poll();
+		if(o != null && o.isRecyclable())
+			quarantaine.add(o);
+		return o;
 	}
 
 }
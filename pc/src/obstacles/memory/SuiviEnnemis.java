@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package obstacles.memory;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import obstacles.types.PisteEnnemi;
+import utils.Log;
+import utils.Vec2RO;
+import utils.Log.Verbose;
+import config.Config;
+import config.ConfigInfo;
+import container.Service;
+import container.dependances.LowPFClass;
+
+/**
+ * Associe les obstacles de proximité successifs en pistes afin d'estimer la
+ * vitesse des ennemis
+ * 
+ * @author pf
+ *
+ */
+
+public class SuiviEnnemis implements Service, LowPFClass
+{
+	protected Log log;
+	private LinkedList<PisteEnnemi> pistes = new LinkedList<PisteEnnemi>();
+	private int distanceAssociation;
+	private int dureePeremption;
+	private double vitesseMax;
+	private int horizon;
+
+	public SuiviEnnemis(Log log, Config config)
+	{
+		this.log = log;
+		distanceAssociation = config.getInt(ConfigInfo.DISTANCE_ASSOCIATION_PISTE);
+		dureePeremption = config.getInt(ConfigInfo.DUREE_PEREMPTION_OBSTACLES);
+		vitesseMax = config.getDouble(ConfigInfo.VITESSE_MAX_ENNEMI);
+		horizon = config.getInt(ConfigInfo.HORIZON_PREDICTION_ENNEMI);
+	}
+
+	/**
+	 * Associe une mesure à la piste la plus proche, ou crée une nouvelle piste
+	 * si aucune n'est assez proche
+	 * 
+	 * @param position
+	 * @param date
+	 * @return
+	 */
+	public synchronized PisteEnnemi associe(Vec2RO position, long date)
+	{
+		PisteEnnemi meilleure = null;
+		double meilleureDistance = distanceAssociation * distanceAssociation;
+
+		Iterator<PisteEnnemi> iter = pistes.iterator();
+		while(iter.hasNext())
+		{
+			PisteEnnemi p = iter.next();
+			// piste trop vieille
+			if(p.getDateDerniereMesure() + dureePeremption < date)
+			{
+				iter.remove();
+				continue;
+			}
+			double d = p.squaredDistance(position, date);
+			if(d < meilleureDistance)
+			{
+				meilleureDistance = d;
+				meilleure = p;
+			}
+		}
+
+		if(meilleure == null)
+		{
+			meilleure = new PisteEnnemi(position, date, vitesseMax, horizon);
+			pistes.add(meilleure);
+		}
+		else
+			meilleure.update(position, date);
+
+		log.debug(meilleure, Verbose.CAPTEURS.masque);
+		return meilleure;
+	}
+
+	public synchronized int size()
+	{
+		return pistes.size();
+	}
+}
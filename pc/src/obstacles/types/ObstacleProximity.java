@@ -16,6 +16,7 @@ package obstacles.types;
 
 import pathfinding.dstarlite.gridspace.Masque;
 import utils.Vec2RO;
+import utils.Vec2RW;
 
 /**
  * Obstacles détectés par capteurs de proximité (ultrasons et infrarouges)
@@ -27,10 +28,209 @@ public class ObstacleProximity extends ObstacleMasque
 	private static final long serialVersionUID = -3518004359091355796L;
 	private long death_date;
 
+	// la piste de l'ennemi qui a produit cet obstacle, si on le suit
+	private volatile PisteEnnemi piste = null;
+	private long dateMesure;
+
+	// cercle englobant, utilisé pour tester la position prévue
+	private final Vec2RW centre = new Vec2RW();
+	private double rayon;
+
+	// la forme et le masque appartiennent à l'obstacle, qui peut être recyclé
+	private boolean recyclable = false;
+	// indice dans la mémoire des obstacles, mis à jour à chaque ajout
+	private int indiceMemoire = -1;
+
 	public ObstacleProximity(Obstacle o, long death_date, Masque masque)
 	{
 		super(o, masque);
+		update(death_date);
+	}
+
+	public void setRecyclable()
+	{
+		recyclable = true;
+	}
+
+	public boolean isRecyclable()
+	{
+		return recyclable;
+	}
+
+	public void setIndiceMemoire(int indiceMemoire)
+	{
+		this.indiceMemoire = indiceMemoire;
+	}
+
+	public int getIndiceMemoire()
+	{
+		return indiceMemoire;
+	}
+
+	/**
+	 * Réutilisation d'un obstacle périmé : la forme et le masque ont déjà été
+	 * mis à jour
+	 * 
+	 * @param death_date
+	 */
+	public void update(long death_date)
+	{
 		this.death_date = death_date;
+		piste = null;
+		if(o instanceof ObstacleCircular)
+		{
+			o.getPosition().copy(centre);
+			rayon = ((ObstacleCircular) o).radius;
+		}
+		else
+		{
+			centre.setX((o.getLeftmostX() + o.getRightmostX()) / 2);
+			centre.setY((o.getBottomY() + o.getTopY()) / 2);
+			rayon = Math.hypot(o.getRightmostX() - o.getLeftmostX(), o.getTopY() - o.getBottomY()) / 2;
+		}
+	}
+
+	/**
+	 * La forme de l'obstacle
+	 * 
+	 * @return
+	 */
+	public Obstacle getForme()
+	{
+		return o;
+	}
+
+	/**
+	 * Obstacle supprimé avant sa date de péremption
+	 * 
+	 * @param date
+	 */
+	public void setDeathDate(long date)
+	{
+		death_date = date;
+	}
+
+	/**
+	 * Associe cet obstacle à la piste d'un ennemi
+	 * 
+	 * @param piste
+	 * @param dateMesure
+	 */
+	public void setPiste(PisteEnnemi piste, long dateMesure)
+	{
+		this.dateMesure = dateMesure;
+		this.piste = piste;
+	}
+
+	/**
+	 * L'obstacle se déplace-t-il ?
+	 * 
+	 * @return
+	 */
+	public boolean isMobile()
+	{
+		PisteEnnemi p = piste;
+		return p != null && p.isMobile();
+	}
+
+	/**
+	 * Collision avec la position prévue de l'obstacle à cette date. Un
+	 * obstacle mobile est alors approché par son cercle englobant.
+	 * L'obstacle est testé par plusieurs threads à la fois : la position
+	 * prévue est calculée dans un vecteur qui appartient à l'appelant.
+	 * 
+	 * @param obs
+	 * @param date
+	 * @param centrePredit vecteur de travail de l'appelant
+	 * @return
+	 */
+	public boolean isColliding(ObstacleRectangular obs, long date, Vec2RW centrePredit)
+	{
+		PisteEnnemi p = piste;
+		if(p == null || !p.isMobile())
+			return isColliding(obs);
+		return isCollidingCercle(getCentrePredit(p, date, centrePredit), obs);
+	}
+
+	/**
+	 * Collision avec la position prévue de l'obstacle à cette date
+	 * 
+	 * @param obs
+	 * @param date
+	 * @param centrePredit vecteur de travail de l'appelant
+	 * @return
+	 */
+	public boolean isColliding(ObstacleArcCourbe obs, long date, Vec2RW centrePredit)
+	{
+		PisteEnnemi p = piste;
+		if(p == null || !p.isMobile())
+			return isColliding(obs);
+		getCentrePredit(p, date, centrePredit);
+		for(ObstacleRectangular o : obs.ombresRobot)
+			if(isCollidingCercle(centrePredit, o))
+				return true;
+		return false;
+	}
+
+	private Vec2RO getCentrePredit(PisteEnnemi p, long date, Vec2RW out)
+	{
+		p.getDeplacement(dateMesure, date, out);
+		return out.plus(centre);
+	}
+
+	/**
+	 * Boîte englobante de l'obstacle entre ces deux dates. Le déplacement
+	 * prévu étant rectiligne, c'est la boîte des cercles englobants aux deux
+	 * dates.
+	 * 
+	 * @param debut
+	 * @param fin
+	 * @param boite xMin, xMax, yMin, yMax
+	 * @param centrePredit vecteur de travail de l'appelant
+	 */
+	public void getBoiteBalayee(long debut, long fin, double[] boite, Vec2RW centrePredit)
+	{
+		PisteEnnemi p = piste;
+		if(p == null || !p.isMobile())
+		{
+			boite[0] = o.getLeftmostX();
+			boite[1] = o.getRightmostX();
+			boite[2] = o.getBottomY();
+			boite[3] = o.getTopY();
+			return;
+		}
+		Vec2RO c = getCentrePredit(p, debut, centrePredit);
+		double x1 = c.getX(), y1 = c.getY();
+		c = getCentrePredit(p, fin, centrePredit);
+		boite[0] = Math.min(x1, c.getX()) - rayon;
+		boite[1] = Math.max(x1, c.getX()) + rayon;
+		boite[2] = Math.min(y1, c.getY()) - rayon;
+		boite[3] = Math.max(y1, c.getY()) + rayon;
+	}
+
+	/**
+	 * Test rapide : l'obstacle, à sa position prévue à cette date, peut-il
+	 * toucher cette boîte ? Si la réponse est non, il n'y a pas de collision.
+	 * 
+	 * @param boite xMin, xMax, yMin, yMax
+	 * @param date
+	 * @param centrePredit vecteur de travail de l'appelant
+	 * @return
+	 */
+	public boolean peutToucher(double[] boite, long date, Vec2RW centrePredit)
+	{
+		PisteEnnemi p = piste;
+		if(p == null || !p.isMobile())
+			return o.getRightmostX() >= boite[0] && o.getLeftmostX() <= boite[1] && o.getTopY() >= boite[2] && o.getBottomY() <= boite[3];
+		Vec2RO c = getCentrePredit(p, date, centrePredit);
+		return c.getX() + rayon >= boite[0] && c.getX() - rayon <= boite[1] && c.getY() + rayon >= boite[2] && c.getY() - rayon <= boite[3];
+	}
+
+	private boolean isCollidingCercle(Vec2RO centrePredit, ObstacleRectangular o)
+	{
+		if(centrePredit.squaredDistance(o.centreGeometrique) >= (rayon + o.getDemieDiagonale()) * (rayon + o.getDemieDiagonale()))
+			return false;
+		return o.squaredDistance(centrePredit) < rayon * rayon;
 	}
 
 	@Override
@@ -92,23 +92,119 @@ public class ObstacleRectangular extends Obstacle
 	public ObstacleRectangular(Vec2RO position, int sizeX, int sizeY, double angle)
 	{
 		super(position);
-		this.angle = angle;
-		cos = Math.cos(angle);
-		sin = Math.sin(angle);
-		coinBasGauche = new Vec2RW(-sizeX / 2, -sizeY / 2);
-		coinHautGauche = new Vec2RW(-sizeX / 2, sizeY / 2);
-		coinBasDroite = new Vec2RW(sizeX / 2, -sizeY / 2);
-		coinHautDroite = new Vec2RW(sizeX / 2, sizeY / 2);
+		coinBasGauche = new Vec2RW();
+		coinHautGauche = new Vec2RW();
+		coinBasDroite = new Vec2RW();
+		coinHautDroite = new Vec2RW();
 		coinBasGaucheRotate = new Vec2RW();
 		coinHautGaucheRotate = new Vec2RW();
 		coinBasDroiteRotate = new Vec2RW();
 		coinHautDroiteRotate = new Vec2RW();
+		centreGeometrique = new Vec2RW();
+		update(position, sizeX, sizeY, angle);
+	}
+
+	/**
+	 * Copie d'un autre rectangle
+	 * 
+	 * @param autre
+	 */
+	public ObstacleRectangular(ObstacleRectangular autre)
+	{
+		this(autre.position, 0, 0, 0);
+		autre.copy(this);
+	}
+
+	/**
+	 * Modifie ce rectangle sans allocation (utilisé pour les obstacles
+	 * recyclés)
+	 * 
+	 * @param position
+	 * @param sizeX
+	 * @param sizeY
+	 * @param angle
+	 * @return
+	 */
+	public ObstacleRectangular update(Vec2RO position, int sizeX, int sizeY, double angle)
+	{
+		position.copy(this.position);
+		this.angle = angle;
+		cos = Math.cos(angle);
+		sin = Math.sin(angle);
+		coinBasGauche.setX(-sizeX / 2);
+		coinBasGauche.setY(-sizeY / 2);
+		coinHautGauche.setX(-sizeX / 2);
+		coinHautGauche.setY(sizeY / 2);
+		coinBasDroite.setX(sizeX / 2);
+		coinBasDroite.setY(-sizeY / 2);
+		coinHautDroite.setX(sizeX / 2);
+		coinHautDroite.setY(sizeY / 2);
 		convertitVersRepereTable(coinBasGauche, coinBasGaucheRotate);
 		convertitVersRepereTable(coinHautGauche, coinHautGaucheRotate);
 		convertitVersRepereTable(coinBasDroite, coinBasDroiteRotate);
 		convertitVersRepereTable(coinHautDroite, coinHautDroiteRotate);
-		centreGeometrique = position.clone();
+		position.copy(centreGeometrique);
 		demieDiagonale = Math.sqrt(sizeY * sizeY / 4 + sizeX * sizeX / 4);
+		return this;
+	}
+
+	public ObstacleRectangular update(Vec2RO position, int sizeX, int sizeY, double angle, Couleur c)
+	{
+		update(position, sizeX, sizeY, angle);
+		this.l = c.l;
+		this.c = c.couleur;
+		return this;
+	}
+
+	/**
+	 * Translate le rectangle pour que son centre de rotation soit en
+	 * "nouvellePosition", sans changer sa taille ni son orientation
+	 * 
+	 * @param nouvellePosition
+	 * @return
+	 */
+	public ObstacleRectangular deplace(Vec2RO nouvellePosition)
+	{
+		double dx = nouvellePosition.getX() - position.getX();
+		double dy = nouvellePosition.getY() - position.getY();
+		translate(position, dx, dy);
+		translate(centreGeometrique, dx, dy);
+		translate(coinBasGaucheRotate, dx, dy);
+		translate(coinHautGaucheRotate, dx, dy);
+		translate(coinBasDroiteRotate, dx, dy);
+		translate(coinHautDroiteRotate, dx, dy);
+		return this;
+	}
+
+	private static void translate(Vec2RW v, double dx, double dy)
+	{
+		v.setX(v.getX() + dx);
+		v.setY(v.getY() + dy);
+	}
+
+	/**
+	 * Recopie ce rectangle dans "autre", sans allocation
+	 * 
+	 * @param autre
+	 */
+	public void copy(ObstacleRectangular autre)
+	{
+		position.copy(autre.position);
+		autre.angle = angle;
+		autre.cos = cos;
+		autre.sin = sin;
+		coinBasGauche.copy(autre.coinBasGauche);
+		coinHautGauche.copy(autre.coinHautGauche);
+		coinBasDroite.copy(autre.coinBasDroite);
+		coinHautDroite.copy(autre.coinHautDroite);
+		coinBasGaucheRotate.copy(autre.coinBasGaucheRotate);
+		coinHautGaucheRotate.copy(autre.coinHautGaucheRotate);
+		coinBasDroiteRotate.copy(autre.coinBasDroiteRotate);
+		coinHautDroiteRotate.copy(autre.coinHautDroiteRotate);
+		centreGeometrique.copy(autre.centreGeometrique);
+		autre.demieDiagonale = demieDiagonale;
+		autre.l = l;
+		autre.c = c;
 	}
 
 	/**
@@ -275,6 +371,11 @@ public class ObstacleRectangular extends Obstacle
 		return demieDiagonale;
 	}
 
+	public Vec2RO getCentreGeometrique()
+	{
+		return centreGeometrique;
+	}
+
 	@Override
 	public void print(Graphics g, Fenetre f, RobotReal robot)
 	{
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package obstacles.types;
+
+import utils.Vec2RO;
+import utils.Vec2RW;
+
+/**
+ * Une piste : un ennemi suivi à travers les mesures successives des capteurs.
+ * La position et la vitesse sont estimées par un filtre alpha-bêta.
+ * 
+ * @author pf
+ *
+ */
+
+public class PisteEnnemi
+{
+	private static final double ALPHA = 0.5;
+	private static final double BETA = 0.2;
+	private static final int NB_MESURES_MIN = 3; // avant d'utiliser la vitesse
+	private static final double VITESSE_MIN = 0.05; // en mm/ms. En dessous,
+													// l'ennemi est considéré
+													// immobile
+
+	private double x, y; // position estimée
+	private double vx = 0, vy = 0; // en mm/ms
+	private long dateDerniereMesure;
+	private int nbMesures = 1;
+	private final double vitesseMax;
+	private final int horizon;
+
+	public PisteEnnemi(Vec2RO mesure, long date, double vitesseMax, int horizon)
+	{
+		x = mesure.getX();
+		y = mesure.getY();
+		dateDerniereMesure = date;
+		this.vitesseMax = vitesseMax;
+		this.horizon = horizon;
+	}
+
+	/**
+	 * Ajoute une mesure à la piste
+	 * 
+	 * @param mesure
+	 * @param date
+	 */
+	public synchronized void update(Vec2RO mesure, long date)
+	{
+		long dt = date - dateDerniereMesure;
+		double predX = x + vx * dt;
+		double predY = y + vy * dt;
+		double residuX = mesure.getX() - predX;
+		double residuY = mesure.getY() - predY;
+		x = predX + ALPHA * residuX;
+		y = predY + ALPHA * residuY;
+		// plusieurs capteurs peuvent voir l'ennemi au même moment
+		if(dt > 0)
+		{
+			vx += BETA * residuX / dt;
+			vy += BETA * residuY / dt;
+			double v = Math.hypot(vx, vy);
+			if(v > vitesseMax)
+			{
+				vx *= vitesseMax / v;
+				vy *= vitesseMax / v;
+			}
+			dateDerniereMesure = date;
+		}
+		nbMesures++;
+	}
+
+	/**
+	 * Distance au carré entre cette position et celle prévue par la piste
+	 * 
+	 * @param position
+	 * @param date
+	 * @return
+	 */
+	public synchronized double squaredDistance(Vec2RO position, long date)
+	{
+		long dt = Math.max(0, Math.min(date - dateDerniereMesure, horizon));
+		double dx = x + vx * dt - position.getX();
+		double dy = y + vy * dt - position.getY();
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * La vitesse est-elle assez fiable et assez grande pour être utilisée ?
+	 * 
+	 * @return
+	 */
+	public synchronized boolean isMobile()
+	{
+		return nbMesures >= NB_MESURES_MIN && vx * vx + vy * vy > VITESSE_MIN * VITESSE_MIN;
+	}
+
+	/**
+	 * Déplacement, entre dateMesure et date, d'un point mesuré à dateMesure.
+	 * L'extrapolation s'arrête "horizon" ms après la dernière mesure de la
+	 * piste.
+	 * 
+	 * @param dateMesure
+	 * @param date
+	 * @param out
+	 */
+	public synchronized void getDeplacement(long dateMesure, long date, Vec2RW out)
+	{
+		long dt = Math.max(0, Math.min(date, dateDerniereMesure + horizon) - dateMesure);
+		out.setX(vx * dt);
+		out.setY(vy * dt);
+	}
+
+	public synchronized long getDateDerniereMesure()
+	{
+		return dateDerniereMesure;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "Piste en (" + (int) x + ", " + (int) y + "), vitesse (" + vx + ", " + vy + "), " + nbMesures + " mesures";
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package pathfinding;
+
+import container.Service;
+import container.dependances.HighPFClass;
+
+/**
+ * Classe qui indique au pathfinding spéculatif quand il peut travailler : le
+ * robot attend la fin d'un actionneur, le pathfinding n'est donc pas utilisé.
+ * La fermeture de la fenêtre attend la fin du calcul spéculatif en cours, ce
+ * qui garantit que l'A* est libre quand le script reprend.
+ * Les recherches normales (préparation d'un trajet, replanification) prennent
+ * l'A* avec prend() : le calcul spéculatif en cours est abandonné et aucun
+ * autre ne peut commencer avant rend(). L'A* n'est donc jamais utilisé par
+ * deux recherches à la fois.
+ * 
+ * @author pf
+ *
+ */
+
+public class PFSpeculatif implements Service, HighPFClass
+{
+	private volatile boolean ouvert = false; // le robot attend-il un
+												// actionneur ?
+	private boolean enCours = false; // un calcul spéculatif est-il en cours ?
+	private volatile int nbRecherchesNormales = 0; // combien de recherches
+													// normales ont pris l'A* ?
+	private PFInstruction inst;
+
+	public PFSpeculatif(PFInstruction inst)
+	{
+		this.inst = inst;
+	}
+
+	/**
+	 * Le robot commence à attendre un actionneur
+	 */
+	public synchronized void ouvre()
+	{
+		ouvert = true;
+		notifyAll();
+	}
+
+	/**
+	 * L'actionneur a fini : on attend que le calcul spéculatif en cours
+	 * s'arrête
+	 * 
+	 * @throws InterruptedException
+	 */
+	public synchronized void ferme() throws InterruptedException
+	{
+		ouvert = false;
+		notifyAll();
+		while(enCours)
+			wait();
+	}
+
+	public boolean isOuvert()
+	{
+		return ouvert;
+	}
+
+	/**
+	 * Le calcul spéculatif en cours doit-il être abandonné ?
+	 * 
+	 * @return
+	 */
+	public boolean doitArreter()
+	{
+		return !ouvert || nbRecherchesNormales > 0;
+	}
+
+	/**
+	 * Une recherche normale prend l'A* : on attend l'abandon du calcul
+	 * spéculatif en cours, qui est rapide car il vérifie doitArreter() à chaque
+	 * itération. Cette attente n'est pas interruptible : l'interruption est
+	 * transmise ensuite.
+	 */
+	public synchronized void prend()
+	{
+		nbRecherchesNormales++;
+		boolean interrompu = false;
+		while(enCours)
+			try
+			{
+				wait();
+			}
+			catch(InterruptedException e)
+			{
+				interrompu = true;
+			}
+		if(interrompu)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Fin de la recherche normale
+	 */
+	public synchronized void rend()
+	{
+		nbRecherchesNormales--;
+		notifyAll();
+	}
+
+	/**
+	 * Attend l'ouverture de la fenêtre
+	 * 
+	 * @throws InterruptedException
+	 */
+	public synchronized void attendOuverture() throws InterruptedException
+	{
+		while(!ouvert)
+			wait();
+	}
+
+	/**
+	 * Attend la fermeture de la fenêtre
+	 * 
+	 * @throws InterruptedException
+	 */
+	public synchronized void attendFermeture() throws InterruptedException
+	{
+		while(ouvert)
+			wait();
+	}
+
+	/**
+	 * Essaye de commencer un calcul spéculatif
+	 * 
+	 * @return faux si la fenêtre est déjà fermée ou si une recherche normale
+	 * utilise l'A*
+	 */
+	public synchronized boolean commence()
+	{
+		/*
+		 * La requête est vérifiée sous le verrou : une recherche normale
+		 * passe de prend() à la requête, puis de la requête à prend(), sans
+		 * jamais laisser de trou où un calcul spéculatif pourrait démarrer
+		 */
+		if(doitArreter() || inst.hasRequest() || inst.isSearching())
+			return false;
+		enCours = true;
+		return true;
+	}
+
+	/**
+	 * Fin du calcul spéculatif
+	 */
+	public synchronized void termine()
+	{
+		enCours = false;
+		notifyAll();
+	}
+}
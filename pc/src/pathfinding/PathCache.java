@@ -22,9 +22,10 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import capteurs.CapteursProcess;
 import config.Config;
 import config.ConfigInfo;
@@ -36,11 +37,14 @@ import exceptions.UnableToMoveException;
 import obstacles.memory.ObstaclesIteratorPresent;
 import obstacles.types.ObstacleRobot;
 import pathfinding.astar.AStarCourbe;
+import pathfinding.astar.arcs.ClothoidesComputer;
 import pathfinding.chemin.CheminPathfinding;
 import pathfinding.chemin.FakeCheminPathfinding;
 import robot.Cinematique;
 import robot.CinematiqueObs;
+import robot.Robot;
 import robot.Speed;
+import scripts.ScriptNames;
 import serie.BufferOutgoingOrder;
 import serie.SerialProtocol.InOrder;
 import serie.SerialProtocol.State;
@@ -68,41 +72,60 @@ public class PathCache implements Service, HighPFClass
 	private RealGameState state;
 	private int dureePeremption;
 	private PFInstruction inst;
+	private PFSpeculatif speculatif;
 	private CapteursProcess capteurs;
 	private int nbEssais;
 	private boolean saveOnTheFly;
 	private boolean enableScan;
 	private boolean simuleSerie;
 	private double longueurAvantRobot;
+	private int margeAvantCollision;
+	private ChronoGameState chronoReparation;
 
 	/**
-	 * Les chemins précalculés.
+	 * Le début d'un chemin précalculé qui a dû être réparé. La recherche en
+	 * cours part de son dernier point.
 	 */
-	public HashMap<String, LinkedList<CinematiqueObs>> paths;
+	private LinkedList<CinematiqueObs> debutRepare = null;
 
-	public PathCache(Log log, Config config, ObstaclesIteratorPresent iteratorObstacles, BufferOutgoingOrder out, CapteursProcess capteurs, RealGameState state, ChronoGameState chrono, AStarCourbe astar, CheminPathfinding realChemin, FakeCheminPathfinding fakeChemin, PFInstruction inst) throws MemoryManagerException, InterruptedException
+	/**
+	 * Le dernier script vers lequel on s'est déplacé
+	 */
+	private volatile ScriptNames dernierScript = null;
+
+	/**
+	 * Les chemins précalculés. Le pathfinding spéculatif y ajoute ses chemins
+	 * depuis un autre thread.
+	 */
+	public Map<String, LinkedList<CinematiqueObs>> paths;
+
+	public PathCache(Log log, Config config, ObstaclesIteratorPresent iteratorObstacles, BufferOutgoingOrder out, CapteursProcess capteurs, RealGameState state, ChronoGameState chrono, AStarCourbe astar, CheminPathfinding realChemin, FakeCheminPathfinding fakeChemin, PFInstruction inst, PFSpeculatif speculatif) throws MemoryManagerException, InterruptedException
 	{
 		this.iteratorObstacles = iteratorObstacles;
 		this.capteurs = capteurs;
 		this.out = out;
 		this.state = state;
 		this.inst = inst;
+		this.speculatif = speculatif;
 		nbEssais = config.getInt(ConfigInfo.NB_ESSAIS_PF);
 		saveOnTheFly = config.getBoolean(ConfigInfo.SAVE_FOUND_PATH);
 		simuleSerie = config.getBoolean(ConfigInfo.SIMULE_SERIE);
 		dureePeremption = config.getInt(ConfigInfo.DUREE_PEREMPTION_OBSTACLES);
 		enableScan = config.getBoolean(ConfigInfo.ENABLE_SCAN);
 		longueurAvantRobot = config.getDouble(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT);
+		margeAvantCollision = (int) (config.getInt(ConfigInfo.PF_MARGE_AVANT_COLLISION) / ClothoidesComputer.PRECISION_TRACE_MM);
 		this.fakeChemin = fakeChemin;
 		this.realChemin = realChemin;
 		this.log = log;
 		Cinematique start = new Cinematique(550, 1905, -Math.PI / 2, true, 0);
 		chrono.robot.setCinematique(start);
+		chronoReparation = chrono;
 		this.astar = astar;
-		paths = new HashMap<String, LinkedList<CinematiqueObs>>();
+		paths = new ConcurrentHashMap<String, LinkedList<CinematiqueObs>>();
 		if(!new File("paths/").exists())
 			new File("paths/").mkdir();
-		if(config.getBoolean(ConfigInfo.ALLOW_PRECOMPUTED_PATH))
+		// pendant le précalcul, on n'a pas besoin des chemins déjà calculés
+		if(config.getBoolean(ConfigInfo.ALLOW_PRECOMPUTED_PATH) && !precompute)
 			loadAll();
 	}
 
@@ -114,11 +137,16 @@ public class PathCache implements Service, HighPFClass
 			FileOutputStream fichier;
 			ObjectOutputStream oos;
 
-			fichier = new FileOutputStream("paths/" + k.toString() + ".dat");
+			// on écrit dans un fichier temporaire afin qu'une interruption ne
+			// laisse pas de trajectoire tronquée
+			File tmp = new File("paths/" + k.toString() + ".tmp");
+			fichier = new FileOutputStream(tmp);
 			oos = new ObjectOutputStream(fichier);
 			oos.writeObject(path);
 			oos.flush();
 			oos.close();
+			if(!tmp.renameTo(new File("paths/" + k.toString() + ".dat")))
+				log.critical("Impossible de renommer " + tmp);
 			// log.debug("Sauvegarde terminée");
 		}
 		catch(IOException e)
@@ -129,6 +157,10 @@ public class PathCache implements Service, HighPFClass
 
 	/**
 	 * Prépare un chemin
+	 * Un chemin précalculé est vérifié avec les obstacles de proximité actuels.
+	 * S'il est dégagé, il est réutilisé tel quel. Sinon, on conserve son début
+	 * jusqu'à un peu avant la première collision et on ne recherche que la
+	 * suite.
 	 * 
 	 * @param cinematiqueInitiale
 	 * @param s
@@ -137,37 +169,85 @@ public class PathCache implements Service, HighPFClass
 	 * @throws InterruptedException
 	 */
 	public void prepareNewPath(KeyPathCache k) throws PathfindingException, MemoryManagerException
+	{
+		// l'A* est partagé avec le pathfinding spéculatif
+		speculatif.prend();
+		try
+		{
+			prepareNewPathExclusif(k);
+		}
+		finally
+		{
+			speculatif.rend();
+		}
+	}
+
+	private void prepareNewPathExclusif(KeyPathCache k) throws PathfindingException, MemoryManagerException
 	{
 		log.debug("Recherche de chemin pour " + k + " (" + paths.size() + " chemins mémorisés)");
 
-		// On ne réutilise le chemin que s'il n'y a pas d'ennemis
-		iteratorObstacles.reinit();
-		LinkedList<CinematiqueObs> path = null;
-		if(!iteratorObstacles.hasNext());
-			path = paths.get(k.toString()+".dat");
+		debutRepare = null;
+		LinkedList<CinematiqueObs> path = paths.get(k.toString() + ".dat");
+
+		if(path == null)
+		{
+			initializeSearch(k, k.chrono);
+			inst.searchRequest();
+			return;
+		}
+
+		int collision = CheminPathfinding.getFirstCollision(path, iteratorObstacles);
 
+		if(collision == -1)
+		{
+			log.debug("Utilisation d'un trajet précalculé !");
+			initializeSearch(k, k.chrono);
+			inst.setDone();
+			// on donne une copie car le chemin réel modifie la liste reçue
+			fakeChemin.addToEnd(new LinkedList<CinematiqueObs>(path));
+		}
+		else if(collision - margeAvantCollision > 0)
+		{
+			log.debug("Trajet précalculé obstrué au point " + collision + " : réparation à partir du point " + (collision - margeAvantCollision - 1));
+			debutRepare = new LinkedList<CinematiqueObs>(path.subList(0, collision - margeAvantCollision));
+			k.chrono.copyAStarCourbe(chronoReparation);
+			chronoReparation.robot.setCinematique(debutRepare.getLast());
+			initializeSearch(k, chronoReparation);
+			inst.searchRequest();
+		}
+		else
+		{
+			log.debug("Trajet précalculé obstrué dès le départ (point " + collision + ") : recherche complète");
+			initializeSearch(k, k.chrono);
+			inst.searchRequest();
+		}
+	}
+
+	/**
+	 * Initialise l'A* pour la clé demandée, à partir de l'état fourni.
+	 * L'appelant doit avoir pris l'A* (speculatif.prend()) jusqu'à ce que la
+	 * requête soit transmise au thread de préparation.
+	 * 
+	 * @param k
+	 * @param etat
+	 * @throws PathfindingException
+	 * @throws MemoryManagerException
+	 */
+	private void initializeSearch(KeyPathCache k, GameState<? extends Robot> etat) throws PathfindingException, MemoryManagerException
+	{
 		if(k.s != null)
 		{
 			Cinematique arrivee = k.s.s.getPointEntree();
 			if(arrivee != null)
-				astar.initializeNewSearch(arrivee, k.shoot, k.chrono);
+				astar.initializeNewSearch(arrivee, k.shoot, etat);
 			else
 			{
 				k.s.s.setUpCercleArrivee();
-				astar.initializeNewSearchToCircle(k.shoot, k.chrono);
+				astar.initializeNewSearchToCircle(k.shoot, etat);
 			}
 		}
 		else
-			astar.initializeNewSearch(k.arrivee, k.shoot, k.chrono);
-
-		if(path == null)
-			inst.searchRequest();
-		else
-		{
-			log.debug("Utilisation d'un trajet précalculé !");
-			inst.setDone();
-			fakeChemin.addToEnd(path);
-		}
+			astar.initializeNewSearch(k.arrivee, k.shoot, etat);
 	}
 
 	/**
@@ -193,7 +273,8 @@ public class PathCache implements Service, HighPFClass
 		File f = new File("./paths/");
 		List<String> names = new ArrayList<String>(Arrays.asList(f.list()));
 		for(String s : names)
-			loadPath("./paths/",s);
+			if(s.endsWith(".dat"))
+				loadPath("./paths/",s);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -222,6 +303,75 @@ public class PathCache implements Service, HighPFClass
 		}
 	}
 
+	/**
+	 * Un chemin est-il déjà connu pour cette clé ?
+	 * 
+	 * @param k
+	 * @return
+	 */
+	public boolean contains(KeyPathCache k)
+	{
+		return paths.containsKey(k.toString() + ".dat");
+	}
+
+	/**
+	 * Ajoute un chemin calculé par le pathfinding spéculatif. Il n'est gardé
+	 * qu'en mémoire : il sera vérifié avec les obstacles au moment de
+	 * l'utiliser, comme n'importe quel chemin précalculé.
+	 * 
+	 * @param k
+	 * @param path
+	 */
+	public void addSpeculativePath(KeyPathCache k, LinkedList<CinematiqueObs> path)
+	{
+		log.debug("Trajet spéculatif mémorisé : " + k, Verbose.PF.masque);
+		paths.put(k.toString() + ".dat", path);
+	}
+
+	/**
+	 * Le dernier script vers lequel le robot s'est déplacé (null s'il n'y en
+	 * a pas encore)
+	 * 
+	 * @return
+	 */
+	public ScriptNames getDernierScript()
+	{
+		return dernierScript;
+	}
+
+	/**
+	 * Calcule un chemin sur le thread appelant et le sauvegarde aussitôt.
+	 * Utilisé par le précalcul hors-ligne.
+	 * 
+	 * @param k
+	 * @return vrai si un chemin a été trouvé
+	 * @throws MemoryManagerException
+	 */
+	public boolean computeAndSave(KeyPathCache k) throws MemoryManagerException
+	{
+		try
+		{
+			speculatif.prend();
+			try
+			{
+				initializeSearch(k, k.chrono);
+				fakeChemin.clear();
+				astar.process(fakeChemin, false);
+			}
+			finally
+			{
+				speculatif.rend();
+			}
+			savePath(k, fakeChemin.getPath());
+			return true;
+		}
+		catch(PathfindingException e)
+		{
+			log.warning("Pas de chemin pour " + k + " : " + e);
+			return false;
+		}
+	}
+
 	public void computeAndFollow(KeyPathCache c, Speed s) throws PathfindingException, InterruptedException, UnableToMoveException, MemoryManagerException
 	{
 		prepareNewPath(c);
@@ -258,25 +408,32 @@ public class PathCache implements Service, HighPFClass
 																						// pas
 																						// fini
 						{
-							if(k.s != null)
+							debutRepare = null;
+							speculatif.prend();
+							try
 							{
-								Cinematique arrivee = k.s.s.getPointEntree();
-								if(arrivee != null)
-									astar.initializeNewSearch(arrivee, k.shoot, k.chrono);
-								else
-								{
-									k.s.s.setUpCercleArrivee();
-									astar.initializeNewSearchToCircle(k.shoot, k.chrono);
-								}
+								initializeSearch(k, k.chrono);
+								inst.searchRequest();
+							}
+							finally
+							{
+								speculatif.rend();
 							}
-							else
-								astar.initializeNewSearch(k.arrivee, k.shoot, k.chrono);
-							inst.searchRequest();
 						}
 					}
 					waitPathfinding();
 					LinkedList<CinematiqueObs> path = fakeChemin.getPath();
 
+					// on recolle le début conservé du chemin précalculé
+					if(debutRepare != null)
+					{
+						LinkedList<CinematiqueObs> debut = debutRepare;
+						debutRepare = null;
+						if(debut.size() + path.size() > 255)
+							throw new PathfindingException("Overflow du trajet réparé !");
+						path.addAll(0, debut);
+					}
+
 					if(saveOnTheFly && !paths.containsKey(k.toString()+".dat"))
 					{
 						iteratorObstacles.reinit();	
@@ -293,6 +450,8 @@ public class PathCache implements Service, HighPFClass
 						state.robot.setCinematique(realChemin.getLastCinematique());
 					if(!astar.isArrivedAsser())
 						throw new UnableToMoveException("On est arrivé bien trop loin de là où on devait !");
+					if(k.s != null)
+						dernierScript = k.s;
 				}
 				catch(PathfindingException | UnableToMoveException e)
 				{
@@ -79,6 +79,14 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 	private boolean suppObsFixes;
 	private volatile boolean rechercheEnCours = false;
 
+	// suivi du délai de replanification
+	private int anticipationReplanif;
+	// nœud atteignable le plus proche de l'arrivée (plus petite heuristique)
+	// parmi ceux déjà développés
+	private AStarCourbeNode meilleurAtteignable;
+	private boolean delaiRespecte;
+	private volatile int nbReplanifs = 0, nbDelaisDepasses = 0;
+
 	/**
 	 * Comparateur de noeud utilisé par la priority queue
 	 * 
@@ -132,6 +140,7 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 		int demieLongueurAvant = config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT);
 		int marge = config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT);
 		suppObsFixes = config.getBoolean(ConfigInfo.SUPPRESSION_AUTO_OBSTACLES_FIXES);
+		anticipationReplanif = config.getInt(ConfigInfo.PF_ANTICIPATION_REPLANIF);
 		this.depart = new AStarCourbeNode(chrono, demieLargeurNonDeploye, demieLongueurArriere, demieLongueurAvant, marge);
 		depart.setIndiceMemoryManager(-1);
 	}
@@ -152,6 +161,8 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 		depart.parent = null;
 		depart.cameFromArcDynamique = null;
 		depart.g_score = 0;
+		meilleurAtteignable = null;
+		arcmanager.setDateDepart(depart.state.robot.getTempsDepuisDebutMatch());
 
 		Double heuristique = arcmanager.heuristicCostCourbe((depart.state.robot).getCinematique());
 
@@ -177,6 +188,20 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 		{
 			current = openset.poll();
 
+			/**
+			 * Vérifié à chaque itération, avant tout calcul : une recherche
+			 * annulée (par exemple le calcul spéculatif quand le robot reprend
+			 * la main) s'arrête aussitôt
+			 */
+			if(!rechercheEnCours || chemin.isObsolete())
+			{
+				chemin.setUptodate();
+				memorymanager.empty();
+				cinemMemory.empty();
+				log.warning("La recherche de chemin a été annulée");
+				return;
+			}
+
 			/**
 			 * needStop ne concerne que la replanif
 			 */
@@ -188,9 +213,20 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 			Cinematique cinemRestart = chemin.getLastValidCinematique();
 			boolean assezDeMarge = chemin.aAssezDeMarge();
 
-			if(cinemRestart != null || !assezDeMarge)
+			// Le robot atteindra bientôt la marge nécessaire : on envoie le
+			// meilleur chemin partiel déjà vérifié plutôt que de le laisser
+			// s'arrêter. Le robot est peut-être encore à la vitesse standard.
+			boolean delaiEcoule = replanif && cinemRestart == null && assezDeMarge && meilleurAtteignable != null && realChemin.getDelaiAvantArret(Speed.STANDARD) < anticipationReplanif;
+
+			if(cinemRestart != null || !assezDeMarge || delaiEcoule)
 			{
-				if(!assezDeMarge)
+				if(delaiEcoule)
+				{
+					log.warning("Délai de replanification presque écoulé : envoi d'un chemin partiel", Verbose.REPLANIF.masque);
+					delaiRespecte = false;
+					depart.state.robot.setCinematique(partialReconstruct(meilleurAtteignable, chemin, 2));
+				}
+				else if(!assezDeMarge)
 				{
 					log.debug("Reconstruction partielle demandée !");
 					depart.state.robot.setCinematique(partialReconstruct(current, chemin, 2));
@@ -213,6 +249,7 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 				}
 
 				trajetDeSecours = null;
+				meilleurAtteignable = null;
 				depart.parent = null;
 				depart.cameFromArcDynamique = null;
 				depart.g_score = 0;
@@ -262,6 +299,11 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 				continue; // collision mécanique attendue. On passe au suivant !
 			}
 
+			// on garde le nœud vérifié le plus proche de l'arrivée, d'où
+			// partira un éventuel chemin partiel
+			if(current != depart && (meilleurAtteignable == null || current.f_score - current.g_score < meilleurAtteignable.f_score - meilleurAtteignable.g_score))
+				meilleurAtteignable = current;
+
 			// affichage
 			if(graphicTrajectory && !graphicTrajectoryAll)
 				buffer.addSupprimable(current);
@@ -280,13 +322,6 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 
 			long elapsed = System.currentTimeMillis() - debutRecherche;
 
-			if(!rechercheEnCours)
-			{
-				chemin.setUptodate();
-				log.warning("La recherche de chemin a été annulée");
-				return;
-			}
-
 			if(!replanif && elapsed > dureeMaxPF) // étant donné
 																// qu'il peut
 																// continuer
@@ -425,7 +460,8 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 		while(!pileTmp.isEmpty() && profondeurMax > 0)
 		{
 			ArcCourbe a = pileTmp.pop();
-			log.debug(a.vitesse + " (" + a.getNbPoints() + " pts)", Verbose.PF.masque);
+			if(log.shouldLog(Verbose.PF.masque))
+				log.debug(a.vitesse + " (" + a.getNbPoints() + " pts)", Verbose.PF.masque);
 			for(int i = 0; i < a.getNbPoints(); i++)
 				trajectory.add(a.getPoint(i));
 			if(trajectory.size() > 255)
@@ -558,7 +594,46 @@ public class AStarCourbe implements Service, HighPFClass, DynamicConfigurable
 			dstarlite.itineraireBrut();
 
 		vitesseMax = Speed.REPLANIF;
-		process(realChemin, true);
+		log.debug("Budget de la replanification : " + realChemin.getDelaiAvantArret(Speed.STANDARD) + " ms", Verbose.REPLANIF.masque);
+		long avant = System.currentTimeMillis();
+		delaiRespecte = true;
+		try
+		{
+			process(realChemin, true);
+		}
+		catch(PathfindingException e)
+		{
+			delaiRespecte = false;
+			throw e;
+		}
+		finally
+		{
+			nbReplanifs++;
+			if(!delaiRespecte)
+				nbDelaisDepasses++;
+			log.debug("Replanification terminée en " + (System.currentTimeMillis() - avant) + " ms. Délai respecté : " + delaiRespecte + " (" + nbDelaisDepasses + " dépassements sur " + nbReplanifs + " replanifications)", Verbose.REPLANIF.masque);
+		}
+	}
+
+	/**
+	 * Nombre de replanifications effectuées
+	 * 
+	 * @return
+	 */
+	public int getNbReplanifs()
+	{
+		return nbReplanifs;
+	}
+
+	/**
+	 * Nombre de replanifications qui n'ont pas fini à temps (chemin partiel
+	 * envoyé ou arrêt du robot)
+	 * 
+	 * @return
+	 */
+	public int getNbDelaisDepasses()
+	{
+		return nbDelaisDepasses;
 	}
 	
 	public boolean isArrivedAsser()
@@ -40,8 +40,11 @@ import exceptions.MemoryManagerException;
 import graphic.PrintBufferInterface;
 import obstacles.memory.ObstaclesIteratorPresent;
 import obstacles.types.ObstacleArcCourbe;
+import obstacles.types.ObstacleProximity;
+import obstacles.types.ObstacleRectangular;
 import obstacles.types.ObstaclesFixes;
 import utils.Log;
+import utils.Vec2RW;
 
 /**
  * Réalise des calculs pour l'A* courbe.
@@ -72,6 +75,10 @@ public class ArcManager implements Service, HighPFClass
 	private ListIterator<VitesseCourbure> iterator = listeVitesse.listIterator();
 	private List<ObstaclesFixes> disabledObstaclesFixes = new ArrayList<ObstaclesFixes>();
 
+	// permet de convertir la date d'un nœud en date réelle, pour prévoir la
+	// position des ennemis
+	private long dateDepartChrono, dateDepartReelle;
+
 	public ArcManager(Log log, ClothoidesComputer clotho, RealTable table, PrintBufferInterface buffer, DStarLite dstarlite, BezierComputer bezier, CercleArrivee cercle, Config config, ObstaclesIteratorPresent obstaclesProxIterator)
 	{
 		this.obstaclesProxIterator = obstaclesProxIterator;
@@ -97,6 +104,21 @@ public class ArcManager implements Service, HighPFClass
 	}
 
 	private ObstacleArcCourbe obs = new ObstacleArcCourbe();
+	private double[] boiteArc = new double[4];
+	// position prévue d'un obstacle mobile, propre à ce thread
+	private Vec2RW centrePredit = new Vec2RW();
+
+	/**
+	 * Indique la date du nœud de départ de la recherche. Les dates des nœuds
+	 * suivants sont comptées à partir de maintenant.
+	 * 
+	 * @param dateChrono
+	 */
+	public void setDateDepart(long dateChrono)
+	{
+		dateDepartChrono = dateChrono;
+		dateDepartReelle = System.currentTimeMillis();
+	}
 
 	/**
 	 * Retourne faux si un obstacle est sur la route
@@ -116,8 +138,19 @@ public class ArcManager implements Service, HighPFClass
 		 * calculs
 		 */
 		obs.ombresRobot.clear();
+		boiteArc[0] = boiteArc[2] = Double.MAX_VALUE;
+		boiteArc[1] = boiteArc[3] = -Double.MAX_VALUE;
 		for(int i = 0; i < node.getArc().getNbPoints(); i++)
-			obs.ombresRobot.add(node.getArc().getPoint(i).obstacle);
+		{
+			ObstacleRectangular r = node.getArc().getPoint(i).obstacle;
+			obs.ombresRobot.add(r);
+			// boîte englobante (conservative) de l'arc
+			double d = r.getDemieDiagonale();
+			boiteArc[0] = Math.min(boiteArc[0], r.getCentreGeometrique().getX() - d);
+			boiteArc[1] = Math.max(boiteArc[1], r.getCentreGeometrique().getX() + d);
+			boiteArc[2] = Math.min(boiteArc[2], r.getCentreGeometrique().getY() - d);
+			boiteArc[3] = Math.max(boiteArc[3], r.getCentreGeometrique().getY() + d);
+		}
 
 		if(printObs)
 			buffer.addSupprimable(obs);
@@ -130,16 +163,22 @@ public class ArcManager implements Service, HighPFClass
 				return false;
 			}
 
-		// Collision avec un obstacle de proximité ?
+		// Collision avec un obstacle de proximité, à l'endroit où il sera
+		// quand on parcourra cet arc ?
+		long date = dateDepartReelle + node.state.robot.getTempsDepuisDebutMatch() - dateDepartChrono;
 
 		try {
 		obstaclesProxIterator.reinit();
 		while(obstaclesProxIterator.hasNext())
-			if(obstaclesProxIterator.next().isColliding(obs))
+		{
+			// la boîte de l'arc élimine d'abord les obstacles éloignés
+			ObstacleProximity o = obstaclesProxIterator.next();
+			if(o.peutToucher(boiteArc, date, centrePredit) && o.isColliding(obs, date, centrePredit))
 			{
 				// log.debug("Collision avec un obstacle de proximité.");
 				return false;
 			}
+		}
 		} catch(NullPointerException e)
 		{
 			log.critical(e);
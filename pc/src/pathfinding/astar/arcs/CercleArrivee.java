@@ -57,6 +57,12 @@ public class CercleArrivee implements Service, Printable, HighPFClass, LowPFClas
 	protected Log log;
 	private PrintBufferInterface buffer;
 
+	// sauvegarde du cercle, utilisée par le pathfinding spéculatif
+	private Vec2RO positionSauv, arriveeDStarLiteSauv;
+	private double rayonSauv, distanceMaxSauv, distanceMinSauv, angleMaxSauv, angleMinSauv;
+	private SensFinal sensSauv;
+	private Double[] anglesAttaquePossiblesSauv;
+
 	public CercleArrivee(Log log, PrintBufferInterface buffer, Config config)
 	{
 		this.log = log;
@@ -93,6 +99,39 @@ public class CercleArrivee implements Service, Printable, HighPFClass, LowPFClas
 		set(element.obstacle.getPosition(), element.orientationArriveeDStarLite, rayon, SensFinal.MARCHE_ARRIERE, null, distanceMax, distanceMin, angleMax, angleMin);
 	}
 
+	/**
+	 * Sauvegarde le cercle actuel. Permet à un autre thread d'utiliser
+	 * temporairement le cercle sans perturber le script en cours.
+	 */
+	public synchronized void sauvegarde()
+	{
+		positionSauv = position;
+		arriveeDStarLiteSauv = arriveeDStarLite;
+		rayonSauv = rayon;
+		sensSauv = sens;
+		anglesAttaquePossiblesSauv = anglesAttaquePossibles;
+		distanceMaxSauv = distanceMax;
+		distanceMinSauv = distanceMin;
+		angleMaxSauv = angleMax;
+		angleMinSauv = angleMin;
+	}
+
+	/**
+	 * Restaure le cercle précédemment sauvegardé
+	 */
+	public synchronized void restaure()
+	{
+		position = positionSauv;
+		arriveeDStarLite = arriveeDStarLiteSauv;
+		rayon = rayonSauv;
+		sens = sensSauv;
+		anglesAttaquePossibles = anglesAttaquePossiblesSauv;
+		distanceMax = distanceMaxSauv;
+		distanceMin = distanceMinSauv;
+		angleMax = angleMaxSauv;
+		angleMin = angleMinSauv;
+	}
+
 	private Vec2RW tmp = new Vec2RW();
 
 	public boolean isArrivedAsser(Cinematique robot)
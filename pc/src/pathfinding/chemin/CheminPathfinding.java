@@ -15,21 +15,23 @@
 package pathfinding.chemin;
 
 import java.util.LinkedList;
+import java.util.List;
 import obstacles.memory.ObstaclesIteratorPresent;
 import obstacles.types.ObstacleCircular;
 import obstacles.types.ObstacleProximity;
-import obstacles.types.ObstacleRobot;
 import pathfinding.astar.arcs.ClothoidesComputer;
 import graphic.PrintBufferInterface;
 import graphic.printable.Couleur;
 import graphic.printable.Segment;
 import robot.Cinematique;
 import robot.CinematiqueObs;
+import robot.Speed;
 import serie.BufferOutgoingOrder;
 import serie.Ticket;
 import utils.Log;
 import utils.Log.Verbose;
 import utils.Vec2RO;
+import utils.Vec2RW;
 import config.Config;
 import config.ConfigInfo;
 import container.Service;
@@ -40,6 +42,13 @@ import exceptions.PathfindingException;
  * S'occupe de la trajectoire actuelle.
  * Notifie dès qu'un chemin (partiel ou complet) est disponible
  * 
+ * La trajectoire est un buffer circulaire. Son début (indexFirst) n'est écrit
+ * que par le thread série qui reçoit la position du bas niveau, sans prendre
+ * de verrou : la mise à jour de la position n'attend jamais une vérification
+ * de collision ou un ajout de points. Sa fin (indexLast) et son contenu ne
+ * sont modifiés que par les méthodes synchronisées. Les lecteurs travaillent
+ * sur une copie locale de ces indices.
+ * 
  * @author pf
  *
  */
@@ -49,15 +58,19 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	protected Log log;
 	private BufferOutgoingOrder out;
 	private ObstaclesIteratorPresent iterObstacles;
-	private IteratorCheminPathfinding iterChemin;
 	private IteratorCheminPathfinding iterCheminPrint;
 	private PrintBufferInterface buffer;
 	private LinkedList<Ticket> tickets = new LinkedList<Ticket>();
+	private GrilleCheminPathfinding grille = new GrilleCheminPathfinding();
+	private double[] boite = new double[4];
+	private long[] candidats = new long[4];
+	private Vec2RW centrePredit = new Vec2RW();
 
 	private volatile CinematiqueObs[] chemin = new CinematiqueObs[256];
 	private volatile ObstacleCircular[] aff = new ObstacleCircular[256];
 	private volatile Segment[] affSeg = new Segment[256];
-	protected volatile int indexFirst = 0; // indice du point en cours
+	protected volatile int indexFirst = 0; // indice du point en cours (écrit
+											// par le thread série uniquement)
 	protected volatile int indexLast = 0; // indice du prochain point de la
 											// trajectoire (donc indexLast - 1
 											// est l'index du dernier point
@@ -74,7 +87,6 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 		this.log = log;
 		this.out = out;
 		this.iterObstacles = iterator;
-		iterChemin = new IteratorCheminPathfinding(this);
 		iterCheminPrint = new IteratorCheminPathfinding(this);
 		this.buffer = buffer;
 
@@ -106,15 +118,16 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	@Override
 	public boolean needStop()
 	{
-		return empty || minus(indexLast, indexFirst) < margeNecessaire;
+		return empty || getNbPoints() < margeNecessaire;
 	}
 	
 	@Override
 	public boolean aAssezDeMarge()
 	{
-		boolean out = uptodate || minus(indexLast, indexFirst) >= margePreferable;
+		int nbPoints = getNbPoints();
+		boolean out = uptodate || nbPoints >= margePreferable;
 		if(!out)
-			log.warning("Replanification partielle nécessaire : " + minus(indexLast, indexFirst) + " points d'avance seulement.", Verbose.REPLANIF.masque);
+			log.warning("Replanification partielle nécessaire : " + nbPoints + " points d'avance seulement.", Verbose.REPLANIF.masque);
 		return out;
 	}
 
@@ -139,75 +152,169 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	 */
 	private synchronized boolean isColliding(boolean all)
 	{
-		iterChemin.reinit();
-		boolean assezDeMargeDepuisDepart = false;
-		int nbMarge = 0;
-		int firstPossible = add(indexFirst, margeInitiale); // le premier point
-															// qu'on pourrait
-															// accepter
+		// le robot peut avancer pendant la vérification
+		int first = indexFirst;
+		int current = getFirstCollidingIndex(all, first);
+		if(current == -1)
+			return false;
+
+		log.debug("Collision en " + current + ". Actuel : " + first + " (soit environ " + ClothoidesComputer.PRECISION_TRACE_MM * (minus(current, first) - 0.5) + " mm avant impact)", Verbose.REPLANIF.masque);
+
+		// on peut replanifier si les points jusqu'à first + margeInitiale
+		// sont dégagés. nbMarge est le nombre de points dégagés après
+		// celui-ci.
+		int nbMarge = minus(current, first) - margeInitiale - 1;
+
+		// si le robot a dépassé le point où on couperait la trajectoire, il
+		// n'y a plus assez de marge
+		if(nbMarge >= 0 && minus(indexFirst, first) >= minus(current, first) - Math.min(nbMarge, margeAvantCollision) - 1)
+			nbMarge = -1;
+
+		// on n'a pas assez de marge !
+		if(nbMarge < 0)
+		{
+			log.warning("Pas assez de marge !", Verbose.REPLANIF.masque);
+			indexLast = indexFirst;
+			empty = true;
+		}
+		else
+		{
+			log.warning("Replanification nécessaire", Verbose.REPLANIF.masque);
+			// on a assez de marge, on va faire de la
+			// replanification à la volée
+			indexLast = minus(current, Math.min(nbMarge, margeAvantCollision));
+			out.makeNextObsolete(chemin[minus(indexLast, 1)], minus(indexLast, 1));
+			log.debug("On raccourcit la trajectoire. IndexLast = " + indexLast, Verbose.REPLANIF.masque);
+			needRestart = true;
+		}
+		return true;
+	}
 
+	/**
+	 * Renvoie l'indice du premier point de la trajectoire en collision avec un
+	 * obstacle de proximité, ou -1 s'il n'y en a pas.
+	 * Si "all" est faux, on ne vérifie que les obstacles apparus depuis le
+	 * dernier appel. Chaque obstacle n'est testé qu'avec les points proches de
+	 * lui grâce à la grille, et seulement avec ceux qui sont avant la première
+	 * collision déjà trouvée. Un obstacle mobile est testé à la position où il
+	 * sera quand le robot passera sur chaque point.
+	 * 
+	 * @param all
+	 * @param first
+	 * @return
+	 */
+	private int getFirstCollidingIndex(boolean all, int first)
+	{
 		if(all)
 			iterObstacles.reinit();
-		iterObstacles.save();
-		while(iterChemin.hasNext())
+
+		int nbPoints = minus(indexLast, first);
+		int premier = nbPoints; // indice relatif à indexFirst
+		// date approximative de passage au point k : maintenant + k * dureePoint
+		long maintenant = System.currentTimeMillis();
+		double dureePoint = Speed.STANDARD.translationalSpeed > 0 ? ClothoidesComputer.PRECISION_TRACE_MM / Speed.STANDARD.translationalSpeed : 0;
+		while(iterObstacles.hasNext())
 		{
-			CinematiqueObs cinem = iterChemin.next();
-			int current = iterChemin.getIndex();
-			ObstacleRobot a = cinem.obstacle;
-			iterObstacles.load();
-			while(iterObstacles.hasNext())
+			ObstacleProximity o;
+			try {
+				o = iterObstacles.next();
+			} catch(NullPointerException e) {
+				e.printStackTrace();
+				e.printStackTrace(log.getPrintWriter());
+				break;
+			}
+			// on va jusqu'au bout de l'itérateur même si on ne peut plus
+			// trouver de collision plus proche
+			if(premier == 0)
+				continue;
+			// un obstacle mobile peut toucher des points loin de sa position
+			// mesurée : on cherche les candidats avec la boîte qu'il balaye
+			// jusqu'au passage du robot au dernier point testé
+			boolean mobile = o.isMobile();
+			if(mobile)
 			{
-				ObstacleProximity o;
-				try {
-					o = iterObstacles.next();
-				} catch(NullPointerException e) {
-					e.printStackTrace();
-					e.printStackTrace(log.getPrintWriter());
-					break;
-				}
-				if(o.isColliding(a))
+				o.getBoiteBalayee(maintenant, maintenant + (long) (premier * dureePoint), boite, centrePredit);
+				grille.getCandidats(boite, candidats);
+			}
+			else
+				grille.getCandidats(o, candidats);
+			for(int k = 0; k < premier; k++)
+			{
+				int i = add(first, k);
+				if(GrilleCheminPathfinding.contient(candidats, i) && (mobile ? o.isColliding(chemin[i].obstacle, maintenant + (long) (k * dureePoint), centrePredit) : o.isColliding(chemin[i].obstacle)))
 				{
-					log.debug("Collision en " + current + ". Actuel : " + indexFirst + " (soit environ " + ClothoidesComputer.PRECISION_TRACE_MM * (minus(current, indexFirst) - 0.5) + " mm avant impact)", Verbose.REPLANIF.masque);
-
-					// on n'a pas assez de marge !
-					if(!assezDeMargeDepuisDepart)
-					{
-						log.warning("Pas assez de marge !", Verbose.REPLANIF.masque);
-						indexLast = indexFirst;
-						empty = true;
-					}
-					else
-					{
-						log.warning("Replanification nécessaire", Verbose.REPLANIF.masque);
-						// on a assez de marge, on va faire de la
-						// replanification à la volée
-						indexLast = minus(current, Math.min(nbMarge, margeAvantCollision));
-						out.makeNextObsolete(chemin[minus(indexLast, 1)], minus(indexLast, 1));
-						log.debug("On raccourcit la trajectoire. IndexLast = " + indexLast, Verbose.REPLANIF.masque);
-						needRestart = true;
-					}
-					// on va jusqu'au bout de l'itérateur
-					while(iterObstacles.hasNext())
-						iterObstacles.next();
-					return true;
+					premier = k;
+					break;
 				}
 			}
+		}
+		if(premier == nbPoints)
+			return -1;
+		return add(first, premier);
+	}
 
-			// on a pu aller jusqu'à firstPossible sans rencontrer d'obstacle :
-			// on peut replanifier
-			if(assezDeMargeDepuisDepart)
-				nbMarge++;
+	/**
+	 * Renvoie l'indice du premier point de la trajectoire qui collisionne un
+	 * obstacle de proximité, ou -1 s'il n'y en a aucun.
+	 * Le test de collision est le même que celui de isColliding : on ne
+	 * vérifie que les obstacles de proximité.
+	 * 
+	 * @param points
+	 * @param iterObstacles
+	 * @return
+	 */
+	public static int getFirstCollision(List<CinematiqueObs> points, ObstaclesIteratorPresent iterObstacles)
+	{
+		iterObstacles.reinit();
+		if(!iterObstacles.hasNext()) // aucun obstacle : pas besoin de parcourir
+										// la trajectoire
+			return -1;
 
-			if(current == firstPossible)
-				assezDeMargeDepuisDepart = true;
+		iterObstacles.save();
+		int index = 0;
+		for(CinematiqueObs cinem : points)
+		{
+			iterObstacles.load();
+			while(iterObstacles.hasNext())
+				if(iterObstacles.next().isColliding(cinem.obstacle))
+					return index;
+			index++;
 		}
-		return false;
+		return -1;
 	}
 
-	public synchronized boolean isArrived()
+	public boolean isArrived()
 	{
 		log.debug("Test isArrived : " + uptodate + " " + indexFirst + " " + indexLast, Verbose.REPLANIF.masque);
-		return uptodate && indexFirst == indexLast;
+		return uptodate && getNbPoints() == 0;
+	}
+
+	/**
+	 * Combien de temps (en ms) reste-t-il avant que le robot, à cette vitesse,
+	 * n'atteigne la marge nécessaire et doive s'arrêter ?
+	 * 
+	 * @param vitesse
+	 * @return
+	 */
+	public long getDelaiAvantArret(Speed vitesse)
+	{
+		int nbPoints = getNbPoints() - margeNecessaire;
+		if(nbPoints <= 0)
+			return 0;
+		return (long) (nbPoints * ClothoidesComputer.PRECISION_TRACE_MM / vitesse.translationalSpeed);
+	}
+
+	/**
+	 * Le nombre de points entre la position actuelle et la fin de la
+	 * trajectoire
+	 * 
+	 * @return
+	 */
+	private int getNbPoints()
+	{
+		if(empty)
+			return 0;
+		return minus(indexLast, indexFirst);
 	}
 
 	/**
@@ -215,7 +322,7 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	 * 
 	 * @return
 	 */
-	public synchronized boolean isEmpty()
+	public boolean isEmpty()
 	{
 		return empty;
 	}
@@ -223,6 +330,7 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	private void addToEnd(CinematiqueObs c)
 	{
 		c.copy(chemin[indexLast]);
+		grille.ajoute(indexLast, chemin[indexLast].obstacle);
 		indexLast = add(indexLast, 1);
 		empty = false;
 		// si on revient au début, c'est qu'il y a un problème ou que le buffer
@@ -248,8 +356,12 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	 * @param arc
 	 */
 	@Override
-	public void addToEnd(LinkedList<CinematiqueObs> points) throws PathfindingException
+	public synchronized void addToEnd(LinkedList<CinematiqueObs> points) throws PathfindingException
 	{
+		// le robot a pu avancer depuis que la trajectoire s'est vidée
+		if(empty)
+			indexLast = indexFirst;
+
 		/*
 		 * En cas de replanification, si les points ajoutés ne suffisent pas
 		 * pour avoir assurer la marge du bas niveau, on lance une exception
@@ -293,7 +405,8 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 
 	private boolean isIndexValid(int index)
 	{
-		return !empty && minus(index, indexFirst) < minus(indexLast, indexFirst);
+		int first = indexFirst;
+		return !empty && minus(index, first) < minus(indexLast, first);
 	}
 
 	protected CinematiqueObs get(int index)
@@ -306,7 +419,7 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	/**
 	 * Supprime complètement le trajet en cours
 	 */
-	public void clear()
+	public synchronized void clear()
 	{
 		/**
 		 * Parfois, le plus simple est de s'arrêter et de réfléchir sur sa vie
@@ -331,6 +444,12 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 
 	}
 
+	@Override
+	public boolean isObsolete()
+	{
+		return false;
+	}
+
 	public boolean isUptodate()
 	{
 		return uptodate;
@@ -347,11 +466,9 @@ public class CheminPathfinding implements Service, HighPFClass, CheminPathfindin
 	 * 
 	 * @param indexTrajectory
 	 */
-	public synchronized Cinematique setCurrentIndex(int indexTrajectory)
+	public Cinematique setCurrentIndex(int indexTrajectory)
 	{
 		indexFirst = indexTrajectory;
-		if(empty)
-			indexLast = indexFirst;
 		if(graphic)
 		{
 			if(affSeg[indexFirst] != null)
@@ -37,4 +37,12 @@ public interface CheminPathfindingInterface
 	public boolean needStop();
 
 	public Cinematique getLastValidCinematique();
+
+	/**
+	 * Renvoie vrai si la recherche en cours n'est plus utile et doit être
+	 * abandonnée
+	 * 
+	 * @return
+	 */
+	public boolean isObsolete();
 }
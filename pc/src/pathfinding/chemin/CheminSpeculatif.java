@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package pathfinding.chemin;
+
+import java.util.LinkedList;
+import config.Config;
+import config.ConfigInfo;
+import pathfinding.PFSpeculatif;
+import robot.Cinematique;
+import robot.CinematiqueObs;
+
+/**
+ * Chemin utilisé par le pathfinding spéculatif. La recherche est abandonnée
+ * dès que le robot a fini d'attendre son actionneur ou qu'une recherche
+ * normale a besoin de l'A*.
+ * 
+ * @author pf
+ *
+ */
+
+public class CheminSpeculatif implements CheminPathfindingInterface
+{
+	private PFSpeculatif speculatif;
+	private LinkedList<CinematiqueObs> path;
+	private int demieLargeurNonDeploye, demieLongueurArriere, demieLongueurAvant, marge;
+
+	public CheminSpeculatif(PFSpeculatif speculatif, Config config)
+	{
+		this.speculatif = speculatif;
+		demieLargeurNonDeploye = config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2;
+		demieLongueurArriere = config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE);
+		demieLongueurAvant = config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT);
+		marge = config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT);
+	}
+
+	@Override
+	public void addToEnd(LinkedList<CinematiqueObs> points)
+	{
+		// les points appartiennent au memory manager de l'A* : on les copie
+		path = new LinkedList<CinematiqueObs>();
+		for(CinematiqueObs c : points)
+		{
+			CinematiqueObs copie = new CinematiqueObs(demieLargeurNonDeploye, demieLongueurArriere, demieLongueurAvant, marge);
+			c.copy(copie);
+			path.add(copie);
+		}
+	}
+
+	@Override
+	public void setUptodate()
+	{}
+
+	@Override
+	public boolean aAssezDeMarge()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean needStop()
+	{
+		return false;
+	}
+
+	@Override
+	public Cinematique getLastValidCinematique()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean isObsolete()
+	{
+		return speculatif.doitArreter();
+	}
+
+	public LinkedList<CinematiqueObs> getPath()
+	{
+		LinkedList<CinematiqueObs> out = path;
+		path = null;
+		return out;
+	}
+
+	public void clear()
+	{
+		path = null;
+	}
+}
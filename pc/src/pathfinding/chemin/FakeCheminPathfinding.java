@@ -115,6 +115,12 @@ public class FakeCheminPathfinding implements Service, CheminPathfindingInterfac
 		return null;
 	}
 
+	@Override
+	public boolean isObsolete()
+	{
+		return false;
+	}
+
 	public void clear()
 	{
 		path = null;
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package pathfinding.chemin;
+
+import obstacles.types.ObstacleInterface;
+
+/**
+ * Grille spatiale des points de la trajectoire. Chaque case contient
+ * l'ensemble (sous forme de masque de 256 bits) des indices des points dont
+ * l'obstacle touche la case. Permet de ne tester un obstacle de proximité
+ * qu'avec les points qui sont proches de lui.
+ * Les boîtes englobantes utilisées sont conservatives : un point qui n'est pas
+ * candidat ne peut pas être en collision.
+ * 
+ * @author pf
+ *
+ */
+
+public class GrilleCheminPathfinding
+{
+	private static final int TAILLE_CASE = 150; // en mm
+	private static final int X_MIN = -1500;
+	private static final int NB_X = 3000 / TAILLE_CASE;
+	private static final int NB_Y = (2000 + TAILLE_CASE - 1) / TAILLE_CASE;
+
+	private long[][] cases = new long[NB_X * NB_Y][4];
+
+	// les cases occupées par chaque point (bornes incluses)
+	private int[] xMin = new int[256], xMax = new int[256], yMin = new int[256], yMax = new int[256];
+	private boolean[] inscrit = new boolean[256];
+
+	/**
+	 * Inscrit le point d'indice "index" dans la grille. S'il y avait déjà un
+	 * point à cet indice, il est d'abord retiré.
+	 * 
+	 * @param index
+	 * @param obs
+	 */
+	public void ajoute(int index, ObstacleInterface obs)
+	{
+		retire(index);
+		xMin[index] = getCaseX(obs.getLeftmostX());
+		xMax[index] = getCaseX(obs.getRightmostX());
+		yMin[index] = getCaseY(obs.getBottomY());
+		yMax[index] = getCaseY(obs.getTopY());
+		long bit = 1L << (index & 63);
+		int mot = index >> 6;
+		for(int x = xMin[index]; x <= xMax[index]; x++)
+			for(int y = yMin[index]; y <= yMax[index]; y++)
+				cases[x * NB_Y + y][mot] |= bit;
+		inscrit[index] = true;
+	}
+
+	/**
+	 * Retire le point d'indice "index" de la grille
+	 * 
+	 * @param index
+	 */
+	public void retire(int index)
+	{
+		if(!inscrit[index])
+			return;
+		long masque = ~(1L << (index & 63));
+		int mot = index >> 6;
+		for(int x = xMin[index]; x <= xMax[index]; x++)
+			for(int y = yMin[index]; y <= yMax[index]; y++)
+				cases[x * NB_Y + y][mot] &= masque;
+		inscrit[index] = false;
+	}
+
+	/**
+	 * Remplit "candidats" avec les indices des points qui peuvent être en
+	 * collision avec cet obstacle
+	 * 
+	 * @param obs
+	 * @param candidats un tableau de quatre longs
+	 */
+	public void getCandidats(ObstacleInterface obs, long[] candidats)
+	{
+		getCandidats(obs.getLeftmostX(), obs.getRightmostX(), obs.getBottomY(), obs.getTopY(), candidats);
+	}
+
+	/**
+	 * Remplit "candidats" avec les indices des points qui peuvent toucher
+	 * cette boîte
+	 * 
+	 * @param boite xMin, xMax, yMin, yMax
+	 * @param candidats un tableau de quatre longs
+	 */
+	public void getCandidats(double[] boite, long[] candidats)
+	{
+		getCandidats(boite[0], boite[1], boite[2], boite[3], candidats);
+	}
+
+	private void getCandidats(double xGauche, double xDroite, double yBas, double yHaut, long[] candidats)
+	{
+		candidats[0] = candidats[1] = candidats[2] = candidats[3] = 0;
+		int x1 = getCaseX(xGauche), x2 = getCaseX(xDroite);
+		int y1 = getCaseY(yBas), y2 = getCaseY(yHaut);
+		for(int x = x1; x <= x2; x++)
+			for(int y = y1; y <= y2; y++)
+			{
+				long[] c = cases[x * NB_Y + y];
+				candidats[0] |= c[0];
+				candidats[1] |= c[1];
+				candidats[2] |= c[2];
+				candidats[3] |= c[3];
+			}
+	}
+
+	/**
+	 * L'indice "index" est-il dans l'ensemble "candidats" ?
+	 * 
+	 * @param candidats
+	 * @param index
+	 * @return
+	 */
+	public static boolean contient(long[] candidats, int index)
+	{
+		return (candidats[index >> 6] & (1L << (index & 63))) != 0;
+	}
+
+	/**
+	 * Ce qui sort de la table est mis dans les cases du bord, ce qui conserve
+	 * les recouvrements
+	 */
+	private int getCaseX(double x)
+	{
+		return Math.max(0, Math.min(NB_X - 1, (int) Math.floor((x - X_MIN) / TAILLE_CASE)));
+	}
+
+	private int getCaseY(double y)
+	{
+		return Math.max(0, Math.min(NB_Y - 1, (int) Math.floor(y / TAILLE_CASE)));
+	}
+}
@@ -37,7 +37,11 @@ public class IteratorCheminPathfinding implements Iterator<CinematiqueObs>
 
 	public void reinit()
 	{
-		index = chemin.indexFirst;
+		// quand le chemin est vide, indexLast n'est plus mis à jour
+		if(chemin.isEmpty())
+			index = chemin.indexLast;
+		else
+			index = chemin.indexFirst;
 	}
 
 	@Override
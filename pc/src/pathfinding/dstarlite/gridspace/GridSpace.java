@@ -26,6 +26,7 @@ import obstacles.memory.ObstaclesIteratorPresent;
 import obstacles.memory.ObstaclesMemory;
 import obstacles.types.Obstacle;
 import obstacles.types.ObstacleProximity;
+import obstacles.types.ObstacleRectangular;
 import obstacles.types.ObstaclesFixes;
 import robot.RobotReal;
 import utils.Log;
@@ -246,6 +247,25 @@ public class GridSpace implements Service, Printable, LowPFClass
 	 * @return
 	 */
 	public ObstacleProximity addObstacleAndRemoveNearbyObstacles(Obstacle obstacle)
+	{
+		removeNearbyObstacles(obstacle);
+		return obstaclesMemory.add(obstacle, masquemanager.getMasqueEnnemi(obstacle));
+	}
+
+	/**
+	 * Version sans allocation : la forme est recopiée dans un obstacle recyclé
+	 * par la mémoire des obstacles, l'appelant peut donc la réutiliser
+	 * 
+	 * @param obstacle
+	 * @return
+	 */
+	public ObstacleProximity addObstacleAndRemoveNearbyObstacles(ObstacleRectangular obstacle)
+	{
+		removeNearbyObstacles(obstacle);
+		return obstaclesMemory.add(obstacle, masquemanager);
+	}
+
+	private void removeNearbyObstacles(Obstacle obstacle)
 	{
 		iteratorRemoveNearby.reinit();
 		while(iteratorRemoveNearby.hasNext())
@@ -254,8 +274,6 @@ public class GridSpace implements Service, Printable, LowPFClass
 			if(o.isProcheCentre(obstacle.getPosition(), distanceMinimaleEntreProximite))
 				iteratorRemoveNearby.remove();
 		}
-
-		return obstaclesMemory.add(obstacle, masquemanager.getMasqueEnnemi(obstacle));
 	}
 
 	@Override
@@ -122,6 +122,18 @@ public class MasqueManager implements Service, LowPFClass
 	}
 
 	public Masque getMasqueEnnemi(Obstacle obstacle)
+	{
+		return getMasqueEnnemi(obstacle, new Masque(pointManager, new ArrayList<PointDirige>()));
+	}
+
+	/**
+	 * Remplit le masque "m" (recyclé) avec le masque de cet obstacle
+	 * 
+	 * @param obstacle
+	 * @param m
+	 * @return
+	 */
+	public Masque getMasqueEnnemi(Obstacle obstacle, Masque m)
 	{
 		double xmin = obstacle.getLeftmostX() - rayonRobot;
 		double xmax = obstacle.getRightmostX() + rayonRobot;
@@ -137,7 +149,8 @@ public class MasqueManager implements Service, LowPFClass
 		int tailleMasqueX = (int) Math.round((xmax - xmin) / PointGridSpace.DISTANCE_ENTRE_DEUX_POINTS) + 3;
 		int tailleMasqueY = (int) Math.round((ymax - ymin) / PointGridSpace.DISTANCE_ENTRE_DEUX_POINTS) + 3;
 
-		List<PointDirige> model = new ArrayList<PointDirige>();
+		List<PointDirige> model = m.masque;
+		model.clear();
 
 		for(int i = 0; i < tailleMasqueX; i++)
 			for(int j = 0; j < tailleMasqueY; j++)
@@ -161,7 +174,6 @@ public class MasqueManager implements Service, LowPFClass
 							model.add(pointDManager.get(i + x, j + y, d));
 					}
 
-		Masque m = new Masque(pointManager, model);
 		if(printObsCapteurs)
 			buffer.addSupprimable(m);
 
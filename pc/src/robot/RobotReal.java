@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.LinkedList;
 import capteurs.SensorMode;
 import obstacles.types.ObstacleRobot;
+import pathfinding.PFSpeculatif;
 import pathfinding.astar.arcs.ArcCourbeDynamique;
 import pathfinding.astar.arcs.ArcManager;
 import pathfinding.astar.arcs.BezierComputer;
@@ -70,13 +71,17 @@ public class RobotReal extends Robot implements Service, Printable, CoreClass
 	private volatile boolean cinematiqueInitialised = false;
 	private SensorMode lastMode = null;
 	private BezierComputer bezier;
+	private PFSpeculatif speculatif;
 	private AnglesRoues angles = new AnglesRoues();
 	private Vector vecteur = new Vector(new Vec2RW(), 0, Couleur.ToF_COURT);
+	// position précédente, pour tracer la trajectoire sans allocation
+	private Vec2RW old = new Vec2RW();
 
 	// Constructeur
-	public RobotReal(Log log, BezierComputer bezier, ArcManager arcmanager, BufferOutgoingOrder out, PrintBufferInterface buffer, CheminPathfinding chemin, Config config)
+	public RobotReal(Log log, BezierComputer bezier, ArcManager arcmanager, BufferOutgoingOrder out, PrintBufferInterface buffer, CheminPathfinding chemin, PFSpeculatif speculatif, Config config)
 	{
 		super(log);
+		this.speculatif = speculatif;
 		this.arcmanager = arcmanager;
 		this.buffer = buffer;
 		this.out = out;
@@ -151,7 +156,7 @@ public class RobotReal extends Robot implements Service, Printable, CoreClass
 	@Override
 	public synchronized void setCinematique(Cinematique cinematique)
 	{
-		Vec2RO old = this.cinematique.getPosition().clone();
+		this.cinematique.getPosition().copy(old);
 		super.setCinematique(cinematique);
 		/*
 		 * On vient juste de récupérer la position initiale
@@ -165,7 +170,7 @@ public class RobotReal extends Robot implements Service, Printable, CoreClass
 		{
 			// affichage
 			if(printTrace && old.distanceFast(cinematique.getPosition()) < 100)
-				buffer.addSupprimable(new Segment(old, cinematique.getPosition().clone(), Layer.FOREGROUND, Couleur.ROUGE.couleur));
+				buffer.addSupprimable(new Segment(old.clone(), cinematique.getPosition().clone(), Layer.FOREGROUND, Couleur.ROUGE.couleur));
 			else if(print)
 				buffer.notify();
 		}
@@ -316,7 +321,16 @@ public class RobotReal extends Robot implements Service, Printable, CoreClass
 			e.printStackTrace();
 			e.printStackTrace(log.getPrintWriter());
 		}
-		etat = t.attendStatus().etat;
+		// pendant que l'actionneur travaille, le pathfinding est libre
+		speculatif.ouvre();
+		try
+		{
+			etat = t.attendStatus().etat;
+		}
+		finally
+		{
+			speculatif.ferme();
+		}
 		if(etat == SerialProtocol.State.KO)
 			throw new ActionneurException("Problème pour l'actionneur " + nom);
 
@@ -17,9 +17,11 @@ package scripts;
 import exceptions.ActionneurException;
 import exceptions.MemoryManagerException;
 import exceptions.UnableToMoveException;
+import pathfinding.GameState;
 import pathfinding.RealGameState;
 import pathfinding.astar.arcs.CercleArrivee;
 import robot.Cinematique;
+import robot.Robot;
 import utils.Log;
 
 /**
@@ -44,6 +46,20 @@ public abstract class Script
 
 	public abstract void setUpCercleArrivee();
 
+	/**
+	 * Ce script est-il un bon candidat pour suivre "precedent" (qui est en
+	 * cours d'exécution, ou null s'il n'y en a pas) ? Utilisé pour calculer à
+	 * l'avance le prochain trajet.
+	 * 
+	 * @param precedent
+	 * @param state
+	 * @return
+	 */
+	public boolean isPossibleApres(Script precedent, GameState<? extends Robot> state)
+	{
+		return false;
+	}
+
 	protected abstract void run(RealGameState state) throws InterruptedException, UnableToMoveException, ActionneurException, MemoryManagerException;
 
 	public void execute(RealGameState state) throws InterruptedException, MemoryManagerException
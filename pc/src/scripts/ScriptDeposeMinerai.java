@@ -17,9 +17,11 @@ package scripts;
 import exceptions.ActionneurException;
 import exceptions.MemoryManagerException;
 import exceptions.UnableToMoveException;
+import pathfinding.GameState;
 import pathfinding.RealGameState;
 import pathfinding.SensFinal;
 import robot.Cinematique;
+import robot.Robot;
 import robot.Speed;
 import serie.SerialProtocol.InOrder;
 import serie.SerialProtocol.State;
@@ -73,6 +75,12 @@ public class ScriptDeposeMinerai extends Script
 //		return pos.clone();
 	}
 	
+	@Override
+	public boolean isPossibleApres(Script precedent, GameState<? extends Robot> state)
+	{
+		return precedent instanceof ScriptPetitCratere || (precedent == null && state.robot.isFiletPlein());
+	}
+
 	@Override
 	public void setUpCercleArrivee()
 	{
@@ -17,9 +17,11 @@ package scripts;
 import exceptions.ActionneurException;
 import exceptions.MemoryManagerException;
 import exceptions.UnableToMoveException;
+import pathfinding.GameState;
 import pathfinding.RealGameState;
 import pathfinding.SensFinal;
 import robot.Cinematique;
+import robot.Robot;
 import robot.Speed;
 import table.EtatElement;
 import table.GameElementNames;
@@ -61,6 +63,15 @@ public class ScriptPetitCratere extends Script
 		return element.hashCode();
 	}
 
+	@Override
+	public boolean isPossibleApres(Script precedent, GameState<? extends Robot> state)
+	{
+		// après un cratère, le filet est plein
+		if(precedent instanceof ScriptPetitCratere || (precedent == null && state.robot.isFiletPlein()))
+			return false;
+		return state.table.isDone(element) == EtatElement.INDEMNE;
+	}
+
 	@Override
 	public void setUpCercleArrivee()
 	{
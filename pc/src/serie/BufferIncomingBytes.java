@@ -16,6 +16,7 @@ package serie;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import utils.Log;
 import utils.Log.Verbose;
 import container.Service;
@@ -25,6 +26,8 @@ import exceptions.serie.MissingCharacterException;
 
 /**
  * Buffer très bas niveau qui récupère les octets sur la série
+ * Les octets arrivent par paquets (lecture du tty ou évènement RXTX) ; chaque
+ * paquet est recopié d'un coup et ne réveille les lecteurs qu'une fois.
  * 
  * @author pf
  *
@@ -38,7 +41,8 @@ public class BufferIncomingBytes implements Service, SerialClass
 	private volatile boolean ping = false; // y a-t-il eu le ping initial avec le LL ?
 	private volatile boolean closed = false;
 	
-	private int bufferReading[] = new int[16384];
+	private ByteBuffer bufferReading = ByteBuffer.allocateDirect(16384);
+	private ByteBuffer paquetRXTX = ByteBuffer.allocate(256);
 
 	private volatile int indexBufferStart = 0;
 	private volatile int indexBufferStop = 0;
@@ -64,7 +68,7 @@ public class BufferIncomingBytes implements Service, SerialClass
 	}
 
 	/**
-	 * Récupération des données de la série
+	 * Récupération des données de la série (RXTX)
 	 */
 	public void dataAvailable()
 	{
@@ -72,16 +76,12 @@ public class BufferIncomingBytes implements Service, SerialClass
 		{
 			do
 			{
-				synchronized(this)
-				{
-					bufferReading[indexBufferStop++] = input.read();
-					indexBufferStop &= 0x3FFF;
-
-					if(indexBufferStart == indexBufferStop)
-						log.critical("Overflow du buffer de réception série !");
-
-					notifyAll();
-				}
+				int nb = input.read(paquetRXTX.array(), 0, Math.max(1, Math.min(paquetRXTX.capacity(), input.available())));
+				if(nb <= 0)
+					break;
+				paquetRXTX.clear();
+				paquetRXTX.limit(nb);
+				ajoute(paquetRXTX);
 			} while(input.available() > 0);
 
 		}
@@ -91,6 +91,35 @@ public class BufferIncomingBytes implements Service, SerialClass
 		}
 	}
 
+	/**
+	 * Ajoute un paquet d'octets reçus (entre sa position et sa limite)
+	 * 
+	 * @param paquet
+	 */
+	public synchronized void ajoute(ByteBuffer paquet)
+	{
+		int taille = paquet.remaining();
+		if(((indexBufferStop - indexBufferStart + 16384) & 0x3FFF) + taille >= 16384)
+			log.critical("Overflow du buffer de réception série !");
+
+		bufferReading.clear();
+		bufferReading.position(indexBufferStop);
+		if(taille + indexBufferStop <= 16384)
+			bufferReading.put(paquet);
+		else
+		{
+			int limite = paquet.limit();
+			paquet.limit(paquet.position() + 16384 - indexBufferStop);
+			bufferReading.put(paquet);
+			paquet.limit(limite);
+			bufferReading.position(0);
+			bufferReading.put(paquet);
+		}
+		indexBufferStop = (indexBufferStop + taille) & 0x3FFF;
+
+		notifyAll();
+	}
+
 	/**
 	 * Retourne "true" ssi un octet est lisible en utilisant "read"
 	 */
@@ -111,6 +140,77 @@ public class BufferIncomingBytes implements Service, SerialClass
 	 * @throws ClosedSerialException 
 	 */
 	public final synchronized int read() throws MissingCharacterException, InterruptedException, ClosedSerialException
+	{
+		attendOctet();
+
+		int out = bufferReading.get(indexBufferStart++) & 0xFF;
+		indexBufferStart &= 0x3FFF;
+
+		// appelé pour chaque octet : rien n'est construit si TRAME est masqué
+		if(log.shouldLog(Verbose.TRAME.masque))
+		{
+			String s = Integer.toHexString(out).toUpperCase();
+			if(s.length() == 1)
+			{
+				if(out >= 32 && out < 127)
+					log.debug("Reçu : " + "0" + s + " (" + (char) (out) + ")", Verbose.TRAME.masque);
+				else
+					log.debug("Reçu : " + "0" + s, Verbose.TRAME.masque);
+			}
+			else
+			{
+				if(out >= 32 && out < 127)
+					log.debug("Reçu : " + s.substring(s.length() - 2, s.length()) + " (" + (char) (out) + ")", Verbose.TRAME.masque);
+				else
+					log.debug("Reçu : " + s.substring(s.length() - 2, s.length()), Verbose.TRAME.masque);
+			}
+		}
+
+		return out;
+	}
+
+	/**
+	 * Lit "nb" octets et les copie dans "dest", par blocs de ce qui est déjà
+	 * arrivé
+	 * 
+	 * @param dest
+	 * @param nb
+	 * @return la somme des octets lus (pour le checksum)
+	 * @throws MissingCharacterException
+	 * @throws InterruptedException
+	 * @throws ClosedSerialException
+	 */
+	public final synchronized int read(int[] dest, int nb) throws MissingCharacterException, InterruptedException, ClosedSerialException
+	{
+		int somme = 0;
+		int i = 0;
+		while(i < nb)
+		{
+			attendOctet();
+
+			int fin = i + Math.min(nb - i, (indexBufferStop - indexBufferStart + 16384) & 0x3FFF);
+			while(i < fin)
+			{
+				int out = bufferReading.get(indexBufferStart) & 0xFF;
+				indexBufferStart = (indexBufferStart + 1) & 0x3FFF;
+				dest[i++] = out;
+				somme += out;
+			}
+		}
+
+		if(log.shouldLog(Verbose.TRAME.masque))
+			log.debug("Reçu : " + nb + " octets", Verbose.TRAME.masque);
+		return somme;
+	}
+
+	/**
+	 * Attend qu'un octet soit disponible
+	 * 
+	 * @throws MissingCharacterException
+	 * @throws InterruptedException
+	 * @throws ClosedSerialException
+	 */
+	private void attendOctet() throws MissingCharacterException, InterruptedException, ClosedSerialException
 	{
 		int essai = 0;
 		while(indexBufferStart == indexBufferStop && essai < 100)
@@ -124,27 +224,6 @@ public class BufferIncomingBytes implements Service, SerialClass
 		
 		if(indexBufferStart == indexBufferStop)
 			throw new MissingCharacterException("Un caractère attendu n'est pas arrivé");
-
-		int out = bufferReading[indexBufferStart++];
-		indexBufferStart &= 0x3FFF;
-
-		String s = Integer.toHexString(out).toUpperCase();
-		if(s.length() == 1)
-		{
-			if(out >= 32 && out < 127)
-				log.debug("Reçu : " + "0" + s + " (" + (char) (out) + ")", Verbose.TRAME.masque);
-			else
-				log.debug("Reçu : " + "0" + s, Verbose.TRAME.masque);
-		}
-		else
-		{
-			if(out >= 32 && out < 127)
-				log.debug("Reçu : " + s.substring(s.length() - 2, s.length()) + " (" + (char) (out) + ")", Verbose.TRAME.masque);
-			else
-				log.debug("Reçu : " + s.substring(s.length() - 2, s.length()), Verbose.TRAME.masque);
-		}
-
-		return out;
 	}
 
 	/**
@@ -155,6 +234,7 @@ public class BufferIncomingBytes implements Service, SerialClass
 	public void close() throws IOException
 	{
 		closed = true;
-		input.close();
+		if(input != null)
+			input.close();
 	}
 }
@@ -14,8 +14,8 @@
 
 package serie;
 
+import java.util.ArrayDeque;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import utils.Log;
 import container.Service;
@@ -24,6 +24,7 @@ import serie.trame.Paquet;
 
 /**
  * Buffer qui contient les ordres provenant de la série
+ * Il garde aussi les paquets déjà traités pour les réutiliser
  * 
  * @author pf
  *
@@ -48,7 +49,8 @@ public class BufferIncomingOrder implements Service, SerialClass
 		return buffer.isEmpty();
 	}
 
-	private Queue<Paquet> buffer = new ConcurrentLinkedQueue<Paquet>();
+	private Queue<Paquet> buffer = new ArrayDeque<Paquet>();
+	private Queue<Paquet> paquetsLibres = new ArrayDeque<Paquet>();
 
 	/**
 	 * Ajout d'un élément dans le buffer et provoque un "notify"
@@ -76,4 +78,27 @@ public class BufferIncomingOrder implements Service, SerialClass
 		return buffer.poll();
 	}
 
+	/**
+	 * Fournit un paquet à remplir
+	 * 
+	 * @return
+	 */
+	public synchronized Paquet getPaquetLibre()
+	{
+		Paquet p = paquetsLibres.poll();
+		if(p == null)
+			p = new Paquet();
+		return p;
+	}
+
+	/**
+	 * Rend un paquet traité, qui pourra être réutilisé
+	 * 
+	 * @param p
+	 */
+	public synchronized void libere(Paquet p)
+	{
+		paquetsLibres.add(p);
+	}
+
 }
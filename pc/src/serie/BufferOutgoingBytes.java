@@ -15,15 +15,20 @@
 package serie;
 
 import utils.Log;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import container.Service;
 import container.dependances.SerialClass;
 import exceptions.serie.ClosedSerialException;
 import serie.trame.Conversation;
+import serie.trame.OutgoingFrame;
 
 /**
  * Buffer très bas niveau qui envoie les octets sur la série
+ * Les trames sont sérialisées directement dans un buffer circulaire direct,
+ * qui est envoyé en une seule écriture (deux morceaux au plus) sans passer
+ * par des tableaux intermédiaires.
  * 
  * @author pf
  *
@@ -34,7 +39,8 @@ public class BufferOutgoingBytes implements Service, SerialClass
 	protected Log log;
 	private SerieCouchePhysique serie;
 
-	private byte bufferWriting[] = new byte[16384];
+	private ByteBuffer bufferWriting = ByteBuffer.allocateDirect(16384);
+	private ByteBuffer[] morceaux = new ByteBuffer[] { bufferWriting.duplicate(), bufferWriting.duplicate() };
 	private List<Conversation> waitingForSending = new ArrayList<Conversation>();
 
 	private volatile int indexBufferStart = 0;
@@ -46,7 +52,7 @@ public class BufferOutgoingBytes implements Service, SerialClass
 		this.serie = serie;
 	}
 
-	public synchronized void add(Conversation c, byte[] b, int taille) throws ClosedSerialException
+	public synchronized void add(Conversation c, OutgoingFrame f) throws ClosedSerialException
 	{
 		if(serie.isClosed())
 			throw new ClosedSerialException("Série fermée !");
@@ -55,19 +61,9 @@ public class BufferOutgoingBytes implements Service, SerialClass
 			waitingForSending.add(c);
 
 		int diffOld = (indexBufferStop - indexBufferStart + 16384) & 0x3FFF;
-		if(taille + indexBufferStop <= 16384)
-		{
-			System.arraycopy(b, 0, bufferWriting, indexBufferStop, taille);
-			indexBufferStop += taille;
-			indexBufferStop &= 0x3FFF;
-		}
-		else
-		{
-			int l = 16384 - indexBufferStop;
-			System.arraycopy(b, 0, bufferWriting, indexBufferStop, l);
-			System.arraycopy(b, l, bufferWriting, 0, taille - l);
-			indexBufferStop = taille - l;
-		}
+		// la trame s'écrit elle-même dans le buffer direct, sans copie
+		// intermédiaire
+		indexBufferStop = f.serialise(bufferWriting, indexBufferStop);
 		int diffNew = (indexBufferStop - indexBufferStart + 16384) & 0x3FFF;
 
 		if(diffNew < diffOld) // cette différence ne peut diminuer qu'en cas
@@ -101,13 +97,18 @@ public class BufferOutgoingBytes implements Service, SerialClass
 	{
 		if(!isEmpty())
 		{
-			if(indexBufferStop > indexBufferStart) // un seul envoi
-				serie.communiquer(bufferWriting, indexBufferStart, indexBufferStop - indexBufferStart);
-			else // deux envois
+			morceaux[0].clear();
+			morceaux[0].position(indexBufferStart);
+			if(indexBufferStop > indexBufferStart) // un seul morceau
+			{
+				morceaux[0].limit(indexBufferStop);
+				serie.communiquer(morceaux, 1);
+			}
+			else // deux morceaux, envoyés en une seule écriture
 			{
-				serie.communiquer(bufferWriting, indexBufferStart, 16384 - indexBufferStart);
-				if(indexBufferStop != 0)
-					serie.communiquer(bufferWriting, 0, indexBufferStop);
+				morceaux[1].clear();
+				morceaux[1].limit(indexBufferStop);
+				serie.communiquer(morceaux, indexBufferStop != 0 ? 2 : 1);
 			}
 			indexBufferStart = indexBufferStop;
 
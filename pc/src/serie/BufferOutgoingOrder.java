@@ -15,6 +15,7 @@
 package serie;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -50,10 +51,18 @@ public class BufferOutgoingOrder implements Service, SerialClass
 	private byte prescaler;
 	private short sendPeriod;
 	private boolean streamStarted = false;
+	private boolean compression;
+
+	private static final int NB_POINTS_TRAME_ARC = 32; // 7 octets par point
+	private static final int NB_POINTS_TRAME_ARC_DELTA = 48; // 5 octets par
+																// point (sauf
+																// le premier)
+	private static final int DEUX_PI_MILLI = (int) Math.round(2000 * Math.PI);
 
 	public BufferOutgoingOrder(Log log, Config config)
 	{
 		this.log = log;
+		compression = config.getBoolean(ConfigInfo.COMPRESSION_TRAJECTOIRE);
 		sendPeriod = config.getShort(ConfigInfo.SENSORS_SEND_PERIOD);
 		prescaler = config.getByte(ConfigInfo.SENSORS_PRESCALER);
 	}
@@ -96,6 +105,26 @@ public class BufferOutgoingOrder implements Service, SerialClass
 			return bufferBassePriorite.poll();
 	}
 
+	/**
+	 * Retire le prochain ordre s'il peut rejoindre un BATCH et qu'il occupe au
+	 * plus "place" octets dans ce BATCH (code et longueur compris). Sinon,
+	 * renvoie null et laisse le buffer intact.
+	 * 
+	 * @param place
+	 * @return
+	 */
+	public synchronized Order pollGroupable(int place)
+	{
+		if(sendStop)
+			return null;
+
+		Queue<Order> buffer = bufferTrajectoireCourbe.isEmpty() ? bufferBassePriorite : bufferTrajectoireCourbe;
+		Order o = buffer.peek();
+		if(o != null && o.ordre.groupable && 2 + o.getTailleMessage() <= place)
+			return buffer.poll();
+		return null;
+	}
+
 	/**
 	 * Scan en tournant les roues
 	 */
@@ -337,10 +366,35 @@ public class BufferOutgoingOrder implements Service, SerialClass
 		data.put((byte) (((int) (x) + 1500) >> 4));
 		data.put((byte) ((((int) (x) + 1500) << 4) + (((int) (y) + 1000) >> 8)));
 		data.put((byte) ((int) (y) + 1000));
+		data.putShort((short) codeOrientation(angle));
+	}
+
+	/**
+	 * Le x tel qu'envoyé par addXYO (avec vérification de la table)
+	 */
+	private int codeX(double x)
+	{
+		return (int) (x < -1500 ? -1500 : x > 1500 ? 1500 : x) + 1500;
+	}
+
+	/**
+	 * Le y tel qu'envoyé par addXYO (avec vérification de la table)
+	 */
+	private int codeY(double y)
+	{
+		return (int) (y < 0 ? 0 : y > 2000 ? 2000 : y) + 1000;
+	}
+
+	/**
+	 * L'orientation en milliradians, entre 0 et 2000π, telle qu'envoyée par
+	 * addXYO
+	 */
+	private int codeOrientation(double angle)
+	{
 		short theta = (short) Math.round((angle % (2 * Math.PI)) * 1000);
 		if(theta < 0)
-			theta += (short) Math.round(2000 * Math.PI);
-		data.putShort(theta);
+			theta += (short) DEUX_PI_MILLI;
+		return theta;
 	}
 
 	/**
@@ -460,6 +514,11 @@ public class BufferOutgoingOrder implements Service, SerialClass
 
 	/**
 	 * Envoi de tous les arcs élémentaires d'un arc courbe
+	 * Si la compression est activée, les points sont envoyés par
+	 * SEND_ARC_DELTA : seul le premier point d'une trame est absolu, les
+	 * suivants sont des écarts d'un octet en x, y et orientation. Une trame
+	 * se termine dès qu'un écart ne tient pas sur un octet.
+	 * 
 	 * @0 arc
 	 */
 	public synchronized Ticket[] envoieArcCourbe(List<CinematiqueObs> points, int indexTrajectory)
@@ -467,55 +526,139 @@ public class BufferOutgoingOrder implements Service, SerialClass
 		log.debug("Envoi de " + points.size() + " points à partir de l'index " + indexTrajectory, Verbose.SERIE.masque | Verbose.PF.masque);
 
 		int index = indexTrajectory;
-		int nbEnvoi = (points.size() >> 5) + 1;
-		int modulo = (points.size() & 31); // pour le dernier envoi
-
-		Ticket[] t = new Ticket[nbEnvoi];
+		int k = 0;
+		List<Ticket> t = new ArrayList<Ticket>();
 
-		for(int i = 0; i < nbEnvoi; i++)
+		while(k < points.size())
 		{
-			int nbArc = 32;
-			if(i == nbEnvoi - 1) // dernier envoi
-				nbArc = modulo;
-			ByteBuffer data = ByteBuffer.allocate(1 + 7 * nbArc);
-			data.put((byte) index);
-			t[i] = new Ticket();
-			for(int j = 0; j < nbArc; j++)
+			ByteBuffer data;
+			OutOrder ordre;
+			int nbArc;
+			if(compression)
 			{
-				int k = (i << 5) + j;
-				double prochaineCourbure; // pour gérer les arrêts qui font
-											// arrêter le robot
-				CinematiqueObs c = points.get(k);
-
-				if(k + 1 < points.size())
-					prochaineCourbure = points.get(k + 1).courbureReelle;
-				else
-					prochaineCourbure = c.courbureReelle; // c'est le dernier
-															// point, de toute
-															// façon ce sera un
-															// STOP_POINT
-
-				log.debug("Point " + k + " : " + c, Verbose.PF.masque);
-				addXYO(data, c.getPosition(), c.orientationReelle, true);
-				short courbure = (short) ((Math.round(Math.abs(c.courbureReelle) * 100)) & 0x7FFF);
-
-				// on vérifie si on va dans le même sens que le prochain point
-				// le dernier point est forcément un point d'arrêt
-				// de plus, si le changement de courbure est trop grand, on
-				// impose un arrêt
-				if(k + 1 == points.size() || c.enMarcheAvant != points.get(k + 1).enMarcheAvant || Math.abs(c.courbureReelle - prochaineCourbure) > 0.5)
-					courbure |= 0x8000; // en cas de rebroussement
-
-				if(c.courbureReelle < 0) // bit de signe
-					courbure |= 0x4000;
-
-				data.putShort(courbure);
+				ordre = OutOrder.SEND_ARC_DELTA;
+				data = ByteBuffer.allocate(1 + 7 + 5 * (NB_POINTS_TRAME_ARC_DELTA - 1));
+				nbArc = addPointsDelta(data, points, k, index);
 			}
-			bufferTrajectoireCourbe.add(new Order(data, OutOrder.SEND_ARC, t[i]));
+			else
+			{
+				ordre = OutOrder.SEND_ARC;
+				nbArc = Math.min(NB_POINTS_TRAME_ARC, points.size() - k);
+				data = ByteBuffer.allocate(1 + 7 * nbArc);
+				data.put((byte) index);
+				for(int j = 0; j < nbArc; j++)
+				{
+					CinematiqueObs c = points.get(k + j);
+					log.debug("Point " + (k + j) + " : " + c, Verbose.PF.masque);
+					addXYO(data, c.getPosition(), c.orientationReelle, true);
+					data.putShort(getCourbure(points, k + j));
+				}
+			}
+
+			Ticket ticket = new Ticket();
+			t.add(ticket);
+			bufferTrajectoireCourbe.add(new Order(data, ordre, ticket));
 			index += nbArc;
+			k += nbArc;
 		}
 		notify();
-		return t;
+		return t.toArray(new Ticket[t.size()]);
+	}
+
+	/**
+	 * Ajoute les points à partir de "debut" au format SEND_ARC_DELTA :
+	 * l'index, le premier point complet (7 octets) puis, pour chaque point
+	 * suivant, dx, dy et dθ sur un octet signé et la courbure (5 octets).
+	 * Les écarts sont calculés par rapport aux valeurs que reconstruira le bas
+	 * niveau, donc les arrondis ne s'accumulent pas.
+	 * 
+	 * @param data
+	 * @param points
+	 * @param debut
+	 * @param index
+	 * @return le nombre de points ajoutés
+	 */
+	private int addPointsDelta(ByteBuffer data, List<CinematiqueObs> points, int debut, int index)
+	{
+		data.put((byte) index);
+		CinematiqueObs c = points.get(debut);
+		log.debug("Point " + debut + " : " + c, Verbose.PF.masque);
+		addXYO(data, c.getPosition(), c.orientationReelle, true);
+		data.putShort(getCourbure(points, debut));
+
+		int x = codeX(c.getPosition().getX());
+		int y = codeY(c.getPosition().getY());
+		int o = codeOrientation(c.orientationReelle);
+
+		int nb = 1;
+		while(nb < NB_POINTS_TRAME_ARC_DELTA && debut + nb < points.size())
+		{
+			c = points.get(debut + nb);
+			int dx = codeX(c.getPosition().getX()) - x;
+			int dy = codeY(c.getPosition().getY()) - y;
+			int dO = codeOrientation(c.orientationReelle) - o;
+			if(dO > DEUX_PI_MILLI / 2)
+				dO -= DEUX_PI_MILLI;
+			else if(dO < -DEUX_PI_MILLI / 2)
+				dO += DEUX_PI_MILLI;
+
+			// l'écart ne tient pas sur un octet : ce point commencera la
+			// prochaine trame
+			if(dx != (byte) dx || dy != (byte) dy || dO != (byte) dO)
+				break;
+
+			log.debug("Point " + (debut + nb) + " : " + c, Verbose.PF.masque);
+			data.put((byte) dx);
+			data.put((byte) dy);
+			data.put((byte) dO);
+			data.putShort(getCourbure(points, debut + nb));
+
+			// même calcul que le bas niveau
+			x += dx;
+			y += dy;
+			o += dO;
+			if(o < 0)
+				o += DEUX_PI_MILLI;
+			else if(o >= DEUX_PI_MILLI)
+				o -= DEUX_PI_MILLI;
+			nb++;
+		}
+		return nb;
+	}
+
+	/**
+	 * La courbure d'un point et ses drapeaux, sur deux octets
+	 * 
+	 * @param points
+	 * @param k
+	 * @return
+	 */
+	private short getCourbure(List<CinematiqueObs> points, int k)
+	{
+		CinematiqueObs c = points.get(k);
+		double prochaineCourbure; // pour gérer les arrêts qui font arrêter le
+									// robot
+
+		if(k + 1 < points.size())
+			prochaineCourbure = points.get(k + 1).courbureReelle;
+		else
+			prochaineCourbure = c.courbureReelle; // c'est le dernier point, de
+													// toute façon ce sera un
+													// STOP_POINT
+
+		short courbure = (short) ((Math.round(Math.abs(c.courbureReelle) * 100)) & 0x7FFF);
+
+		// on vérifie si on va dans le même sens que le prochain point
+		// le dernier point est forcément un point d'arrêt
+		// de plus, si le changement de courbure est trop grand, on
+		// impose un arrêt
+		if(k + 1 == points.size() || c.enMarcheAvant != points.get(k + 1).enMarcheAvant || Math.abs(c.courbureReelle - prochaineCourbure) > 0.5)
+			courbure |= 0x8000; // en cas de rebroussement
+
+		if(c.courbureReelle < 0) // bit de signe
+			courbure |= 0x4000;
+
+		return courbure;
 	}
 
 	public void waitStop() throws InterruptedException
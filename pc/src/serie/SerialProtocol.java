@@ -59,21 +59,31 @@ public class SerialProtocol
 
 		ASK_COLOR(0x59, Type.SHORT),
 		PING(0x5A, Type.SHORT),
-		SEND_ARC(0x5B, Type.SHORT),
-		SET_MAX_SPEED(0x5C, Type.SHORT),
-		EDIT_POSITION(0x5D, Type.SHORT),
+		SEND_ARC(0x5B, Type.SHORT, true),
+		SET_MAX_SPEED(0x5C, Type.SHORT, true),
+		EDIT_POSITION(0x5D, Type.SHORT, true),
 		STOP_STREAM_ALL(0x5E, Type.SHORT),
-		SET_SENSOR_MODE(0x5F, Type.SHORT),
-		SET_POSITION(0x60, Type.SHORT),
-		SET_CURVATURE(0x61, Type.SHORT);
+		SET_SENSOR_MODE(0x5F, Type.SHORT, true),
+		SET_POSITION(0x60, Type.SHORT, true),
+		SET_CURVATURE(0x61, Type.SHORT, true),
+		SEND_ARC_DELTA(0x62, Type.SHORT, true),
+		BATCH(0x63, Type.SHORT);
 
 		public final byte code;
 		public final Type type;
+		public final boolean groupable; // ordre court sans réponse, qui peut
+										// être envoyé dans un BATCH
 
 		private OutOrder(int code, Type type)
+		{
+			this(code, type, false);
+		}
+
+		private OutOrder(int code, Type type, boolean groupable)
 		{
 			this.type = type;
 			this.code = (byte) code;
+			this.groupable = groupable;
 		}
 	}
 
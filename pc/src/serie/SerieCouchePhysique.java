@@ -19,8 +19,17 @@ import gnu.io.NoSuchPortException;
 import gnu.io.PortInUseException;
 import gnu.io.SerialPort;
 import gnu.io.UnsupportedCommOperationException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Enumeration;
 import java.util.TooManyListenersException;
 import config.Config;
@@ -28,11 +37,16 @@ import config.ConfigInfo;
 import container.Service;
 import container.dependances.SerialClass;
 import exceptions.serie.ClosedSerialException;
+import serie.trame.OutgoingFrame;
 import utils.Log;
 import utils.Log.Verbose;
 
 /**
  * La connexion série
+ * Deux implémentations : par défaut RXTX (avec un listener), ou le tty
+ * ouvert comme un fichier (SERIE_NIO). Dans ce dernier cas, la lecture se
+ * fait par paquets dans ThreadSerialInputBytes.
+ * La carte peut aussi être remplacée par SimulateurBasNiveau.
  * 
  * @author pf
  *
@@ -48,11 +62,18 @@ public class SerieCouchePhysique implements Service, SerialClass
 	protected volatile boolean isClosed;
 	private int baudrate;
 	private boolean simuleSerie;
+	private boolean simuleBasNiveau;
+	private SimulateurBasNiveau simulateur;
+	private boolean nio;
+	private volatile FileChannel canalLecture;
 
 	private String portName;
 
 	/** The output stream to the port */
-	private OutputStream output;
+	private OutputStream outputStream;
+	private WritableByteChannel output;
+	private int[] debutsMorceaux = new int[2];
+	private byte[] copieAffichage = new byte[16384];
 
 	// Permet d'ouvrir le port à la première utilisation de la série
 	protected volatile boolean portOuvert = false;
@@ -65,15 +86,18 @@ public class SerieCouchePhysique implements Service, SerialClass
 	 * 
 	 * @param log
 	 */
-	public SerieCouchePhysique(Log log, BufferIncomingBytes buffer, Config config, SerialListener listener)
+	public SerieCouchePhysique(Log log, BufferIncomingBytes buffer, Config config, SerialListener listener, SimulateurBasNiveau simulateur)
 	{
 		this.log = log;
 		this.buffer = buffer;
 		this.listener = listener;
+		this.simulateur = simulateur;
 
 		portName = config.getString(ConfigInfo.SERIAL_PORT);
 		baudrate = config.getInt(ConfigInfo.BAUDRATE);
 		simuleSerie = config.getBoolean(ConfigInfo.SIMULE_SERIE);
+		nio = config.getBoolean(ConfigInfo.SERIE_NIO);
+		simuleBasNiveau = simulateur.isActif();
 
 		if(simuleSerie)
 			log.critical("SÉRIE SIMULÉE !");
@@ -86,7 +110,7 @@ public class SerieCouchePhysique implements Service, SerialClass
 	 */
 	protected synchronized void openPort() throws InterruptedException
 	{
-		if(!simuleSerie && !portOuvert && !searchPort())
+		if(!simuleSerie && !simuleBasNiveau && !portOuvert && !searchPort())
 		{
 			/**
 			 * Suppression des verrous qui empêchent parfois la connexion
@@ -120,10 +144,13 @@ public class SerieCouchePhysique implements Service, SerialClass
 	 */
 	protected synchronized boolean searchPort()
 	{
-		if(simuleSerie)
+		if(simuleSerie || simuleBasNiveau)
 			return true;
 
 		portOuvert = false;
+		if(nio)
+			return ouvreTTY();
+
 		CommPortIdentifier port;
 		try
 		{
@@ -162,6 +189,87 @@ public class SerieCouchePhysique implements Service, SerialClass
 		}
 	}
 
+	/**
+	 * Ouvre le tty comme un fichier, après l'avoir configuré en mode brut
+	 * 
+	 * @return
+	 */
+	private boolean ouvreTTY()
+	{
+		try
+		{
+			String OS = System.getProperty("os.name");
+			if(!OS.toLowerCase().contains("win"))
+			{
+				Process p = Runtime.getRuntime().exec(new String[] { "stty", "-F", portName, Integer.toString(baudrate), "raw", "-echo", "clocal", "cs8", "-cstopb", "-parenb", "min", "0", "time", "1" });
+				if(p.waitFor() != 0)
+					log.warning("Configuration de " + portName + " par stty impossible");
+			}
+
+			// deux canaux distincts : une lecture bloquée ne doit pas bloquer
+			// l'écriture
+			FileChannel ancienneLecture = canalLecture;
+			WritableByteChannel ancienneEcriture = output;
+			FileChannel lecture = new FileInputStream(portName).getChannel();
+			try
+			{
+				output = new FileOutputStream(portName).getChannel();
+			}
+			catch(IOException e)
+			{
+				lecture.close();
+				throw e;
+			}
+			canalLecture = lecture;
+			outputStream = null;
+			// lors d'une reconnexion, les canaux précédents sont fermés une
+			// fois remplacés : lit() reprend alors sur le nouveau canal
+			fermeCanaux(ancienneLecture, ancienneEcriture);
+			isClosed = false;
+			portOuvert = true;
+			log.debug("Port " + portName + " ouvert");
+			return true;
+		}
+		catch(FileNotFoundException e)
+		{
+			log.warning("Port " + portName + " introuvable : " + e);
+			return false;
+		}
+		catch(IOException | InterruptedException e)
+		{
+			log.critical(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Ferme les canaux du tty, s'ils ont été ouverts
+	 * 
+	 * @param lecture
+	 * @param ecriture
+	 */
+	private void fermeCanaux(FileChannel lecture, WritableByteChannel ecriture)
+	{
+		try
+		{
+			if(ecriture != null)
+				ecriture.close();
+		}
+		catch(IOException e)
+		{
+			log.warning(e);
+		}
+		try
+		{
+			if(lecture != null)
+				lecture.close();
+		}
+		catch(IOException e)
+		{
+			log.warning(e);
+		}
+	}
+
 	/**
 	 * Il donne à la série tout ce qu'il faut pour fonctionner
 	 * 
@@ -187,7 +295,8 @@ public class SerieCouchePhysique implements Service, SerialClass
 
 			// open the streams
 			buffer.setInput(serialPort.getInputStream());
-			output = serialPort.getOutputStream();
+			outputStream = serialPort.getOutputStream();
+			output = Channels.newChannel(outputStream);
 
 			// Configuration du Listener
 			serialPort.addEventListener(listener);
@@ -217,20 +326,29 @@ public class SerieCouchePhysique implements Service, SerialClass
 		if(simuleSerie)
 			return;
 
+		if(simuleBasNiveau)
+		{
+			isClosed = true;
+			return;
+		}
+
 		if(!isClosed && portOuvert)
 		{
 			try
 			{
 				log.debug("Fermeture de la carte");
-				serialPort.removeEventListener();
-				serialPort.close();
+				if(!nio)
+				{
+					serialPort.removeEventListener();
+					serialPort.close();
+				}
 				buffer.close();
-				output.close();
 			}
 			catch(IOException e)
 			{
 				log.warning(e);
 			}
+			fermeCanaux(nio ? canalLecture : null, output);
 			isClosed = true;
 		}
 		else if(isClosed)
@@ -243,11 +361,14 @@ public class SerieCouchePhysique implements Service, SerialClass
 	 * Envoie une frame sur la série
 	 * Cette méthode est synchronized car deux threads peuvent l'utiliser :
 	 * ThreadSerialOutput et ThreadSerialOutputTimeout
+	 * Les "nb" premiers morceaux sont envoyés en une seule écriture si le
+	 * canal le permet
 	 * 
-	 * @param message
+	 * @param morceaux
+	 * @param nb
 	 * @throws InterruptedException
 	 */
-	public synchronized void communiquer(byte[] bufferWriting, int offset, int length) throws InterruptedException, ClosedSerialException
+	public synchronized void communiquer(ByteBuffer[] morceaux, int nb) throws InterruptedException, ClosedSerialException
 	{
 		if(simuleSerie)
 			return;
@@ -260,31 +381,45 @@ public class SerieCouchePhysique implements Service, SerialClass
 		if(isClosed)
 			throw new ClosedSerialException("La série est fermée et ne peut envoyer un message");
 
+		if(simuleBasNiveau)
+		{
+			simulateur.recoit(morceaux, nb);
+			return;
+		}
+
+		for(int i = 0; i < nb; i++)
+			debutsMorceaux[i] = morceaux[i].position();
+
 		try
 		{
 			// On vérifie bien que toutes les données précédentes ont été
 			// envoyées
 			synchronized(listener)
 			{
-				if(!listener.isOutputEmpty())
-					listener.wait();
-
-				listener.setOutputNonEmpty();
+				// (l'écriture dans le tty est bloquante, il n'y a pas besoin
+				// d'attendre)
+				if(outputStream != null)
+				{
+					if(!listener.isOutputEmpty())
+						listener.wait();
 
-				output.write(bufferWriting, offset, length);
-				output.flush();
+					listener.setOutputNonEmpty();
+				}
 
-				String aff = "";
-				for(int i = offset; i < offset + length; i++)
+				if(output instanceof GatheringByteChannel)
 				{
-					int out = bufferWriting[i];
-					String s = Integer.toHexString(out).toUpperCase();
-					if(s.length() == 1)
-						aff += "0" + s + " ";
-					else
-						aff += s.substring(s.length() - 2, s.length()) + " ";
+					while(morceaux[nb - 1].hasRemaining())
+						((GatheringByteChannel) output).write(morceaux, 0, nb);
 				}
-				log.debug("Envoi terminé de " + aff, Verbose.SERIE.masque);
+				else
+					for(int i = 0; i < nb; i++)
+						while(morceaux[i].hasRemaining())
+							output.write(morceaux[i]);
+				if(outputStream != null)
+					outputStream.flush();
+
+				if(log.shouldLog(Verbose.TRAME.masque))
+					log.debug("Envoi terminé de " + affiche(morceaux, nb), Verbose.TRAME.masque);
 			}
 		}
 		catch(IOException e)
@@ -301,15 +436,78 @@ public class SerieCouchePhysique implements Service, SerialClass
 				// On laisse la série respirer un peu
 				Thread.sleep(100);
 			}
-			// On a retrouvé la série, on renvoie le message
-			communiquer(bufferWriting, offset, length);
+			// On a retrouvé la série, on renvoie le message en entier
+			for(int i = 0; i < nb; i++)
+				morceaux[i].position(debutsMorceaux[i]);
+			communiquer(morceaux, nb);
 		}
 	}
 
+	/**
+	 * L'affichage hexadécimal de ce qui vient d'être envoyé. Les octets sont
+	 * lus en bloc, sans modifier les positions des morceaux.
+	 * 
+	 * @param morceaux
+	 * @param nb
+	 * @return
+	 */
+	private String affiche(ByteBuffer[] morceaux, int nb)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int j = 0; j < nb; j++)
+		{
+			int fin = morceaux[j].position();
+			morceaux[j].position(debutsMorceaux[j]);
+			int taille = fin - debutsMorceaux[j];
+			morceaux[j].get(copieAffichage, 0, taille);
+			for(int i = 0; i < taille; i++)
+				OutgoingFrame.hexa(sb, copieAffichage[i]);
+		}
+		return sb.toString();
+	}
+
 	public boolean isClosed()
 	{
 		return isClosed;
 	}
+
+	/**
+	 * La lecture doit-elle être faite par ThreadSerialInputBytes ?
+	 * 
+	 * @return
+	 */
+	public boolean isLectureParPaquets()
+	{
+		return nio && !simuleSerie && !simuleBasNiveau;
+	}
+
+	/**
+	 * Lit un paquet d'octets. Ouvre le port si besoin.
+	 * La lecture rend la main au bout de 100 ms si rien n'arrive (réglage
+	 * "time 1" du tty), ce qui permet d'interrompre le thread de lecture.
+	 * N'est pas synchronized pour ne pas bloquer les envois.
+	 * 
+	 * @param paquet
+	 * @return le nombre d'octets lus, -1 si le tty est fermé
+	 * @throws InterruptedException
+	 * @throws IOException
+	 */
+	public int lit(ByteBuffer paquet) throws InterruptedException, IOException
+	{
+		openPort();
+		FileChannel canal = canalLecture;
+		try
+		{
+			return canal.read(paquet);
+		}
+		catch(ClosedChannelException e)
+		{
+			// canal remplacé par une reconnexion pendant la lecture
+			if(isClosed || canal == canalLecture)
+				throw e;
+			return 0;
+		}
+	}
 	
 	public void init() throws InterruptedException
 	{
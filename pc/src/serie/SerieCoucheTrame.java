@@ -15,10 +15,6 @@
 package serie;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import config.Config;
 import config.ConfigInfo;
 import container.Service;
@@ -28,7 +24,10 @@ import exceptions.serie.IncorrectChecksumException;
 import exceptions.serie.MissingCharacterException;
 import exceptions.serie.ProtocolException;
 import serie.trame.Conversation;
+import serie.trame.Conversation.Etat;
+import serie.trame.Echeancier;
 import serie.trame.EndOrderFrame;
+import serie.trame.FileConversations;
 import serie.trame.Frame.IncomingCode;
 import serie.trame.IncomingFrame;
 import serie.trame.Order;
@@ -46,33 +45,37 @@ import utils.Log.Verbose;
 public class SerieCoucheTrame implements Service, SerialClass
 {
 	/**
-	 * Toutes les conversations
+	 * Toutes les conversations, indexées par leur ID. L'état de chacune est
+	 * stocké dans la conversation.
 	 */
 	private Conversation[] conversations = new Conversation[256];
 
 	/**
-	 * Liste des trames dont on attend un acquittement
-	 * Les trames de cette liste sont toujours triées par date de mort (de la
+	 * File des trames dont on attend un acquittement (état ATTENTE)
+	 * Les trames de cette file sont toujours triées par date de renvoi (de la
 	 * plus proche à la plus éloignée)
 	 */
-	private LinkedList<Integer> waitingFrames = new LinkedList<Integer>();
+	private FileConversations waitingFrames = new FileConversations();
 
 	/**
-	 * Liste des trames d'ordre long acquittées dont on attend la fin
+	 * Nombre de trames d'ordre long acquittées dont on attend la fin (état
+	 * EN_COURS)
 	 */
-	private List<Integer> pendingLongFrames = new ArrayList<Integer>();
+	private int nbPendingLongFrames = 0;
 
 	/**
-	 * Liste des trames d'ordre dont on a reçu la fin (EXECUTION_END ou
-	 * REQUEST_ANSWER)
+	 * File des trames d'ordre dont on a reçu la fin (EXECUTION_END ou
+	 * REQUEST_ANSWER), triée par date de mort (état FERMEE)
 	 */
-	private LinkedList<Integer> closedFrames = new LinkedList<Integer>();
+	private FileConversations closedFrames = new FileConversations();
 
-	private int timeout;
+	private long timeout; // en ns
+	private Echeancier echeancier = new Echeancier();
 	private int dernierIDutilise = 0xFF; // dernier ID utilisé
 
 	// Afin d'éviter de la créer à chaque fois
 	private EndOrderFrame endOrderFrame = new EndOrderFrame();
+	private IncomingFrame frame = new IncomingFrame();
 
 	private Log log;
 	private BufferOutgoingBytes serieOutput;
@@ -89,9 +92,9 @@ public class SerieCoucheTrame implements Service, SerialClass
 		this.log = log;
 		this.serieInput = serieInput;
 		this.serieOutput = serieOutput;
-		timeout = config.getInt(ConfigInfo.SERIAL_TIMEOUT);
+		timeout = config.getInt(ConfigInfo.SERIAL_TIMEOUT) * 1000000L;
 		for(int i = 0; i < 256; i++)
-			conversations[i] = new Conversation(i, config);
+			conversations[i] = new Conversation(i, config, echeancier);
 	}
 
 	/**
@@ -120,7 +123,7 @@ public class SerieCoucheTrame implements Service, SerialClass
 				Thread.sleep(1);
 			}
 
-			if(!conversations[dernierIDutilise].libre)
+			if(conversations[dernierIDutilise].etat != Etat.LIBRE)
 			{
 				dernierIDutilise++;
 				dernierIDutilise &= 0xFF;
@@ -128,9 +131,10 @@ public class SerieCoucheTrame implements Service, SerialClass
 			else
 				break;
 		}
-		conversations[dernierIDutilise].libre = false;
-		waitingFrames.add(dernierIDutilise);
-		return conversations[dernierIDutilise];
+		Conversation c = conversations[dernierIDutilise];
+		c.etat = Etat.ATTENTE;
+		waitingFrames.add(c);
+		return c;
 	}
 
 	/**
@@ -145,9 +149,10 @@ public class SerieCoucheTrame implements Service, SerialClass
 		Conversation f = getNextAvailableConversation();
 		f.update(o);
 
-		log.debug("Envoi d'une nouvelle trame : " + f.getFirstTrame(), Verbose.SERIE.masque);
+		if(log.shouldLog(Verbose.SERIE.masque))
+			log.debug("Envoi d'une nouvelle trame : " + f.getFirstTrame(), Verbose.SERIE.masque);
 
-		serieOutput.add(f, f.getFirstTrame().trame, f.getFirstTrame().tailleTrame);
+		serieOutput.add(f, f.getFirstTrame());
 		// f.updateResendDate();
 	}
 
@@ -156,14 +161,14 @@ public class SerieCoucheTrame implements Service, SerialClass
 	 */
 
 	/**
-	 * Renvoi les données de la couche ordre (haut niveau)
+	 * Renvoi les données de la couche ordre (haut niveau) dans "paquet"
 	 * C'est cette méthode qui s'occupe de commander la signalisation.
 	 * 
 	 * @return
 	 * @throws ShutdownRequestException 
 	 * @throws ClosedSerialException 
 	 */
-	public Paquet readData() throws InterruptedException, ClosedSerialException
+	public Paquet readData(Paquet paquet) throws InterruptedException, ClosedSerialException
 	{
 		IncomingFrame f = null;
 		Paquet p = null;
@@ -174,7 +179,7 @@ public class SerieCoucheTrame implements Service, SerialClass
 			try
 			{
 				f = readFrame();
-				p = processFrame(f);
+				p = processFrame(f, paquet);
 				if(p == null) // c'est une trame de signalisation
 					restart = true;
 			}
@@ -190,123 +195,117 @@ public class SerieCoucheTrame implements Service, SerialClass
 	/**
 	 * S'occupe du protocole : répond si besoin est, vérifie la cohérence, etc.
 	 * Renvoie le ticket associé à la conversation
+	 * Remplit "p" et le renvoie, ou renvoie null pour une trame de signalisation
 	 * 
 	 * @param f
 	 * @throws InterruptedException
 	 * @throws ClosedSerialException 
 	 */
-	public synchronized Paquet processFrame(IncomingFrame f) throws ProtocolException, InterruptedException, ClosedSerialException
+	public synchronized Paquet processFrame(IncomingFrame f, Paquet p) throws ProtocolException, InterruptedException, ClosedSerialException
 	{
-		Iterator<Integer> it = waitingFrames.iterator();
-		while(it.hasNext())
+		Conversation c = conversations[f.id];
+		switch(c.etat)
 		{
-			Integer id = it.next();
-			Conversation waiting = conversations[id];
-			if(id == f.id)
-			{
+			case ATTENTE:
 				// On a le EXECUTION_BEGIN d'une frame qui l'attendait
 				if(f.code == IncomingCode.EXECUTION_BEGIN)
 				{
-					if(waiting.origine.type == Order.Type.LONG)
+					if(c.origine.type == Order.Type.LONG)
 					{
-						log.debug("EXECUTION_BEGIN reçu : " + f, Verbose.SERIE.masque);
-						it.remove();
-						pendingLongFrames.add(id);
+						if(log.shouldLog(Verbose.SERIE.masque))
+							log.debug("EXECUTION_BEGIN reçu : " + f, Verbose.SERIE.masque);
+						waitingFrames.remove(c);
+						c.etat = Etat.EN_COURS;
+						nbPendingLongFrames++;
 						return null;
 					}
 
-					throw new ProtocolException(f.code + " reçu pour un ordre " + waiting.origine.type + ". " + f);
+					throw new ProtocolException(f.code + " reçu pour un ordre " + c.origine.type + ". " + f);
 				}
 				else if(f.code == IncomingCode.VALUE_ANSWER)
 				{
-					if(waiting.origine.type == Order.Type.SHORT)
+					if(c.origine.type == Order.Type.SHORT)
 					{
-						log.debug("VALUE_ANSWER reçu : " + f, Verbose.SERIE.masque);
+						if(log.shouldLog(Verbose.SERIE.masque))
+							log.debug("VALUE_ANSWER reçu : " + f, Verbose.SERIE.masque);
 
 						// L'ordre court a reçu un acquittement et ne passe pas
 						// par la case "pending"
-						it.remove();
-						waiting.setDeathDate(); // tes jours sont comptés…
-						closedFrames.add(id);
-						return new Paquet(f.message, waiting.ticket, waiting.origine, f.code);
+						waitingFrames.remove(c);
+						ferme(c);
+						return p.update(f, c.ticket, c.origine);
 					}
 
-					throw new ProtocolException(f.code + " reçu pour un ordre " + waiting.origine.type + ". " + f);
+					throw new ProtocolException(f.code + " reçu pour un ordre " + c.origine.type + ". " + f);
 				}
 				else
 					throw new ProtocolException(f.code + " reçu à la place de EXECUTION_BEGIN ou VALUE_ANSWER ! " + f);
-			}
-		}
-
-		// Cette valeur n'a pas été trouvée dans les trames en attente
-		// On va donc chercher dans les trames en cours
 
-		it = pendingLongFrames.iterator();
-		while(it.hasNext())
-		{
-			Integer id = it.next();
-			Conversation pending = conversations[id];
-			if(id == f.id)
-			{
+			case EN_COURS:
 				// On a le EXECUTION_END d'une frame
 				if(f.code == IncomingCode.EXECUTION_END)
 				{
-					log.debug("EXECUTION_END reçu : " + f + ". On répond par un END_ORDER.", Verbose.SERIE.masque);
+					if(log.shouldLog(Verbose.SERIE.masque))
+						log.debug("EXECUTION_END reçu : " + f + ". On répond par un END_ORDER.", Verbose.SERIE.masque);
 
-					pending.setDeathDate(); // tes jours sont comptés…
 					// on envoie un END_ORDER
 					endOrderFrame.updateId(f.id);
-					serieOutput.add(null, endOrderFrame.trame, endOrderFrame.tailleTrame);
+					serieOutput.add(null, endOrderFrame);
 					// et on retire la trame des trames en cours
-					it.remove();
-					closedFrames.add(id);
-					return new Paquet(f.message, pending.ticket, pending.origine, f.code);
+					nbPendingLongFrames--;
+					ferme(c);
+					return p.update(f, c.ticket, c.origine);
 				}
 				else if(f.code == IncomingCode.STATUS_UPDATE)
 				{
-					log.debug("STATUS_UPDATE reçu : " + f, Verbose.SERIE.masque);
+					if(log.shouldLog(Verbose.SERIE.masque))
+						log.debug("STATUS_UPDATE reçu : " + f, Verbose.SERIE.masque);
 
-					return new Paquet(f.message, pending.ticket, pending.origine, f.code);
+					return p.update(f, c.ticket, c.origine);
 				}
 				else
 					throw new ProtocolException(f.code + " reçu à la place de EXECUTION_END ou STATUS_UPDATE ! " + f);
-			}
-		}
 
-		// On cherche parmi les trames récemment fermées
-
-		it = closedFrames.iterator();
-		while(it.hasNext())
-		{
-			Integer id = it.next();
-			Conversation closed = conversations[id];
-			if(id == f.id)
-			{
+			case FERMEE:
 				// On avait déjà reçu l'EXECUTION_END. On renvoie un END_ORDER
-				if(f.code == IncomingCode.EXECUTION_END && closed.origine.type == Order.Type.LONG)
+				if(f.code == IncomingCode.EXECUTION_END && c.origine.type == Order.Type.LONG)
 				{
 					log.warning("EXECUTION_END déjà reçu : " + f, Verbose.SERIE.masque);
 					endOrderFrame.updateId(f.id);
-					serieOutput.add(null, endOrderFrame.trame, endOrderFrame.tailleTrame);
+					serieOutput.add(null, endOrderFrame);
 					return null;
 				}
 
-				if(f.code == IncomingCode.VALUE_ANSWER && closed.origine.type == Order.Type.SHORT)
+				if(f.code == IncomingCode.VALUE_ANSWER && c.origine.type == Order.Type.SHORT)
 				{
 					log.warning("VALUE_ANSWER déjà reçu : " + f, Verbose.SERIE.masque);
 					return null;
 				}
 
-				throw new ProtocolException(f.code + " reçu pour une trame " + closed.origine.type + " finie ! " + f);
-			}
+				throw new ProtocolException(f.code + " reçu pour une trame " + c.origine.type + " finie ! " + f);
+
+			default:
+				throw new ProtocolException("ID conversation inconnu : " + f.id + ". " + f);
 		}
+	}
 
-		throw new ProtocolException("ID conversation inconnu : " + f.id + ". " + f);
+	/**
+	 * Une conversation est terminée : son ID sera libéré à sa date de mort
+	 * 
+	 * @param c
+	 */
+	private void ferme(Conversation c)
+	{
+		c.setDeathDate(); // tes jours sont comptés…
+		c.etat = Etat.FERMEE;
+		closedFrames.add(c);
 	}
 
 	/**
 	 * Lit une frame depuis la série
 	 * Cette méthode est bloquante
+	 * Le message est copié d'un bloc depuis le buffer de réception dans la
+	 * trame réutilisable "frame"
 	 * 
 	 * @return
 	 * @throws MissingCharacterException
@@ -317,8 +316,7 @@ public class SerieCoucheTrame implements Service, SerialClass
 	 */
 	private IncomingFrame readFrame() throws MissingCharacterException, IncorrectChecksumException, IllegalArgumentException, InterruptedException, ClosedSerialException
 	{
-		int code, id, longueur, checksum;
-		int[] message;
+		int code, id, longueur, checksum, somme;
 		synchronized(serieInput)
 		{
 			// Attente des données…
@@ -337,12 +335,11 @@ public class SerieCoucheTrame implements Service, SerialClass
 				throw new IllegalArgumentException("Trame EXECUTION_BEGIN de longueur incorrecte (" + longueur + ")");
 
 			id = serieInput.read();
-			message = new int[longueur - 4];
-			for(int i = 0; i < message.length; i++)
-				message[i] = serieInput.read();
+			somme = serieInput.read(frame.message, longueur - 4);
 			checksum = serieInput.read();
 		}
-		return new IncomingFrame(code, id, checksum, longueur, message);
+		frame.update(code, id, checksum, longueur, somme);
+		return frame;
 	}
 
 	/**
@@ -355,22 +352,19 @@ public class SerieCoucheTrame implements Service, SerialClass
 	{
 		// On attend de clore les conversations
 		int nb = 0;
-		while((!waitingFrames.isEmpty() || !pendingLongFrames.isEmpty()) && nb < 5)
+		while((!waitingFrames.isEmpty() || nbPendingLongFrames > 0) && nb < 5)
 		{
 			if(nb == 0)
 				log.debug("On attend la fin des conversations série…");
 			Thread.sleep(100);
 			nb++;
 		}
-		for(Integer id : waitingFrames)
-		{
-			Conversation c = conversations[id];
-			log.warning("Waiting short frame : "+c.origine);
-		}
-		for(Integer id : pendingLongFrames)
+		for(Conversation c : conversations)
 		{
-			Conversation c = conversations[id];
-			log.warning("Pending long frame : "+c.origine);
+			if(c.etat == Etat.ATTENTE)
+				log.warning("Waiting short frame : "+c.origine);
+			else if(c.etat == Etat.EN_COURS)
+				log.warning("Pending long frame : "+c.origine);
 		}
 		serieOutput.close();
 	}
@@ -380,63 +374,64 @@ public class SerieCoucheTrame implements Service, SerialClass
 	 */
 
 	/**
-	 * Renvoie le temps avant qu'une trame doive être renvoyée (timeout sinon)
+	 * Renvoie la prochaine échéance (renvoi ou mort d'une trame), en
+	 * System.nanoTime(). Les files sont triées par échéance, il suffit de
+	 * regarder leur tête. On ne dort jamais plus qu'un timeout.
 	 * 
 	 * @return
 	 */
-	public synchronized int timeBeforeResend()
+	public synchronized long getProchaineEcheance()
 	{
-		int out;
-		if(!waitingFrames.isEmpty())
-			out = conversations[waitingFrames.getFirst()].timeBeforeResend();
-		else
-			out = timeout;
-		return Math.max(out, 0); // il faut envoyer un temps positif
+		long out = System.nanoTime() + timeout;
+		if(!waitingFrames.isEmpty() && !waitingFrames.getFirst().isEnvoiEnCours() && waitingFrames.getFirst().getResendDate() - out < 0)
+			out = waitingFrames.getFirst().getResendDate();
+		if(!closedFrames.isEmpty() && closedFrames.getFirst().getDeathDate() - out < 0)
+			out = closedFrames.getFirst().getDeathDate();
+		return out;
 	}
 
 	/**
-	 * Renvoie le temps avant qu'une trame fermée soit vraiment détruite
+	 * Dort jusqu'à la prochaine échéance. Une trame qui vient d'être envoyée
+	 * réveille ce thread.
 	 * 
-	 * @return
+	 * @throws InterruptedException
 	 */
-	public synchronized int timeBeforeDeath()
+	public void attendProchaineEcheance() throws InterruptedException
 	{
-		int out;
-		if(!closedFrames.isEmpty())
-			out = conversations[closedFrames.getFirst()].timeBeforeDeath();
-		else
-			out = 2 * timeout;
-		return Math.max(out, 0); // il faut envoyer un temps positif
+		echeancier.attend(getProchaineEcheance());
 	}
 
 	/**
-	 * Renvoie la trame la plus vieille qui en a besoin (possiblement aucune)
+	 * Renvoie toutes les trames qui en ont besoin, de la plus vieille à la
+	 * plus récente (possiblement aucune)
 	 * 
 	 * @throws InterruptedException
 	 * @throws ClosedSerialException 
 	 */
 	public void resend() throws InterruptedException, ClosedSerialException
 	{
-		Conversation trame = null;
-
-		synchronized(this)
+		while(true)
 		{
-			if(!waitingFrames.isEmpty() && conversations[waitingFrames.getFirst()].needResend())
+			Conversation trame = null;
+
+			synchronized(this)
 			{
-				int id = waitingFrames.poll();
-				trame = conversations[id];
-				// On remet à la fin
-				waitingFrames.add(id);
+				if(!waitingFrames.isEmpty() && waitingFrames.getFirst().needResend())
+				{
+					trame = waitingFrames.poll();
+					trame.setEnvoiEnCours();
+					// On remet à la fin
+					waitingFrames.add(trame);
+				}
 			}
-		}
 
-		if(trame != null)
-		{
-			log.debug("Une trame est renvoyée : " + trame.getFirstTrame(), Verbose.SERIE.masque);
+			if(trame == null)
+				return;
+
+			if(log.shouldLog(Verbose.SERIE.masque))
+				log.debug("Une trame est renvoyée : " + trame.getFirstTrame(), Verbose.SERIE.masque);
 
-			serieOutput.add(trame, trame.getFirstTrame().trame, trame.getFirstTrame().tailleTrame);
-			// trame.updateResendDate(); // on remet la date de renvoi à plus
-			// tard
+			serieOutput.add(trame, trame.getFirstTrame());
 		}
 	}
 
@@ -445,12 +440,9 @@ public class SerieCoucheTrame implements Service, SerialClass
 	 */
 	public synchronized void kill()
 	{
-		while(!closedFrames.isEmpty() && conversations[closedFrames.getFirst()].needDeath())
-		{
-			int id = closedFrames.getFirst();
-			conversations[id].libre = true; // cet ID est maintenant libre
-			closedFrames.removeFirst();
-		}
+		while(!closedFrames.isEmpty() && closedFrames.getFirst().needDeath())
+			closedFrames.poll().etat = Etat.LIBRE; // cet ID est maintenant
+													// libre
 	}
 
 	public void init() throws InterruptedException
@@ -0,0 +1,558 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package serie;
+
+import java.nio.ByteBuffer;
+import capteurs.CapteursRobot;
+import config.Config;
+import config.ConfigInfo;
+import container.Service;
+import container.dependances.SerialClass;
+import serie.SerialProtocol.InOrder;
+import serie.SerialProtocol.OutOrder;
+import serie.trame.Frame.IncomingCode;
+import serie.trame.Frame.OutgoingCode;
+import utils.Log;
+import utils.Log.Verbose;
+
+/**
+ * Simulateur en mémoire du bas niveau
+ * Il reçoit les octets que la Java envoie sur la série et répond avec les
+ * vraies trames du protocole : acquittements, EXECUTION_BEGIN/END et
+ * STATUS_UPDATE. Le robot simulé suit la trajectoire envoyée à la vitesse
+ * demandée. Les mesures des capteurs sont injectées par setMesures.
+ * Permet de faire tourner toute la pile Java sans la carte.
+ * 
+ * Seul ThreadSimulateurBasNiveau exécute le simulateur : les trames sont
+ * traitées sans verrou, et les réponses sont écrites dans
+ * BufferIncomingBytes depuis ce thread (comme le ferait le listener).
+ * 
+ * @author pf
+ *
+ */
+
+public class SimulateurBasNiveau implements Service, SerialClass
+{
+	protected Log log;
+	private BufferIncomingBytes buffer;
+	private Config config;
+	private boolean actif;
+
+	private static final int PERIODE = 5; // période de simulation (ms)
+	private static final int DUREE_MATCH = 90000; // durée du match (ms)
+	private static final int DUREE_ACTIONNEUR = 300; // durée d'un mouvement
+														// d'actionneur (ms)
+	private static final int DEUX_PI_MILLI = (int) Math.round(2000 * Math.PI);
+
+	// Les octets reçus, pas encore traités
+	private ByteBuffer entree = ByteBuffer.allocate(16384);
+	private byte[] recus = new byte[16384];
+
+	// La trame en cours de réception
+	private int[] trame = new int[256];
+	private int nbRecus = 0;
+
+	// La trame à envoyer
+	private ByteBuffer sortie = ByteBuffer.allocate(256);
+	private int[] reponse = new int[251];
+
+	private OutOrder[] ordres = new OutOrder[256];
+	private boolean[] longEnCours = new boolean[256];
+
+	// Fins d'ordres longs programmées
+	private long[] dateFin = new long[256];
+	private int[] codeFin = new int[256];
+	private int nbFins = 0;
+
+	// La trajectoire
+	private double[] pointX = new double[256], pointY = new double[256], pointO = new double[256];
+	private boolean[] pointStop = new boolean[256];
+	private boolean[] pointValide = new boolean[256];
+	private int indexCourant = 0; // le prochain point à atteindre
+	private int idTrajectoire = -1;
+	private double vitesse = 0; // en mm/ms
+
+	// Le robot simulé
+	private double x = 0, y = 1800, orientation = -Math.PI / 3;
+
+	// Le stream des capteurs
+	private int idStream = -1;
+	private int periodeStream, prescaler, compteurStream;
+	private long prochainStatus;
+
+	private volatile int[] mesures = new int[CapteursRobot.values.length]; // en
+																			// mm
+	private long derniereSimulation = System.currentTimeMillis();
+
+	public SimulateurBasNiveau(Log log, BufferIncomingBytes buffer, Config config)
+	{
+		this.log = log;
+		this.buffer = buffer;
+		this.config = config;
+		actif = config.getBoolean(ConfigInfo.SIMULE_BAS_NIVEAU) && !config.getBoolean(ConfigInfo.SIMULE_SERIE);
+		for(OutOrder o : OutOrder.values())
+			ordres[o.code & 0xFF] = o;
+		if(actif)
+			log.critical("BAS NIVEAU SIMULÉ !");
+	}
+
+	public boolean isActif()
+	{
+		return actif;
+	}
+
+	/**
+	 * Injecte les mesures des capteurs (en mm, dans l'ordre de CapteursRobot),
+	 * qui seront envoyées avec les prochains STATUS_UPDATE
+	 * 
+	 * @param mesures
+	 */
+	public void setMesures(int[] mesures)
+	{
+		this.mesures = mesures.clone();
+	}
+
+	/**
+	 * Reçoit les octets envoyés par la Java. Les morceaux sont consommés comme
+	 * par une écriture sur la série.
+	 * 
+	 * @param morceaux
+	 * @param nb
+	 */
+	public synchronized void recoit(ByteBuffer[] morceaux, int nb)
+	{
+		for(int i = 0; i < nb; i++)
+		{
+			if(morceaux[i].remaining() > entree.remaining())
+			{
+				log.critical("Overflow du buffer de réception du simulateur !");
+				morceaux[i].position(morceaux[i].limit());
+			}
+			else
+				entree.put(morceaux[i]);
+		}
+		notify();
+	}
+
+	/**
+	 * Attend que des octets arrivent, ou la prochaine période de simulation
+	 * 
+	 * @throws InterruptedException
+	 */
+	public synchronized void attend() throws InterruptedException
+	{
+		if(entree.position() == 0)
+			wait(PERIODE);
+	}
+
+	/**
+	 * Traite les octets reçus et fait avancer la simulation
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void execute() throws InterruptedException
+	{
+		int nb;
+		synchronized(this)
+		{
+			entree.flip();
+			nb = entree.remaining();
+			entree.get(recus, 0, nb);
+			entree.clear();
+		}
+
+		for(int i = 0; i < nb; i++)
+			ajouteOctet(recus[i] & 0xFF);
+
+		long date = System.currentTimeMillis();
+		avance(date - derniereSimulation);
+		derniereSimulation = date;
+
+		if(nbFins > 0)
+			for(int id = 0; id < 256; id++)
+				if(dateFin[id] != 0 && dateFin[id] <= date)
+				{
+					dateFin[id] = 0;
+					nbFins--;
+					if(codeFin[id] < 0)
+						termine(id, 0);
+					else
+					{
+						reponse[0] = codeFin[id];
+						termine(id, 1);
+					}
+				}
+
+		if(idStream >= 0 && date >= prochainStatus)
+		{
+			prochainStatus = date + periodeStream;
+			envoieStatus(compteurStream++ % prescaler == 0);
+		}
+	}
+
+	/**
+	 * RÉCEPTION DES TRAMES
+	 */
+
+	private void ajouteOctet(int octet)
+	{
+		if(nbRecus == 0 && octet != (OutgoingCode.NEW_ORDER.code & 0xFF) && octet != (OutgoingCode.END_ORDER.code & 0xFF) && octet != (OutgoingCode.VALUE_REQUEST.code & 0xFF))
+		{
+			log.warning("Simulateur : octet inattendu " + octet);
+			return;
+		}
+
+		trame[nbRecus++] = octet;
+
+		if(nbRecus == 2 && (octet < 4 || (trame[0] != (OutgoingCode.END_ORDER.code & 0xFF) && octet < 5)))
+		{
+			log.warning("Simulateur : longueur de trame incorrecte (" + octet + ")");
+			nbRecus = 0;
+		}
+		else if(nbRecus >= 2 && nbRecus == trame[1])
+		{
+			nbRecus = 0;
+			int somme = 0;
+			for(int i = 0; i < trame[1] - 1; i++)
+				somme += trame[i];
+			if((somme & 0xFF) != trame[trame[1] - 1])
+				log.warning("Simulateur : checksum incorrect");
+			else
+				traiteTrame();
+		}
+	}
+
+	private void traiteTrame()
+	{
+		int id = trame[2];
+
+		if(trame[0] == (OutgoingCode.END_ORDER.code & 0xFF))
+		{
+			longEnCours[id] = false;
+			return;
+		}
+
+		OutOrder o = ordres[trame[3]];
+		if(o == null)
+		{
+			log.warning("Simulateur : ordre inconnu " + trame[3]);
+			return;
+		}
+
+		log.debug("Simulateur : " + o + " reçu (id " + id + ")", Verbose.SERIE.masque);
+
+		if(trame[0] == (OutgoingCode.VALUE_REQUEST.code & 0xFF))
+			envoie(IncomingCode.VALUE_ANSWER, id, executeCourt(o, 4, trame[1] - 5));
+		else if(longEnCours[id])
+			envoie(IncomingCode.EXECUTION_BEGIN, id, 0); // trame renvoyée
+		else
+		{
+			longEnCours[id] = true;
+			envoie(IncomingCode.EXECUTION_BEGIN, id, 0);
+			executeLong(o, id, 4);
+		}
+	}
+
+	/**
+	 * Exécute un ordre court et renvoie la taille de la réponse
+	 * 
+	 * @param o
+	 * @param debut
+	 * @param taille
+	 * @return
+	 */
+	private int executeCourt(OutOrder o, int debut, int taille)
+	{
+		switch(o)
+		{
+			case ASK_COLOR:
+				// couleur sans symétrie si elle est inconnue
+				Boolean symetrie = config.getSymmetry();
+				if(symetrie != null && symetrie)
+					reponse[0] = InOrder.COULEUR_BLEU.codeInt;
+				else
+					reponse[0] = InOrder.COULEUR_JAUNE.codeInt;
+				return 1;
+
+			case SEND_ARC:
+			{
+				int index = trame[debut];
+				for(int k = debut + 1; k + 7 <= debut + taille; k += 7)
+				{
+					ajoutePoint(index, lisX(k), lisY(k), lisShort(k + 3), lisShort(k + 5));
+					index = (index + 1) & 0xFF;
+				}
+				return 0;
+			}
+
+			case SEND_ARC_DELTA:
+			{
+				// même reconstruction que le bas niveau
+				int index = trame[debut];
+				int px = lisX(debut + 1), py = lisY(debut + 1), po = lisShort(debut + 4);
+				ajoutePoint(index, px, py, po, lisShort(debut + 6));
+				for(int k = debut + 8; k + 5 <= debut + taille; k += 5)
+				{
+					index = (index + 1) & 0xFF;
+					px += (byte) trame[k];
+					py += (byte) trame[k + 1];
+					po += (byte) trame[k + 2];
+					if(po < 0)
+						po += DEUX_PI_MILLI;
+					else if(po >= DEUX_PI_MILLI)
+						po -= DEUX_PI_MILLI;
+					ajoutePoint(index, px, py, po, lisShort(k + 3));
+				}
+				return 0;
+			}
+
+			case SET_MAX_SPEED:
+				vitesse = Math.abs((short) lisShort(debut)) / 1000.;
+				return 0;
+
+			case SET_POSITION:
+				x = lisX(debut) - 1500;
+				y = lisY(debut) - 1000;
+				orientation = lisShort(debut + 3) / 1000.;
+				return 0;
+
+			case EDIT_POSITION:
+				x += lisX(debut) - 1500;
+				y += lisY(debut) - 1000;
+				orientation += lisShort(debut + 3) / 1000.;
+				return 0;
+
+			case STOP_STREAM_ALL:
+				if(idStream >= 0)
+				{
+					termine(idStream, 0);
+					idStream = -1;
+				}
+				return 0;
+
+			case BATCH:
+				for(int k = debut; k + 2 <= debut + taille; k += 2 + trame[k + 1])
+				{
+					OutOrder sousOrdre = ordres[trame[k]];
+					if(sousOrdre != null)
+						executeCourt(sousOrdre, k + 2, trame[k + 1]);
+				}
+				return 0;
+
+			default:
+				// PING, SET_SENSOR_MODE, SET_CURVATURE : rien à simuler
+				return 0;
+		}
+	}
+
+	/**
+	 * Exécute un ordre long (son EXECUTION_BEGIN est déjà parti)
+	 * 
+	 * @param o
+	 * @param id
+	 * @param debut
+	 */
+	private void executeLong(OutOrder o, int id, int debut)
+	{
+		switch(o)
+		{
+			case FOLLOW_TRAJECTORY:
+				vitesse = Math.abs((short) lisShort(debut)) / 1000.;
+				idTrajectoire = id;
+				if(!pointValide[indexCourant])
+					termineTrajectoire(InOrder.PLUS_DE_POINTS);
+				break;
+
+			case STOP:
+				if(idTrajectoire >= 0)
+					termineTrajectoire(InOrder.STOP_REQUIRED);
+				termine(id, 0);
+				break;
+
+			case START_STREAM_ALL:
+				idStream = id;
+				periodeStream = lisShort(debut);
+				prescaler = Math.max(1, trame[debut + 2]);
+				compteurStream = 0;
+				prochainStatus = System.currentTimeMillis();
+				break;
+
+			case WAIT_FOR_JUMPER:
+				// le jumper est retiré tout de suite
+				termine(id, 0);
+				break;
+
+			case START_MATCH_CHRONO:
+				programmeFin(id, InOrder.MATCH_FINI.codeInt, DUREE_MATCH);
+				break;
+
+			default:
+				// actionneurs, scan…
+				programmeFin(id, InOrder.ACT_SUCCESS.codeInt, DUREE_ACTIONNEUR);
+				break;
+		}
+	}
+
+	private void programmeFin(int id, int code, int duree)
+	{
+		if(dateFin[id] == 0)
+			nbFins++;
+		dateFin[id] = System.currentTimeMillis() + duree;
+		codeFin[id] = code;
+	}
+
+	/**
+	 * SIMULATION DU ROBOT
+	 */
+
+	private void ajoutePoint(int index, int codeX, int codeY, int codeO, int courbure)
+	{
+		pointX[index] = codeX - 1500;
+		pointY[index] = codeY - 1000;
+		pointO[index] = codeO / 1000.;
+		pointStop[index] = (courbure & 0x8000) != 0;
+		pointValide[index] = true;
+	}
+
+	/**
+	 * Fait avancer le robot sur la trajectoire pendant "duree" ms
+	 * 
+	 * @param duree
+	 */
+	private void avance(long duree)
+	{
+		double reste = vitesse * duree;
+		while(idTrajectoire >= 0)
+		{
+			if(!pointValide[indexCourant])
+			{
+				termineTrajectoire(InOrder.PLUS_DE_POINTS);
+				return;
+			}
+
+			double dx = pointX[indexCourant] - x;
+			double dy = pointY[indexCourant] - y;
+			double d = Math.hypot(dx, dy);
+			if(d > reste)
+			{
+				x += dx * reste / d;
+				y += dy * reste / d;
+				return;
+			}
+
+			// le point est atteint
+			reste -= d;
+			x = pointX[indexCourant];
+			y = pointY[indexCourant];
+			orientation = pointO[indexCourant];
+			pointValide[indexCourant] = false;
+			boolean stop = pointStop[indexCourant];
+			indexCourant = (indexCourant + 1) & 0xFF;
+			if(stop)
+				termineTrajectoire(InOrder.ROBOT_ARRIVE);
+		}
+	}
+
+	private void termineTrajectoire(InOrder code)
+	{
+		log.debug("Simulateur : fin de trajectoire " + code + " (index " + indexCourant + ")", Verbose.SERIE.masque);
+		reponse[0] = code.codeInt;
+		reponse[1] = indexCourant;
+		termine(idTrajectoire, 2);
+		idTrajectoire = -1;
+	}
+
+	/**
+	 * ENVOI DES TRAMES
+	 */
+
+	private void envoieStatus(boolean avecCapteurs)
+	{
+		int codeX = Math.max(0, Math.min(4095, (int) Math.round(x) + 1500));
+		int codeY = Math.max(0, Math.min(4095, (int) Math.round(y) + 1000));
+		double o = orientation % (2 * Math.PI);
+		if(o < 0)
+			o += 2 * Math.PI;
+		int codeO = (int) Math.round(o * 1000);
+		reponse[0] = codeX >> 4;
+		reponse[1] = ((codeX << 4) + (codeY >> 8)) & 0xFF;
+		reponse[2] = codeY & 0xFF;
+		reponse[3] = codeO >> 8;
+		reponse[4] = codeO & 0xFF;
+		reponse[5] = indexCourant;
+		int taille = 6;
+		if(avecCapteurs)
+		{
+			reponse[6] = 150; // roues droites
+			reponse[7] = 150;
+			int[] m = mesures;
+			for(int i = 0; i < m.length; i++)
+				reponse[8 + i] = Math.min(255, m[i] / CapteursRobot.values[i].type.conversion);
+			taille = 8 + m.length;
+		}
+		envoie(IncomingCode.STATUS_UPDATE, idStream, taille);
+	}
+
+	/**
+	 * Envoie l'EXECUTION_END d'un ordre long
+	 * 
+	 * @param id
+	 * @param taille
+	 */
+	private void termine(int id, int taille)
+	{
+		envoie(IncomingCode.EXECUTION_END, id, taille);
+	}
+
+	/**
+	 * Envoie une trame dont les données sont les "taille" premiers octets de
+	 * "reponse"
+	 * 
+	 * @param code
+	 * @param id
+	 * @param taille
+	 */
+	private void envoie(IncomingCode code, int id, int taille)
+	{
+		sortie.clear();
+		sortie.put((byte) code.code);
+		sortie.put((byte) (taille + 4));
+		sortie.put((byte) id);
+		int somme = code.code + taille + 4 + id;
+		for(int i = 0; i < taille; i++)
+		{
+			sortie.put((byte) reponse[i]);
+			somme += reponse[i];
+		}
+		sortie.put((byte) somme);
+		sortie.flip();
+		buffer.ajoute(sortie);
+	}
+
+	private int lisX(int k)
+	{
+		return (trame[k] << 4) + (trame[k + 1] >> 4);
+	}
+
+	private int lisY(int k)
+	{
+		return ((trame[k + 1] & 0x0F) << 8) + trame[k + 2];
+	}
+
+	private int lisShort(int k)
+	{
+		return (trame[k] << 8) + trame[k + 1];
+	}
+}
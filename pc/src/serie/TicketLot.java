@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package serie;
+
+import java.util.List;
+import serie.SerialProtocol.InOrder;
+
+/**
+ * Le ticket d'un BATCH : la réponse est transmise aux tickets de chacun des
+ * ordres regroupés
+ * 
+ * @author pf
+ *
+ */
+
+public class TicketLot extends Ticket
+{
+	private Ticket[] tickets;
+
+	public TicketLot(List<Ticket> tickets)
+	{
+		this.tickets = tickets.toArray(new Ticket[tickets.size()]);
+	}
+
+	@Override
+	public synchronized void set(InOrder order)
+	{
+		super.set(order);
+		for(Ticket t : tickets)
+			t.set(order);
+	}
+}
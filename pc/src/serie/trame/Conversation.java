@@ -28,23 +28,47 @@ import serie.SerialProtocol.OutOrder;
 
 public class Conversation
 {
-	private long deathDate; // date d'envoi + 2*timeout
+	// les dates sont en System.nanoTime()
+	private long deathDate; // date de fermeture + 20*timeout
 	private long resendDate; // date d'envoi + timeout
+	private boolean envoiEnCours; // la trame attend d'être envoyée : pas de
+									// date de renvoi
 	public Ticket ticket;
-	public boolean libre = true;
+	public Etat etat = Etat.LIBRE;
+	public final int id;
 	private OutgoingFrame firstFrame;
-	private int timeout;
+	private long timeout; // en ns
 	public OutOrder origine;
+	private Echeancier echeancier;
+
+	// chaînage dans les files de SerieCoucheTrame
+	Conversation precedent, suivant;
+
+	/**
+	 * L'état d'une conversation, qui détermine la file dans laquelle elle est
+	 * 
+	 * @author pf
+	 *
+	 */
+	public enum Etat
+	{
+		LIBRE, // inutilisée
+		ATTENTE, // envoyée, on attend EXECUTION_BEGIN ou VALUE_ANSWER
+		EN_COURS, // ordre long commencé, on attend EXECUTION_END
+		FERMEE; // terminée, l'ID sera libéré à sa date de mort
+	}
 
 	/**
 	 * Construction d'une conversation
 	 * 
 	 * @param id
 	 */
-	public Conversation(int id, Config config)
+	public Conversation(int id, Config config, Echeancier echeancier)
 	{
+		this.id = id;
+		this.echeancier = echeancier;
 		firstFrame = new OutgoingFrame(id);
-		timeout = config.getInt(ConfigInfo.SERIAL_TIMEOUT);
+		timeout = config.getInt(ConfigInfo.SERIAL_TIMEOUT) * 1000000L;
 	}
 
 	/**
@@ -52,16 +76,27 @@ public class Conversation
 	 */
 	public void setDeathDate()
 	{
-		deathDate = System.currentTimeMillis() + 20 * timeout;
+		deathDate = System.nanoTime() + 20 * timeout;
 	}
 
 	/**
 	 * Mise à jour de la date de renvoi.
-	 * A chaque fois que la trame est renvoyée, on remet à jour cette date.
+	 * A chaque fois que la trame est envoyée, on remet à jour cette date.
 	 */
 	public void updateResendDate()
 	{
-		resendDate = System.currentTimeMillis() + timeout;
+		resendDate = System.nanoTime() + timeout;
+		envoiEnCours = false;
+		echeancier.signale();
+	}
+
+	/**
+	 * La trame va être (r)envoyée : pas de renvoi avant qu'elle ne soit
+	 * vraiment partie
+	 */
+	public void setEnvoiEnCours()
+	{
+		envoiEnCours = true;
 	}
 
 	/**
@@ -71,7 +106,7 @@ public class Conversation
 	 */
 	public boolean needResend()
 	{
-		return resendDate < System.currentTimeMillis();
+		return !envoiEnCours && resendDate - System.nanoTime() <= 0;
 	}
 
 	/**
@@ -81,27 +116,32 @@ public class Conversation
 	 */
 	public boolean needDeath()
 	{
-		return deathDate < System.currentTimeMillis();
+		return deathDate - System.nanoTime() <= 0;
 	}
 
 	/**
-	 * Récupère le temps restant avant son réenvoi
+	 * La date de renvoi (en ns), si la trame a été envoyée
 	 * 
 	 * @return
 	 */
-	public int timeBeforeResend()
+	public long getResendDate()
+	{
+		return resendDate;
+	}
+
+	public boolean isEnvoiEnCours()
 	{
-		return (int) (resendDate - System.currentTimeMillis());
+		return envoiEnCours;
 	}
 
 	/**
-	 * Récupère le temps restant avant sa mort
+	 * La date de mort (en ns)
 	 * 
 	 * @return
 	 */
-	public int timeBeforeDeath()
+	public long getDeathDate()
 	{
-		return (int) (deathDate - System.currentTimeMillis());
+		return deathDate;
 	}
 
 	public OutgoingFrame getFirstTrame()
@@ -114,13 +154,8 @@ public class Conversation
 		origine = o.ordre;
 		ticket = o.ticket;
 		firstFrame.update(o);
-		resendDate = System.currentTimeMillis() + 1000000; // date très très
-															// loin. C'est en
-															// attendant que la
-															// trame soit
-															// envoyée et qu'on
-															// puisse lui
-															// attribuer sa
-															// vraie resendDate
+		envoiEnCours = true; // en attendant que la trame soit envoyée et
+								// qu'on puisse lui attribuer sa vraie
+								// resendDate
 	}
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package serie.trame;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Permet au thread des timeouts de dormir jusqu'à la prochaine échéance (en
+ * temps monotone, System.nanoTime()) et d'être réveillé dès qu'une échéance
+ * plus proche apparaît
+ * 
+ * @author pf
+ *
+ */
+
+public class Echeancier
+{
+	private volatile Thread attente = null;
+
+	/**
+	 * Attend jusqu'à l'échéance, ou jusqu'à un appel à signale(). Peut aussi
+	 * se réveiller plus tôt sans raison : l'appelant doit vérifier ce qu'il y
+	 * a à faire.
+	 * 
+	 * @param echeance
+	 * @throws InterruptedException
+	 */
+	public void attend(long echeance) throws InterruptedException
+	{
+		attente = Thread.currentThread();
+		long reste = echeance - System.nanoTime();
+		if(reste > 0)
+			LockSupport.parkNanos(this, reste);
+		if(Thread.interrupted())
+			throw new InterruptedException();
+	}
+
+	/**
+	 * Réveille le thread qui attend (ou lui évite d'attendre à son prochain
+	 * appel)
+	 */
+	public void signale()
+	{
+		Thread t = attente;
+		if(t != null)
+			LockSupport.unpark(t);
+	}
+}
@@ -23,7 +23,7 @@ package serie.trame;
 
 public class EndOrderFrame extends OutgoingFrame
 {
-	private int base;
+	private final int base;
 
 	/**
 	 * Trame de END_ORDER
@@ -31,16 +31,12 @@ public class EndOrderFrame extends OutgoingFrame
 	public EndOrderFrame()
 	{
 		super();
-		trame[0] = OutgoingCode.END_ORDER.code;
-		trame[1] = 4; // longueur de la trame
-
-		base = trame[0] + trame[1];
-
+		base = OutgoingCode.END_ORDER.code + tailleTrame;
 	}
 
 	public void updateId(int id)
 	{
-		trame[2] = (byte) id;
-		trame[3] = (byte) (base + id); // checksum
+		this.id = id;
+		checksum = (byte) (base + id);
 	}
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package serie.trame;
+
+/**
+ * File de conversations, chaînée directement dans les conversations (pas
+ * d'allocation, pas d'Integer). Ajout en fin, retrait n'importe où en temps
+ * constant. Une conversation n'est que dans une file à la fois.
+ * 
+ * @author pf
+ *
+ */
+
+public class FileConversations
+{
+	private Conversation premier = null;
+	private Conversation dernier = null;
+	private int taille = 0;
+
+	public void add(Conversation c)
+	{
+		c.precedent = dernier;
+		c.suivant = null;
+		if(dernier == null)
+			premier = c;
+		else
+			dernier.suivant = c;
+		dernier = c;
+		taille++;
+	}
+
+	public void remove(Conversation c)
+	{
+		if(c.precedent == null)
+			premier = c.suivant;
+		else
+			c.precedent.suivant = c.suivant;
+		if(c.suivant == null)
+			dernier = c.precedent;
+		else
+			c.suivant.precedent = c.precedent;
+		c.precedent = null;
+		c.suivant = null;
+		taille--;
+	}
+
+	/**
+	 * Retire et renvoie la première conversation
+	 * 
+	 * @return
+	 */
+	public Conversation poll()
+	{
+		Conversation c = premier;
+		if(c != null)
+			remove(c);
+		return c;
+	}
+
+	public Conversation getFirst()
+	{
+		return premier;
+	}
+
+	public boolean isEmpty()
+	{
+		return premier == null;
+	}
+
+	public int size()
+	{
+		return taille;
+	}
+}
@@ -18,6 +18,7 @@ import exceptions.serie.IncorrectChecksumException;
 
 /**
  * Une trame qu'on a reçue
+ * Il n'y en a qu'une, réutilisée pour chaque lecture
  * 
  * @author pf
  *
@@ -27,22 +28,22 @@ public class IncomingFrame extends Frame
 {
 	public IncomingCode code;
 
-	public int[] message;
+	public final int[] message = new int[251]; // longueur maximale d'une
+												// trame, moins l'en-tête et
+												// le checksum
+	public int taille;
 
 	/**
-	 * Constructeur d'une trame reçue
-	 * 
-	 * @return
+	 * Met à jour la trame reçue, dont le message a déjà été copié dans
+	 * "message".
+	 * "somme" est la somme des octets du message, calculée pendant la copie
 	 */
-	public IncomingFrame(int code, int id, int checksum, int longueur, int[] message) throws IncorrectChecksumException, IllegalArgumentException
+	public void update(int code, int id, int checksum, int longueur, int somme) throws IncorrectChecksumException, IllegalArgumentException
 	{
 		this.id = id;
-		this.message = message;
+		taille = longueur - 4;
 
-		int c = code + id + longueur;
-		for(int i = 0; i < message.length; i++)
-			c += message[i];
-		c = c & 0xFF;
+		int c = (code + id + longueur + somme) & 0xFF;
 
 		/**
 		 * On cherche à quel type de trame correspond la valeur reçue
@@ -68,11 +69,11 @@ public class IncomingFrame extends Frame
 	@Override
 	public String toString()
 	{
-		if(message.length == 0)
+		if(taille == 0)
 			return "Incoming : " + code + " " + id + " (pas de données)";
 
 		String m = "Incoming : " + code + " " + id + " // ";
-		for(int i = 0; i < message.length; i++)
+		for(int i = 0; i < taille; i++)
 		{
 			String s = Integer.toHexString(message[i]).toUpperCase();
 			if(s.length() == 1)
@@ -61,4 +61,9 @@ public class Order
 		this(null, ordre, t);
 	}
 
+	public int getTailleMessage()
+	{
+		return message == null ? 0 : message.remaining();
+	}
+
 }
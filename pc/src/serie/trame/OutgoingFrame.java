@@ -14,8 +14,13 @@
 
 package serie.trame;
 
+import java.nio.ByteBuffer;
+
 /**
  * Trame qu'on envoie
+ * La trame n'a pas de buffer propre : elle garde l'en-tête, le checksum et
+ * une référence vers le message de l'ordre, et se sérialise directement
+ * dans le buffer d'envoi (y compris en cas de renvoi)
  * 
  * @author pf
  *
@@ -24,8 +29,11 @@ package serie.trame;
 public class OutgoingFrame extends Frame
 {
 	public OutgoingCode code;
-	public final byte[] trame = new byte[256]; // la taille maximale
 	public int tailleTrame;
+	private byte codeOrdre;
+	private ByteBuffer message; // le message de l'ordre, jamais recopié
+	private int tailleMessage;
+	protected byte checksum;
 
 	protected OutgoingFrame()
 	{
@@ -41,7 +49,6 @@ public class OutgoingFrame extends Frame
 	public OutgoingFrame(int id)
 	{
 		this.id = id;
-		trame[2] = (byte) id;
 	}
 
 	@Override
@@ -50,26 +57,41 @@ public class OutgoingFrame extends Frame
 		if(tailleTrame == 0)
 			return "Outgoing : " + code + " " + id + " (pas de données)";
 
-		String m = "Outgoing : " + code + " " + id + " // ";
-		for(int i = 0; i < tailleTrame; i++)
+		StringBuilder m = new StringBuilder("Outgoing : ").append(code).append(' ').append(id).append(" // ");
+		hexa(m, code.code);
+		hexa(m, (byte) tailleTrame);
+		hexa(m, (byte) id);
+		if(tailleTrame > 4)
 		{
-			String s = Integer.toHexString(trame[i]).toUpperCase();
-			if(s.length() == 1)
-				m += "0" + s + " ";
-			else
-				m += s.substring(s.length() - 2, s.length()) + " ";
+			hexa(m, codeOrdre);
+			for(int i = 0; i < tailleMessage; i++)
+				hexa(m, message.get(i));
 		}
-		return m;
+		hexa(m, checksum);
+		return m.toString();
+	}
+
+	/**
+	 * Ajoute l'octet "b" en hexadécimal (deux chiffres) à "sb"
+	 * 
+	 * @param sb
+	 * @param b
+	 */
+	public static void hexa(StringBuilder sb, byte b)
+	{
+		sb.append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)));
+		sb.append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+		sb.append(' ');
 	}
 
 	/**
 	 * Met à jour la trame à envoyer (NEW_ORDER ou VALUE_REQUEST)
+	 * Le message de l'ordre n'est pas recopié : il ne doit plus être modifié
 	 * 
 	 * @param o
 	 */
 	public void update(Order o)
 	{
-		int tailleMessage;
 		if(o.message == null)
 			tailleMessage = 0;
 		else
@@ -78,20 +100,83 @@ public class OutgoingFrame extends Frame
 		if(tailleTrame > 255)
 			throw new IllegalArgumentException("La trame est trop grande ! (" + tailleTrame + " octets)");
 		code = o.ordre.type == Order.Type.LONG ? OutgoingCode.NEW_ORDER : OutgoingCode.VALUE_REQUEST;
-		trame[0] = code.code;
-		trame[1] = (byte) (tailleTrame);
-
-		trame[3] = o.ordre.code;
-		for(int i = 0; i < tailleMessage; i++)
-			trame[i + 4] = o.message.get();
+		codeOrdre = o.ordre.code;
+		message = o.message;
 
 		/**
-		 * Calcul du checksum
+		 * Calcul du checksum, une fois pour toutes
 		 */
-		int c = 0;
-		for(int i = 0; i < tailleTrame - 1; i++)
-			c += trame[i];
-		trame[tailleTrame - 1] = (byte) (c);
+		int c = code.code + tailleTrame + id + codeOrdre;
+		if(tailleMessage > 0 && message.hasArray())
+		{
+			byte[] tab = message.array();
+			int debut = message.arrayOffset();
+			for(int i = debut; i < debut + tailleMessage; i++)
+				c += tab[i];
+		}
+		else
+			for(int i = 0; i < tailleMessage; i++)
+				c += message.get(i);
+		checksum = (byte) c;
+	}
+
+	/**
+	 * Sérialise la trame dans le buffer circulaire "dest", dont la capacité
+	 * est une puissance de deux, à partir de l'indice "index". Seules des
+	 * écritures absolues sont faites dans "dest".
+	 * 
+	 * @param dest
+	 * @param index
+	 * @return l'indice qui suit le dernier octet écrit
+	 */
+	public final int serialise(ByteBuffer dest, int index)
+	{
+		int masque = dest.capacity() - 1;
+		dest.put(index, code.code);
+		dest.put((index + 1) & masque, (byte) tailleTrame);
+		dest.put((index + 2) & masque, (byte) id);
+		index = (index + 3) & masque;
+		if(tailleTrame > 4)
+		{
+			dest.put(index, codeOrdre);
+			index = (index + 1) & masque;
+			if(tailleMessage > 0)
+				index = copieMessage(dest, index, masque);
+		}
+		dest.put(index, checksum);
+		return (index + 1) & masque;
+	}
+
+	/**
+	 * Copie le message en une ou deux écritures groupées (selon que le buffer
+	 * circulaire reboucle ou non)
+	 * 
+	 * @param dest
+	 * @param index
+	 * @param masque
+	 * @return
+	 */
+	private int copieMessage(ByteBuffer dest, int index, int masque)
+	{
+		if(!message.hasArray())
+		{
+			for(int i = 0; i < tailleMessage; i++)
+				dest.put((index + i) & masque, message.get(i));
+			return (index + tailleMessage) & masque;
+		}
+
+		byte[] tab = message.array();
+		int debut = message.arrayOffset();
+		int l = Math.min(tailleMessage, masque + 1 - index);
+		dest.clear();
+		dest.position(index);
+		dest.put(tab, debut, l);
+		if(l < tailleMessage)
+		{
+			dest.position(0);
+			dest.put(tab, debut + l, tailleMessage - l);
+		}
+		return (index + tailleMessage) & masque;
 	}
 
 }
@@ -20,6 +20,7 @@ import serie.trame.Frame.IncomingCode;
 
 /**
  * Paquet série haut niveau reçu
+ * Les paquets sont réutilisés (voir BufferIncomingOrder)
  * 
  * @author pf
  *
@@ -29,22 +30,33 @@ public class Paquet
 {
 	public OutOrder origine;
 	public IncomingCode code;
-	public int[] message;
+	public final int[] message = new int[251];
+	public int taille;
 	public Ticket ticket;
 
-	public Paquet(int[] message, Ticket ticket, OutOrder origine, IncomingCode code)
+	/**
+	 * Recopie le contenu d'une trame reçue
+	 * 
+	 * @param f
+	 * @param ticket
+	 * @param origine
+	 * @return
+	 */
+	public Paquet update(IncomingFrame f, Ticket ticket, OutOrder origine)
 	{
 		this.origine = origine;
-		this.message = message;
 		this.ticket = ticket;
-		this.code = code;
+		code = f.code;
+		taille = f.taille;
+		System.arraycopy(f.message, 0, message, 0, taille);
+		return this;
 	}
 
 	@Override
 	public String toString()
 	{
 		String aff = "";
-		for(int i = 0; i < message.length; i++)
+		for(int i = 0; i < taille; i++)
 		{
 			int out = message[i];
 			String s = Integer.toHexString(out).toUpperCase();
@@ -18,9 +18,14 @@ import java.lang.reflect.Field;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import capteurs.Capteur;
 import capteurs.CapteursProcess;
+import capteurs.EstimateurCorrection;
+import capteurs.PositionsVues;
 import capteurs.SensorsData;
 import robot.Cinematique;
+import utils.Vec2RO;
+import utils.Vec2RW;
 
 /**
  * Tests unitaires pour les capteurs
@@ -45,12 +50,13 @@ public class JUnit_Capteurs extends JUnit_Test
 /*	@Test
 	public void test_correction_mur() throws Exception
 	{
-		Field f = CapteursProcess.class.getDeclaredField("bufferCorrection");
+		// on regarde combien de mesures de correction ont été intégrées
+		Field f = CapteursProcess.class.getDeclaredField("estimateur");
 		f.setAccessible(true);
-		Cinematique[] buffer = (Cinematique[]) f.get(capteurs);
+		EstimateurCorrection estimateur = (EstimateurCorrection) f.get(capteurs);
 		int[] mesures = { 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100 };
 		Cinematique cinematique = new Cinematique(1280, 500, Math.PI / 2 + 0.03, true, 0);
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 		capteurs.updateObstaclesMobiles(new SensorsData(150, 150, mesures, cinematique));
 		Assert.assertTrue(buffer[0] != null);
 		log.debug(buffer[0]);
@@ -62,27 +68,27 @@ public class JUnit_Capteurs extends JUnit_Test
 	@Test
 	public void test_correction_imprecision_pos() throws Exception
 	{
-		Field f = CapteursProcess.class.getDeclaredField("bufferCorrection");
+		Field f = CapteursProcess.class.getDeclaredField("estimateur");
 		f.setAccessible(true);
-		Cinematique[] buffer = (Cinematique[]) f.get(capteurs);
+		EstimateurCorrection estimateur = (EstimateurCorrection) f.get(capteurs);
 		int[] mesures = { 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100 };
 		Cinematique cinematique = new Cinematique(1250, 500, Math.PI / 2 + 0.03, true, 0);
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 		capteurs.updateObstaclesMobiles(new SensorsData(150, 150, mesures, cinematique));
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 	}
 
 	@Test
 	public void test_correction_imprecision_angle() throws Exception
 	{
-		Field f = CapteursProcess.class.getDeclaredField("bufferCorrection");
+		Field f = CapteursProcess.class.getDeclaredField("estimateur");
 		f.setAccessible(true);
-		Cinematique[] buffer = (Cinematique[]) f.get(capteurs);
+		EstimateurCorrection estimateur = (EstimateurCorrection) f.get(capteurs);
 		int[] mesures = { 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100 };
 		Cinematique cinematique = new Cinematique(1280, 500, Math.PI / 2 + 0.15, true, 0);
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 		capteurs.updateObstaclesMobiles(new SensorsData(150, 150, mesures, cinematique));
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 	}
 
 	/**
@@ -98,9 +104,9 @@ public class JUnit_Capteurs extends JUnit_Test
 		Random r = new Random();
 		double ecartType = 2;
 
-		Field f = CapteursProcess.class.getDeclaredField("bufferCorrection");
+		Field f = CapteursProcess.class.getDeclaredField("estimateur");
 		f.setAccessible(true);
-		Cinematique[] buffer = (Cinematique[]) f.get(capteurs);
+		EstimateurCorrection estimateur = (EstimateurCorrection) f.get(capteurs);
 		int[] mesures = new int[12];
 		for(int k = 0; k < buffer.length; k++)
 		{
@@ -116,27 +122,27 @@ public class JUnit_Capteurs extends JUnit_Test
 	@Test
 	public void test_correction_sans_mur() throws Exception
 	{
-		Field f = CapteursProcess.class.getDeclaredField("bufferCorrection");
+		Field f = CapteursProcess.class.getDeclaredField("estimateur");
 		f.setAccessible(true);
-		Cinematique[] buffer = (Cinematique[]) f.get(capteurs);
+		EstimateurCorrection estimateur = (EstimateurCorrection) f.get(capteurs);
 		int[] mesures = { 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100, 100 };
 		Cinematique cinematique = new Cinematique(300, 500, Math.PI / 2 + 0.03, true, 0);
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 		capteurs.updateObstaclesMobiles(new SensorsData(150, 150, mesures, cinematique));
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 	}
 
 	@Test
 	public void test_correction_coin() throws Exception
 	{
-		Field f = CapteursProcess.class.getDeclaredField("bufferCorrection");
+		Field f = CapteursProcess.class.getDeclaredField("estimateur");
 		f.setAccessible(true);
-		Cinematique[] buffer = (Cinematique[]) f.get(capteurs);
+		EstimateurCorrection estimateur = (EstimateurCorrection) f.get(capteurs);
 		int[] mesures = { 150, 150, 150, 150, 150, 150, 150, 150, 150, 150, 150, 150 };
 		Cinematique cinematique = new Cinematique(1280, 70, Math.PI / 4 + 0.03, true, 0);
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 		capteurs.updateObstaclesMobiles(new SensorsData(150, 150, mesures, cinematique));
-		Assert.assertTrue(buffer[0] == null);
+		Assert.assertEquals(0, estimateur.getNbMesures());
 	}
 
 	@Test
@@ -147,4 +153,55 @@ public class JUnit_Capteurs extends JUnit_Test
 		capteurs.updateObstaclesMobiles(new SensorsData(150, 150, mesures, cinematique));
 	}
 
+	/**
+	 * Le calcul groupé doit donner les mêmes points vus que le calcul capteur
+	 * par capteur
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_positions_vues() throws Exception
+	{
+		Field f = CapteursProcess.class.getDeclaredField("capteurs");
+		f.setAccessible(true);
+		Capteur[] tab = (Capteur[]) f.get(capteurs);
+		Field fOrientation = Capteur.class.getDeclaredField("orientationRelativeRotate");
+		fOrientation.setAccessible(true);
+		Field fPosition = Capteur.class.getDeclaredField("positionRelativeRotate");
+		fPosition.setAccessible(true);
+
+		int[] mesures = new int[tab.length];
+		for(int i = 0; i < tab.length; i++)
+			mesures[i] = (tab[i].distanceMin + tab[i].portee) / 2;
+		SensorsData data = new SensorsData(0.3, -0.2, mesures, new Cinematique(200, 800, 0.7, true, 0));
+		PositionsVues vues = new PositionsVues(tab);
+		vues.calcule(data);
+
+		for(int i = 0; i < tab.length; i++)
+		{
+			tab[i].computePosOrientationRelative(data.cinematique, data.angleRoueGauche, data.angleRoueDroite);
+			Vec2RW attendu = new Vec2RW(mesures[i], fOrientation.getDouble(tab[i]), true);
+			attendu.plus((Vec2RO) fPosition.get(tab[i]));
+			attendu.rotate(data.cinematique.orientationReelle);
+			attendu.plus(data.cinematique.getPosition());
+			Assert.assertTrue(vues.valide[i]);
+			Assert.assertEquals(attendu.getX(), vues.xVu[i], 1e-6);
+			Assert.assertEquals(attendu.getY(), vues.yVu[i], 1e-6);
+		}
+	}
+
+	@Test
+	public void test_estimateur_correction() throws Exception
+	{
+		EstimateurCorrection e = new EstimateurCorrection(50, 0.1, 5, 0.01, 0.2, 0.0005);
+		// mesures bruitées d'une erreur de 10 mm en y et de 0,02 rad
+		for(int i = 0; i < 50; i++)
+			e.integre(0, false, 10 + (i % 2 == 0 ? 3 : -3), true, 0.02 + (i % 2 == 0 ? 0.01 : -0.01));
+		Assert.assertEquals(0, e.get(EstimateurCorrection.X), 0);
+		Assert.assertEquals(10, e.get(EstimateurCorrection.Y), 1);
+		Assert.assertEquals(0.02, e.get(EstimateurCorrection.ORIENTATION), 0.005);
+		Assert.assertTrue(e.getEcartType(EstimateurCorrection.Y) < 5);
+		e.reinit();
+		Assert.assertEquals(0, e.getNbMesures());
+	}
 }
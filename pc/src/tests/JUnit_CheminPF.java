@@ -19,10 +19,25 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import config.ConfigInfo;
+import obstacles.memory.ObstaclesIteratorPresent;
+import obstacles.memory.ObstaclesMemory;
+import obstacles.types.ObstacleCircular;
+import pathfinding.ChronoGameState;
+import pathfinding.KeyPathCache;
 import pathfinding.PFInstruction;
+import pathfinding.PFSpeculatif;
+import pathfinding.PathCache;
+import pathfinding.RealGameState;
 import pathfinding.chemin.CheminPathfinding;
+import pathfinding.chemin.CheminSpeculatif;
+import pathfinding.chemin.GrilleCheminPathfinding;
 import pathfinding.chemin.IteratorCheminPathfinding;
+import pathfinding.dstarlite.gridspace.GridSpace;
 import robot.CinematiqueObs;
+import robot.RobotColor;
+import robot.Speed;
+import scripts.ScriptNames;
+import utils.Vec2RO;
 
 /**
  * Tests unitaires pour le chemin pathfinding
@@ -98,5 +113,159 @@ public class JUnit_CheminPF extends JUnit_Test
 			Assert.assertTrue(!inst.hasRequest());	
 		}
 	}
-	
+
+	@Test
+	public void test_first_collision() throws Exception
+	{
+		int demieLargeurNonDeploye = config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2;
+		int demieLongueurArriere = config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE);
+		int demieLongueurAvant = config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT);
+		int marge = config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT);
+		ObstaclesIteratorPresent iterObstacles = new ObstaclesIteratorPresent(log, container.getService(ObstaclesMemory.class));
+
+		LinkedList<CinematiqueObs> l = new LinkedList<CinematiqueObs>();
+		for(int i = 0; i < 50; i++)
+		{
+			CinematiqueObs c = new CinematiqueObs(demieLargeurNonDeploye, demieLongueurArriere, demieLongueurAvant, marge);
+			c.updateReel(0, 1000 + 20 * i, Math.PI / 2, true, 0);
+			l.add(c);
+		}
+		Assert.assertEquals(-1, CheminPathfinding.getFirstCollision(l, iterObstacles));
+
+		container.getService(GridSpace.class).addObstacleAndRemoveNearbyObstacles(new ObstacleCircular(new Vec2RO(800, 1500), 50));
+		Assert.assertEquals(-1, CheminPathfinding.getFirstCollision(l, iterObstacles));
+
+		container.getService(GridSpace.class).addObstacleAndRemoveNearbyObstacles(new ObstacleCircular(new Vec2RO(0, 1700), 50));
+		int collision = CheminPathfinding.getFirstCollision(l, iterObstacles);
+		Assert.assertTrue(collision > 0 && collision < 35);
+		Assert.assertTrue(new ObstacleCircular(new Vec2RO(0, 1700), 50).isColliding(l.get(collision).obstacle));
+	}
+
+
+	@Test
+	public void test_chemin_speculatif() throws Exception
+	{
+		PFSpeculatif speculatif = container.getService(PFSpeculatif.class);
+		CheminSpeculatif spec = new CheminSpeculatif(speculatif, config);
+		Assert.assertTrue(spec.isObsolete());
+		Assert.assertFalse(speculatif.commence());
+		speculatif.ouvre();
+		Assert.assertFalse(spec.isObsolete());
+		Assert.assertTrue(speculatif.commence());
+
+		// le chemin reçu est copié
+		LinkedList<CinematiqueObs> l = new LinkedList<CinematiqueObs>();
+		CinematiqueObs c = new CinematiqueObs(config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2, config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE), config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT), config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT));
+		c.updateReel(100, 1000, 0, true, 0);
+		l.add(c);
+		spec.addToEnd(l);
+		c.updateReel(200, 1200, 0, true, 0);
+		LinkedList<CinematiqueObs> copie = spec.getPath();
+		Assert.assertEquals(1, copie.size());
+		Assert.assertEquals(100, copie.getFirst().getPosition().getX(), 0.1);
+
+		speculatif.termine();
+		speculatif.ferme();
+		Assert.assertTrue(spec.isObsolete());
+
+		// une recherche normale empêche le calcul spéculatif
+		speculatif.ouvre();
+		speculatif.prend();
+		Assert.assertTrue(spec.isObsolete());
+		Assert.assertFalse(speculatif.commence());
+		speculatif.rend();
+		Assert.assertTrue(speculatif.commence());
+		speculatif.termine();
+		speculatif.ferme();
+	}
+
+	@Test
+	public void test_trajet_speculatif() throws Exception
+	{
+		PFSpeculatif speculatif = container.getService(PFSpeculatif.class);
+		PathCache cache = container.getService(PathCache.class);
+		RealGameState state = container.getService(RealGameState.class);
+		ChronoGameState chrono = container.make(ChronoGameState.class);
+		cache.paths.clear();
+		config.set(ConfigInfo.COULEUR, RobotColor.BLEU);
+
+		// le robot attend un actionneur : le thread spéculatif calcule les
+		// trajets vers les prochains scripts
+		speculatif.ouvre();
+		KeyPathCache trouve = null;
+		long fin = System.currentTimeMillis() + 30000;
+		while(trouve == null && System.currentTimeMillis() < fin)
+		{
+			Thread.sleep(100);
+			state.copyAStarCourbe(chrono);
+			for(ScriptNames s : ScriptNames.values())
+			{
+				KeyPathCache k = new KeyPathCache(chrono, s, false);
+				if(cache.contains(k))
+				{
+					trouve = k;
+					break;
+				}
+			}
+		}
+		long avant = System.currentTimeMillis();
+		speculatif.ferme();
+		Assert.assertTrue(System.currentTimeMillis() - avant < 1000);
+		Assert.assertNotNull(trouve);
+
+		// le trajet spéculatif est réutilisé sans recherche
+		cache.prepareNewPath(trouve);
+		Assert.assertTrue(inst.isDone());
+		Assert.assertFalse(inst.hasRequest());
+	}
+
+	@Test
+	public void test_grille() throws Exception
+	{
+		GrilleCheminPathfinding grille = new GrilleCheminPathfinding();
+		long[] candidats = new long[4];
+		CinematiqueObs c = new CinematiqueObs(config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2, config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE), config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT), config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT));
+		c.updateReel(0, 1000, 0, true, 0);
+		grille.ajoute(200, c.obstacle);
+
+		ObstacleCircular proche = new ObstacleCircular(new Vec2RO(100, 1100), 50);
+		ObstacleCircular loin = new ObstacleCircular(new Vec2RO(-1000, 300), 50);
+		grille.getCandidats(proche, candidats);
+		Assert.assertTrue(GrilleCheminPathfinding.contient(candidats, 200));
+		Assert.assertFalse(GrilleCheminPathfinding.contient(candidats, 199));
+		grille.getCandidats(loin, candidats);
+		Assert.assertFalse(GrilleCheminPathfinding.contient(candidats, 200));
+
+		// un point hors table est dans les cases du bord
+		c.updateReel(1700, 1000, 0, true, 0);
+		grille.ajoute(200, c.obstacle);
+		grille.getCandidats(new ObstacleCircular(new Vec2RO(1450, 1000), 50), candidats);
+		Assert.assertTrue(GrilleCheminPathfinding.contient(candidats, 200));
+		grille.getCandidats(proche, candidats);
+		Assert.assertFalse(GrilleCheminPathfinding.contient(candidats, 200));
+
+		grille.retire(200);
+		grille.getCandidats(new ObstacleCircular(new Vec2RO(1450, 1000), 50), candidats);
+		Assert.assertFalse(GrilleCheminPathfinding.contient(candidats, 200));
+	}
+
+	@Test
+	public void test_delai_avant_arret() throws Exception
+	{
+		Assert.assertEquals(0, chemin.getDelaiAvantArret(Speed.STANDARD));
+		LinkedList<CinematiqueObs> l = new LinkedList<CinematiqueObs>();
+		for(int i = 0; i < 30; i++)
+		{
+			CinematiqueObs c = new CinematiqueObs(config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2, config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE), config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT), config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT));
+			c.updateReel(0, 1000 + 20 * i, Math.PI / 2, true, 0);
+			l.add(c);
+		}
+		chemin.addToEnd(l);
+		int margeNecessaire = (int) (config.getDouble(ConfigInfo.PF_MARGE_NECESSAIRE) / 20);
+		Assert.assertEquals((long) ((30 - margeNecessaire) * 20 / Speed.STANDARD.translationalSpeed), chemin.getDelaiAvantArret(Speed.STANDARD));
+		// plus on va vite, moins on a de temps
+		Assert.assertTrue(chemin.getDelaiAvantArret(Speed.STANDARD) < chemin.getDelaiAvantArret(Speed.REPLANIF) || Speed.STANDARD.translationalSpeed <= Speed.REPLANIF.translationalSpeed);
+		chemin.setCurrentIndex(30 - margeNecessaire);
+		Assert.assertEquals(0, chemin.getDelaiAvantArret(Speed.STANDARD));
+	}
 }
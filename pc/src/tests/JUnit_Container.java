@@ -14,6 +14,13 @@
 
 package tests;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 import org.junit.Test;
 import config.Config;
@@ -25,6 +32,7 @@ import obstacles.types.ObstacleCircular;
 import obstacles.types.ObstacleProximity;
 import pathfinding.astar.AStarCourbe;
 import table.RealTable;
+import threads.ThreadShutdown;
 import utils.Vec2RO;
 
 /**
@@ -72,6 +80,109 @@ public class JUnit_Container extends JUnit_Test
 		}
 	}
 
+	/*
+	 * Deux services qui ne peuvent être construits qu'en même temps : chacun
+	 * attend l'autre dans son constructeur
+	 */
+	private static CyclicBarrier barriere;
+	private static AtomicInteger nbEchecs = new AtomicInteger();
+
+	public static class Parallele1 implements Service
+	{
+		public Parallele1() throws Exception
+		{
+			barriere.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+	public static class Parallele2 implements Service
+	{
+		public Parallele2() throws Exception
+		{
+			barriere.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+	public static class RacineParallele implements Service
+	{
+		public RacineParallele(Parallele1 a, Parallele2 b)
+		{}
+	}
+
+	public static class Echec implements Service
+	{
+		public Echec()
+		{
+			nbEchecs.incrementAndGet();
+			throw new IllegalStateException("échec volontaire");
+		}
+	}
+
+	public static class DependEchec implements Service
+	{
+		public DependEchec(Echec e)
+		{}
+	}
+
+	public static class Independant implements Service
+	{
+		public Independant()
+		{}
+	}
+
+	public static class RacineEchec implements Service
+	{
+		public RacineEchec(DependEchec d, Independant i)
+		{}
+	}
+
+	/**
+	 * Les sous-arbres indépendants sont construits en même temps
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_construction_parallele() throws Exception
+	{
+		barriere = new CyclicBarrier(2);
+		List<Class<? extends Service>> racines = new ArrayList<Class<? extends Service>>();
+		racines.add(RacineParallele.class);
+		container.construitEnParallele(racines, 2);
+		Assert.assertNotNull(container.getExistingService(Parallele1.class));
+		Assert.assertNotNull(container.getExistingService(Parallele2.class));
+		Assert.assertNotNull(container.getExistingService(RacineParallele.class));
+	}
+
+	/**
+	 * Un constructeur qui échoue n'est appelé qu'une fois, son erreur est
+	 * renvoyée pour lui et ses dépendants, et le reste est construit
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_construction_parallele_echec() throws Exception
+	{
+		nbEchecs.set(0);
+		List<Class<? extends Service>> racines = new ArrayList<Class<? extends Service>>();
+		racines.add(RacineEchec.class);
+		container.construitEnParallele(racines, 2);
+		Assert.assertEquals(1, nbEchecs.get());
+		Assert.assertNotNull(container.getExistingService(Independant.class));
+		Assert.assertNull(container.getExistingService(DependEchec.class));
+		Assert.assertNull(container.getExistingService(RacineEchec.class));
+
+		try
+		{
+			container.getService(RacineEchec.class);
+			Assert.fail();
+		}
+		catch(ContainerException e)
+		{
+			Assert.assertTrue(e.getMessage().contains("échec volontaire"));
+		}
+		Assert.assertEquals(1, nbEchecs.get());
+	}
+
 	@Test
 	public void test_instanciation() throws Exception
 	{
@@ -131,6 +242,25 @@ public class JUnit_Container extends JUnit_Test
 		Assert.assertTrue(container.make(ObstaclesIteratorPresent.class) != container.make(ObstaclesIteratorPresent.class));
 	}
 
+	/**
+	 * Les recettes des services construits sont sauvegardées pour le
+	 * prochain démarrage
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_recettes_sauvegardees() throws Exception
+	{
+		BufferedReader in = new BufferedReader(new FileReader("construction.dat"));
+		boolean trouve = false;
+		String ligne;
+		while((ligne = in.readLine()) != null)
+			if(ligne.startsWith(ThreadShutdown.class.getName() + " "))
+				trouve = true;
+		in.close();
+		Assert.assertTrue(trouve);
+	}
+
 	@Test
 	public void test_extra_param() throws Exception
 	{
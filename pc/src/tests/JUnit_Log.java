@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import config.ConfigInfo;
+import utils.Log;
+import utils.Log.Niveau;
+import utils.Log.Verbose;
+import utils.TamponLog;
+
+/**
+ * Tests unitaires de l'écriture asynchrone du log
+ * 
+ * @author pf
+ *
+ */
+
+public class JUnit_Log extends JUnit_Test
+{
+	/**
+	 * Les messages de chaque producteur sont lus dans l'ordre, et aucun
+	 * message accepté n'est perdu
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_ordre() throws Exception
+	{
+		final TamponLog t = new TamponLog(64);
+		final int nbProducteurs = 4, nbMessages = 5000;
+		final AtomicInteger nbAcceptes = new AtomicInteger();
+		Thread[] producteurs = new Thread[nbProducteurs];
+		for(int p = 0; p < nbProducteurs; p++)
+		{
+			final String nom = "producteur" + p;
+			producteurs[p] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for(int i = 0; i < nbMessages; i++)
+						if(t.add(i, Niveau.WARNING, Verbose.all, Integer.toString(i), nom, null))
+							nbAcceptes.incrementAndGet();
+				}
+			};
+			producteurs[p].start();
+		}
+
+		int[] derniers = new int[nbProducteurs];
+		for(int p = 0; p < nbProducteurs; p++)
+			derniers[p] = -1;
+		int nbRecus = 0;
+		while(true)
+		{
+			TamponLog.Enregistrement e = t.poll();
+			if(e == null)
+			{
+				boolean fini = true;
+				for(Thread p : producteurs)
+					fini &= !p.isAlive();
+				if(fini && t.poll() == null)
+					break;
+				Thread.yield();
+				continue;
+			}
+			int p = Integer.parseInt(e.thread.substring("producteur".length()));
+			int i = Integer.parseInt((String) e.message);
+			Assert.assertEquals(i, e.date);
+			Assert.assertTrue(i > derniers[p]);
+			derniers[p] = i;
+			t.libere();
+			nbRecus++;
+		}
+		Assert.assertEquals(nbAcceptes.get(), nbRecus);
+		Assert.assertEquals(nbProducteurs * nbMessages - nbAcceptes.get(), t.getNbPerdus());
+	}
+
+	/**
+	 * Un anneau plein ne bloque pas le producteur : le debug est perdu tout
+	 * de suite, le warning après une courte attente
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_debordement() throws Exception
+	{
+		TamponLog t = new TamponLog(4);
+		Assert.assertEquals(4, t.getCapacite());
+		for(int i = 0; i < 10; i++)
+			Assert.assertEquals(i < 4, t.add(i, Niveau.DEBUG, Verbose.DEBUG.masque, "debug", "test", null));
+		Assert.assertEquals(6, t.getNbPerdus());
+
+		long avant = System.currentTimeMillis();
+		Assert.assertFalse(t.add(0, Niveau.CRITICAL, Verbose.all, "critical", "test", null));
+		Assert.assertTrue(System.currentTimeMillis() - avant < 500);
+		Assert.assertEquals(7, t.getNbPerdus());
+
+		// une place libérée est réutilisée
+		Assert.assertEquals("debug", t.poll().message);
+		t.libere();
+		Assert.assertTrue(t.add(0, Niveau.WARNING, Verbose.all, "warning", "test", null));
+	}
+
+	/**
+	 * Le consommateur endormi est réveillé par le message suivant
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_reveil() throws Exception
+	{
+		final TamponLog t = new TamponLog(16);
+		final AtomicInteger nbRecus = new AtomicInteger();
+		Thread consommateur = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				while(!isInterrupted())
+				{
+					if(t.poll() == null)
+						t.attend();
+					else
+					{
+						t.libere();
+						nbRecus.incrementAndGet();
+					}
+				}
+			}
+		};
+		consommateur.start();
+		for(int i = 1; i <= 3; i++)
+		{
+			Thread.sleep(100); // le consommateur a le temps de s'endormir
+			t.add(0, Niveau.WARNING, Verbose.all, "réveil", "test", null);
+			long avant = System.currentTimeMillis();
+			while(nbRecus.get() < i && System.currentTimeMillis() - avant < 1000)
+				Thread.sleep(1);
+			Assert.assertEquals(i, nbRecus.get());
+		}
+		consommateur.interrupt();
+		consommateur.join(1000);
+		Assert.assertFalse(consommateur.isAlive());
+	}
+
+	/**
+	 * Les messages encore dans l'anneau sont écrits à la fermeture du log
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_vidage_arret() throws Exception
+	{
+		PrintStream sortie = System.out;
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		Log l = new Log();
+		try
+		{
+			System.setOut(new PrintStream(capture, true, "UTF-8"));
+			l.useConfig(config);
+			for(int i = 0; i < 500; i++)
+				l.warning("vidage " + i);
+			l.close();
+		}
+		finally
+		{
+			System.setOut(sortie);
+		}
+
+		String texte = capture.toString("UTF-8");
+		int position = 0;
+		for(int i = 0; i < 500; i++)
+		{
+			position = texte.indexOf("> vidage " + i + "\n", position);
+			Assert.assertTrue("message " + i + " manquant", position >= 0);
+		}
+	}
+
+	/**
+	 * L'origine du message est affichée même quand il est écrit par le thread
+	 * d'écriture, et le message est celui du moment de l'appel
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_origine() throws Exception
+	{
+		PrintStream sortie = System.out;
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		Log l = new Log();
+		StringBuilder message = new StringBuilder("avant");
+		try
+		{
+			System.setOut(new PrintStream(capture, true, "UTF-8"));
+			l.useConfig(config);
+			Assert.assertFalse(config.getBoolean(ConfigInfo.FAST_LOG));
+			Assert.assertTrue(config.getBoolean(ConfigInfo.LOG_ASYNCHRONE));
+			l.warning(message);
+			message.setLength(0);
+			message.append("après");
+			l.close();
+		}
+		finally
+		{
+			System.setOut(sortie);
+		}
+
+		String texte = capture.toString("UTF-8");
+		Assert.assertTrue(texte, texte.contains(" WARNING JUnit_Log:"));
+		Assert.assertTrue(texte, texte.contains(" > avant\n"));
+		Assert.assertFalse(texte, texte.contains("après"));
+	}
+}
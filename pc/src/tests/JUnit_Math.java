@@ -16,6 +16,7 @@ package tests;
 
 import org.junit.Test;
 import org.junit.Assert;
+import capteurs.NuagePoints;
 import utils.Vec2RW;
 
 /**
@@ -52,4 +53,27 @@ public class JUnit_Math extends JUnit_Test
 		Assert.assertEquals(new Vec2RW(0, 1).getY(), new Vec2RW(1, 0).rotateNewVector(Math.PI / 2, new Vec2RW(0, 0)).getY(), 0.1);
 	}
 
+	@Test
+	public void test_nuage_points() throws Exception
+	{
+		NuagePoints nuage = new NuagePoints();
+		// une ligne de points selon la diagonale
+		for(int i = 0; i < 10; i++)
+			nuage.ajoute(20 * i, 500 + 20 * i);
+		// un petit amas loin
+		nuage.ajoute(-800, 1500);
+		nuage.ajoute(-790, 1510);
+		nuage.ajoute(-810, 1505);
+		// un point isolé
+		nuage.ajoute(800, 200);
+
+		Assert.assertEquals(2, nuage.regroupe(50, 3));
+		int ligne = nuage.getLongueur(0) > nuage.getLongueur(1) ? 0 : 1;
+		Assert.assertEquals(90, nuage.getCentreX(ligne), 0.1);
+		Assert.assertEquals(590, nuage.getCentreY(ligne), 0.1);
+		Assert.assertEquals(Math.PI / 4, nuage.getOrientation(ligne), 0.01);
+		Assert.assertEquals(180 * Math.sqrt(2), nuage.getLongueur(ligne), 0.1);
+		Assert.assertEquals(0, nuage.getLargeur(ligne), 0.1);
+	}
+
 }
@@ -16,17 +16,25 @@ package tests;
 
 import obstacles.memory.ObstaclesIteratorPresent;
 import obstacles.memory.ObstaclesMemory;
+import obstacles.memory.SuiviEnnemis;
 import obstacles.types.ObstacleCircular;
+import obstacles.types.ObstacleProximity;
+import obstacles.types.ObstacleRectangular;
+import obstacles.types.PisteEnnemi;
 import pathfinding.ChronoGameState;
 import pathfinding.RealGameState;
 import pathfinding.dstarlite.gridspace.GridSpace;
 import robot.Cinematique;
+import robot.CinematiqueObs;
+import config.ConfigInfo;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import capteurs.GrilleOccupation;
 import capteurs.SensorsData;
 import capteurs.SensorsDataBuffer;
 import utils.Vec2RO;
+import utils.Vec2RW;
 
 /**
  * Tests unitaires de l'obstacle memory manager
@@ -80,6 +88,86 @@ public class JUnit_OMMemory extends JUnit_Test
 		Thread.sleep(5000);
 	}
 
+	@Test
+	public void test_fusion() throws Exception
+	{
+		GrilleOccupation occupation = container.getService(GrilleOccupation.class);
+		long date = System.currentTimeMillis();
+		ObstacleRectangular obs = new ObstacleRectangular(new Vec2RO(-400, 1300), 200, 100, 0);
+
+		// un ennemi immobile vu dix fois : un seul obstacle
+		for(int i = 0; i < 10; i++)
+			occupation.ajoute(obs, date + 20 * i);
+		Assert.assertEquals(1, occupation.getNbEmissions());
+		Assert.assertEquals(1, memory.size());
+
+		// il se déplace : l'obstacle est remplacé
+		for(int i = 0; i < 10; i++)
+			occupation.ajoute(obs.update(new Vec2RO(-400 + 20 * i, 1300), 200, 100, 0), date + 200 + 20 * i);
+		Assert.assertTrue(occupation.getNbEmissions() > 1);
+		iterator.reinit();
+		Assert.assertTrue(iterator.hasNext());
+		ObstacleProximity o = iterator.next();
+		Assert.assertFalse(iterator.hasNext());
+		Assert.assertTrue(o.getPosition().getX() > -400);
+		// l'obstacle est au centre lissé de l'amas, en retard sur la mesure
+		Assert.assertTrue(o.getPosition().getX() < -220);
+
+		// suppression directe par l'indice de l'obstacle, puis sans effet
+		memory.remove(o);
+		iterator.reinit();
+		Assert.assertFalse(iterator.hasNext());
+		memory.remove(o);
+
+		// un autre ennemi loin du premier a son propre obstacle
+		long avant = occupation.getNbEmissions();
+		occupation.ajoute(obs.update(new Vec2RO(800, 300), 200, 100, 0), date + 400);
+		Assert.assertEquals(avant + 1, occupation.getNbEmissions());
+	}
+
+	@Test
+	public void test_prediction() throws Exception
+	{
+		SuiviEnnemis suivi = container.getService(SuiviEnnemis.class);
+		long date = 10000;
+		PisteEnnemi piste = null;
+		// un ennemi qui avance à 0,5 mm/ms selon x
+		for(int i = 0; i < 10; i++)
+			piste = suivi.associe(new Vec2RO(-500 + 50 * i, 1000), date + 100 * i);
+		Assert.assertEquals(1, suivi.size());
+		Assert.assertTrue(piste.isMobile());
+
+		// un autre ennemi loin du premier a sa propre piste
+		Assert.assertTrue(suivi.associe(new Vec2RO(800, 300), date + 900) != piste);
+		Assert.assertEquals(2, suivi.size());
+
+		ObstacleProximity o = new ObstacleProximity(new ObstacleCircular(new Vec2RO(-50, 1000), 100), date + 1900, null);
+		o.setPiste(piste, date + 900);
+
+		CinematiqueObs robot = new CinematiqueObs(config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2, config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE), config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT), config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT));
+		robot.updateReel(300, 1000, Math.PI / 2, true, 0);
+
+		// l'ennemi n'y est pas encore, mais il y sera dans 800 ms
+		Assert.assertFalse(o.isColliding(robot.obstacle));
+		Vec2RW centrePredit = new Vec2RW();
+		Assert.assertFalse(o.isColliding(robot.obstacle, date + 900, centrePredit));
+		Assert.assertTrue(o.isColliding(robot.obstacle, date + 1700, centrePredit));
+		// la position prévue est écrite chez l'appelant, pas dans l'obstacle
+		Vec2RW attendu = new Vec2RW();
+		piste.getDeplacement(date + 900, date + 1700, attendu);
+		attendu.plus(new Vec2RO(-50, 1000));
+		Assert.assertEquals(attendu.getX(), centrePredit.getX(), 1e-6);
+		Assert.assertEquals(attendu.getY(), centrePredit.getY(), 1e-6);
+
+		// la boîte balayée contient les positions prévues, et seulement elles
+		double[] boite = new double[4];
+		o.getBoiteBalayee(date + 900, date + 1700, boite, centrePredit);
+		Assert.assertTrue(boite[0] <= -150 && boite[1] >= 350);
+		Assert.assertTrue(boite[2] <= 900 && boite[3] >= 1100);
+		Assert.assertTrue(o.peutToucher(boite, date + 1700, centrePredit));
+		Assert.assertFalse(o.peutToucher(new double[] { 1000, 1200, 0, 200 }, date + 1700, centrePredit));
+	}
+
 	/*
 	 * @Test
 	 * public void test_iterator() throws Exception
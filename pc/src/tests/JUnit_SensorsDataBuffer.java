@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import capteurs.CapteursRobot;
+import capteurs.SensorsData;
+import capteurs.SensorsDataBuffer;
+import config.Config;
+import config.ConfigInfo;
+import robot.Cinematique;
+
+/**
+ * Tests unitaires du buffer des capteurs
+ * Le buffer est construit à part pour que le thread des capteurs ne le vide
+ * pas pendant le test
+ * 
+ * @author pf
+ *
+ */
+
+public class JUnit_SensorsDataBuffer extends JUnit_Test
+{
+	private int[] mesures = new int[CapteursRobot.values.length];
+
+	private SensorsDataBuffer make(String politique) throws Exception
+	{
+		// ces paramètres sont constants : on passe par une nouvelle config
+		ConfigInfo.POLITIQUE_BUFFER_CAPTEURS.setDefaultValue(politique);
+		ConfigInfo.TAILLE_BUFFER_CAPTEURS.setDefaultValue(3);
+		return new SensorsDataBuffer(log, new Config());
+	}
+
+	private void remplit(SensorsDataBuffer buffer, int nb) throws Exception
+	{
+		for(int i = 0; i < nb; i++)
+		{
+			mesures[0] = i;
+			buffer.add(buffer.getLibre().update(0, 0, mesures, new Cinematique(i, 0, 0, true, 0)));
+		}
+	}
+
+	@Test
+	public void test_supprime_ancienne() throws Exception
+	{
+		SensorsDataBuffer buffer = make("SUPPRIME_ANCIENNE");
+		SensorsData out = new SensorsData();
+		remplit(buffer, 5);
+		Assert.assertEquals(3, buffer.getOccupation());
+		Assert.assertEquals(2, buffer.getNbPerdues());
+		for(int i = 2; i < 5; i++)
+		{
+			Assert.assertTrue(buffer.poll(out));
+			Assert.assertEquals(i, out.mesures[0]);
+			Assert.assertEquals(i, out.cinematique.getPosition().getX(), 0);
+		}
+		Assert.assertFalse(buffer.poll(out));
+		Assert.assertTrue(buffer.getLatenceMax() > 0);
+	}
+
+	@Test
+	public void test_fusionne() throws Exception
+	{
+		SensorsDataBuffer buffer = make("FUSIONNE");
+		SensorsData out = new SensorsData();
+		remplit(buffer, 3);
+		Assert.assertTrue(buffer.poll(out));
+		Assert.assertEquals(2, out.mesures[0]);
+		Assert.assertEquals(2, buffer.getNbFusionnees());
+		Assert.assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void test_bloque() throws Exception
+	{
+		final SensorsDataBuffer buffer = make("BLOQUE");
+		Thread producteur = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					remplit(buffer, 10);
+				}
+				catch(Exception e)
+				{
+					e.printStackTrace();
+				}
+			}
+		};
+		producteur.start();
+
+		SensorsData out = new SensorsData();
+		for(int i = 0; i < 10; i++)
+		{
+			while(!buffer.poll(out))
+				buffer.attend();
+			Assert.assertEquals(i, out.mesures[0]);
+		}
+		producteur.join();
+		Assert.assertEquals(0, buffer.getNbPerdues());
+		Assert.assertTrue(buffer.getOccupationMax() <= 3);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import config.ConfigInfo;
+import robot.CinematiqueObs;
+import robot.RobotReal;
+import robot.Speed;
+import serie.BufferOutgoingOrder;
+import serie.SerialProtocol.InOrder;
+import serie.SerialProtocol.State;
+import serie.Ticket;
+import utils.Vec2RO;
+
+/**
+ * Tests unitaires de la série, avec le simulateur du bas niveau
+ * 
+ * @author pf
+ *
+ */
+
+public class JUnit_SimulateurBasNiveau extends JUnit_Test
+{
+	private BufferOutgoingOrder data;
+
+	@Override
+	@Before
+	public void setUp() throws Exception
+	{
+		ConfigInfo.SIMULE_BAS_NIVEAU.setDefaultValue(true);
+		ConfigInfo.SIMULE_SERIE.setDefaultValue(false);
+		super.setUp();
+		data = container.getService(BufferOutgoingOrder.class);
+	}
+
+	@Test
+	public void test_ask_color() throws Exception
+	{
+		Ticket t = data.demandeCouleur();
+		Assert.assertEquals(State.OK, t.attendStatus().etat);
+	}
+
+	@Test
+	public void test_trajectoire() throws Exception
+	{
+		data.setPosition(new Vec2RO(0, 1000), 0);
+		List<CinematiqueObs> points = new ArrayList<CinematiqueObs>();
+		for(int i = 1; i <= 20; i++)
+		{
+			CinematiqueObs c = new CinematiqueObs(config.getInt(ConfigInfo.LARGEUR_NON_DEPLOYE) / 2, config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_ARRIERE), config.getInt(ConfigInfo.DEMI_LONGUEUR_NON_DEPLOYE_AVANT), config.getInt(ConfigInfo.DILATATION_OBSTACLE_ROBOT));
+			c.updateReel(10 * i, 1000, 0, true, 0);
+			points.add(c);
+		}
+		for(Ticket t : data.envoieArcCourbe(points, 0))
+			Assert.assertEquals(InOrder.ORDER_ACK, t.attendStatus());
+
+		data.startStream();
+		Ticket t = data.followTrajectory(Speed.TEST, true);
+		Assert.assertEquals(InOrder.ROBOT_ARRIVE, t.attendStatus());
+
+		// le STATUS_UPDATE suivant donne la position d'arrivée
+		Thread.sleep(200);
+		Vec2RO position = container.getService(RobotReal.class).getCinematique().getPosition();
+		Assert.assertEquals(200, position.getX(), 1);
+		Assert.assertEquals(1000, position.getY(), 1);
+	}
+}
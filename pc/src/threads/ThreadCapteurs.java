@@ -49,21 +49,17 @@ public class ThreadCapteurs extends ThreadService implements LowPFClass, HighPFC
 		log.debug("Démarrage de " + Thread.currentThread().getName());
 		try
 		{
+			SensorsData e = new SensorsData();
 			while(true)
 			{
-				SensorsData e;
-				synchronized(buffer)
-				{
-					if(buffer.isEmpty())
-						buffer.wait();
-					e = buffer.poll();
-				}
+				while(!buffer.poll(e))
+					buffer.attend();
 				capteurs.updateObstaclesMobiles(e);
-
 			}
 		}
 		catch(InterruptedException e)
 		{
+			log.debug("Buffer des capteurs : " + buffer);
 			log.debug("Arrêt de " + Thread.currentThread().getName());
 			Thread.currentThread().interrupt();
 		}
@@ -14,11 +14,13 @@
 
 package threads;
 
+import threads.serie.ThreadSerialInputBytes;
 import threads.serie.ThreadSerialInputCoucheOrdre;
 import threads.serie.ThreadSerialInputCoucheTrame;
 import threads.serie.ThreadSerialOutputBytes;
 import threads.serie.ThreadSerialOutputOrder;
 import threads.serie.ThreadSerialOutputTimeout;
+import threads.serie.ThreadSimulateurBasNiveau;
 
 /**
  * Tous les threads à instancier au début du match. Utilisé par le container
@@ -36,12 +38,15 @@ public enum ThreadName
 	REMOTE_CONTROL(ThreadRemoteControl.class),
 	UPDATE_PATHFINDING(ThreadUpdatePathfinding.class),
 	PREPARE_PATHFINDING(ThreadPreparePathfinding.class),
+	SPECULATIVE_PATHFINDING(ThreadSpeculativePathfinding.class),
 	PEREMPTION(ThreadPeremption.class),
+	SERIAL_INPUT_BYTES(ThreadSerialInputBytes.class),
 	SERIAL_INPUT_ORDRE(ThreadSerialInputCoucheOrdre.class),
 	SERIAL_INPUT_TRAME(ThreadSerialInputCoucheTrame.class),
 	SERIAL_OUTPUT_BYTES(ThreadSerialOutputBytes.class),
 	SERIAL_OUTPUT_ORDER(ThreadSerialOutputOrder.class),
-	SERIAL_OUTPUT_TIMEOUT(ThreadSerialOutputTimeout.class);
+	SERIAL_OUTPUT_TIMEOUT(ThreadSerialOutputTimeout.class),
+	SIMULATEUR_BAS_NIVEAU(ThreadSimulateurBasNiveau.class);
 
 	public Class<? extends ThreadService> c;
 
@@ -17,6 +17,7 @@ package threads;
 import container.dependances.HighPFClass;
 import exceptions.PathfindingException;
 import pathfinding.PFInstruction;
+import pathfinding.PFSpeculatif;
 import pathfinding.astar.AStarCourbe;
 import pathfinding.chemin.FakeCheminPathfinding;
 import utils.Log;
@@ -36,9 +37,11 @@ public class ThreadPreparePathfinding extends ThreadService implements HighPFCla
 	private AStarCourbe astar;
 	private PFInstruction inst;
 	private FakeCheminPathfinding fakeChemin;
+	private PFSpeculatif speculatif;
 
-	public ThreadPreparePathfinding(Log log, AStarCourbe astar, PFInstruction inst, FakeCheminPathfinding fakeChemin)
+	public ThreadPreparePathfinding(Log log, AStarCourbe astar, PFInstruction inst, FakeCheminPathfinding fakeChemin, PFSpeculatif speculatif)
 	{
+		this.speculatif = speculatif;
 		this.fakeChemin = fakeChemin;
 		this.log = log;
 		this.astar = astar;
@@ -61,6 +64,8 @@ public class ThreadPreparePathfinding extends ThreadService implements HighPFCla
 					log.debug("Préparation du prochain trajet en cours…", Verbose.PF.masque);
 					inst.beginSearch();
 				}
+				// l'A* est partagé avec le pathfinding spéculatif
+				speculatif.prend();
 				try
 				{
 					fakeChemin.clear();
@@ -73,6 +78,10 @@ public class ThreadPreparePathfinding extends ThreadService implements HighPFCla
 					log.warning("Exception dans la préparation du pathfinding ! " + e, Verbose.PF.masque);
 					inst.setException(e);
 				}
+				finally
+				{
+					speculatif.rend();
+				}
 			}
 		}
 		catch(InterruptedException e)
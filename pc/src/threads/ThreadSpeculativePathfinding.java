@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package threads;
+
+import java.util.LinkedList;
+import config.Config;
+import config.ConfigInfo;
+import container.dependances.HighPFClass;
+import exceptions.PathfindingException;
+import pathfinding.ChronoGameState;
+import pathfinding.KeyPathCache;
+import pathfinding.PFSpeculatif;
+import pathfinding.PathCache;
+import pathfinding.RealGameState;
+import pathfinding.astar.AStarCourbe;
+import pathfinding.astar.arcs.CercleArrivee;
+import pathfinding.chemin.CheminSpeculatif;
+import robot.Cinematique;
+import robot.CinematiqueObs;
+import scripts.ScriptNames;
+import scripts.ScriptsSymetrises;
+import utils.Log;
+import utils.Log.Verbose;
+
+/**
+ * Thread qui calcule, pendant que le robot attend ses actionneurs, les
+ * trajets vers les prochains scripts probables. Les trajets trouvés sont
+ * ajoutés au cache des chemins.
+ * 
+ * @author pf
+ *
+ */
+
+public class ThreadSpeculativePathfinding extends ThreadService implements HighPFClass
+{
+	protected Log log;
+	private AStarCourbe astar;
+	private PFSpeculatif speculatif;
+	private PathCache pathcache;
+	private CercleArrivee cercle;
+	private RealGameState state;
+	private ChronoGameState chrono;
+	private CheminSpeculatif chemin;
+	private Config config;
+	private boolean enable;
+	private int nbCandidats;
+
+	public ThreadSpeculativePathfinding(Log log, Config config, AStarCourbe astar, PFSpeculatif speculatif, PathCache pathcache, CercleArrivee cercle, RealGameState state, ChronoGameState chrono)
+	{
+		this.log = log;
+		this.config = config;
+		this.astar = astar;
+		this.speculatif = speculatif;
+		this.pathcache = pathcache;
+		this.cercle = cercle;
+		this.state = state;
+		this.chrono = chrono;
+		chemin = new CheminSpeculatif(speculatif, config);
+		enable = config.getBoolean(ConfigInfo.SPECULATIVE_PF);
+		nbCandidats = config.getInt(ConfigInfo.NB_CANDIDATS_SPECULATIFS);
+	}
+
+	@Override
+	public void run()
+	{
+		Thread.currentThread().setName(getClass().getSimpleName());
+		log.debug("Démarrage de " + Thread.currentThread().getName());
+		if(!enable)
+		{
+			log.debug("Pathfinding spéculatif désactivé");
+			return;
+		}
+		// ce thread ne doit pas ralentir les autres
+		Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+		try
+		{
+			while(true)
+			{
+				speculatif.attendOuverture();
+
+				int nb = 0;
+				// la couleur n'est peut-être pas encore connue
+				Boolean sym = config.getSymmetry();
+				for(ScriptsSymetrises s : ScriptsSymetrises.values())
+				{
+					if(sym == null || nb == nbCandidats || !speculatif.isOuvert())
+						break;
+					ScriptNames candidat = s.getScript(sym);
+					ScriptNames precedent = pathcache.getDernierScript();
+					if(!candidat.s.isPossibleApres(precedent == null ? null : precedent.s, state))
+						continue;
+					nb++;
+					calcule(candidat);
+				}
+
+				// on attend la prochaine fenêtre
+				speculatif.attendFermeture();
+			}
+		}
+		catch(InterruptedException e)
+		{
+			log.debug("Arrêt de " + Thread.currentThread().getName());
+			Thread.currentThread().interrupt();
+		}
+		catch(Exception e)
+		{
+			log.debug("Arrêt inattendu de " + Thread.currentThread().getName() + " : " + e);
+			e.printStackTrace();
+			e.printStackTrace(log.getPrintWriter());
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Calcule le trajet vers un script depuis la position actuelle
+	 * 
+	 * @param candidat
+	 * @throws Exception
+	 */
+	private void calcule(ScriptNames candidat) throws Exception
+	{
+		state.copyAStarCourbe(chrono);
+		KeyPathCache k = new KeyPathCache(chrono, candidat, false);
+		if(pathcache.contains(k))
+			return;
+
+		// le pathfinding normal est prioritaire : commence() vérifie sous
+		// verrou qu'aucune recherche normale n'est demandée ou en cours, et
+		// une recherche qui arriverait ensuite fera abandonner ce calcul
+		if(!speculatif.commence())
+			return;
+
+		// le cercle d'arrivée est partagé avec le script en cours
+		cercle.sauvegarde();
+		try
+		{
+			log.debug("Calcul spéculatif du trajet " + k, Verbose.PF.masque);
+			chemin.clear();
+			Cinematique arrivee = candidat.s.getPointEntree();
+			if(arrivee != null)
+				astar.initializeNewSearch(arrivee, k.shoot, chrono);
+			else
+			{
+				candidat.s.setUpCercleArrivee();
+				astar.initializeNewSearchToCircle(k.shoot, chrono);
+			}
+			astar.process(chemin, false);
+			LinkedList<CinematiqueObs> path = chemin.getPath();
+			if(path != null)
+				pathcache.addSpeculativePath(k, path);
+		}
+		catch(PathfindingException e)
+		{
+			log.debug("Pas de trajet spéculatif pour " + k + " : " + e, Verbose.PF.masque);
+		}
+		finally
+		{
+			cercle.restaure();
+			speculatif.termine();
+		}
+	}
+
+}
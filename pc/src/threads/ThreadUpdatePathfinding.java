@@ -16,6 +16,7 @@ package threads;
 
 import container.dependances.HighPFClass;
 import exceptions.PathfindingException;
+import pathfinding.PFSpeculatif;
 import pathfinding.astar.AStarCourbe;
 import pathfinding.chemin.CheminPathfinding;
 import robot.Cinematique;
@@ -37,9 +38,11 @@ public class ThreadUpdatePathfinding extends ThreadService implements HighPFClas
 	private AStarCourbe pathfinding;
 	private CheminPathfinding chemin;
 	private BufferOutgoingOrder out;
+	private PFSpeculatif speculatif;
 
-	public ThreadUpdatePathfinding(Log log, AStarCourbe pathfinding, CheminPathfinding chemin, BufferOutgoingOrder out)
+	public ThreadUpdatePathfinding(Log log, AStarCourbe pathfinding, CheminPathfinding chemin, BufferOutgoingOrder out, PFSpeculatif speculatif)
 	{
+		this.speculatif = speculatif;
 		this.log = log;
 		this.pathfinding = pathfinding;
 		this.chemin = chemin;
@@ -70,7 +73,16 @@ public class ThreadUpdatePathfinding extends ThreadService implements HighPFClas
 					Cinematique lastValid = chemin.getLastValidCinematique();
 					out.setMaxSpeed(Speed.REPLANIF, chemin.getCurrentMarcheAvant());
 					log.debug("Mise à jour du chemin", Verbose.REPLANIF.masque);
-					pathfinding.updatePath(lastValid);
+					// l'A* est partagé avec le pathfinding spéculatif
+					speculatif.prend();
+					try
+					{
+						pathfinding.updatePath(lastValid);
+					}
+					finally
+					{
+						speculatif.rend();
+					}
 					out.setMaxSpeed(Speed.STANDARD, chemin.getCurrentMarcheAvant());
 				}
 				catch(PathfindingException e)
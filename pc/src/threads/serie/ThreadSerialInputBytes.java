@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package threads.serie;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import container.dependances.SerialClass;
+import serie.BufferIncomingBytes;
+import serie.SerieCouchePhysique;
+import threads.ThreadService;
+import utils.Log;
+
+/**
+ * Thread qui lit les octets du tty par paquets (quand la série n'utilise pas
+ * RXTX)
+ * 
+ * @author pf
+ *
+ */
+
+public class ThreadSerialInputBytes extends ThreadService implements SerialClass
+{
+	protected Log log;
+	private SerieCouchePhysique serie;
+	private BufferIncomingBytes buffer;
+	private ByteBuffer paquet = ByteBuffer.allocateDirect(256);
+
+	public ThreadSerialInputBytes(Log log, SerieCouchePhysique serie, BufferIncomingBytes buffer)
+	{
+		this.log = log;
+		this.serie = serie;
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void run()
+	{
+		Thread.currentThread().setName(getClass().getSimpleName());
+		log.debug("Démarrage de " + Thread.currentThread().getName());
+		if(!serie.isLectureParPaquets())
+		{
+			log.debug("Lecture de la série par RXTX ou série simulée");
+			return;
+		}
+
+		try
+		{
+			while(!Thread.currentThread().isInterrupted())
+			{
+				paquet.clear();
+				if(serie.lit(paquet) < 0)
+					break;
+				paquet.flip();
+				if(paquet.hasRemaining())
+					buffer.ajoute(paquet);
+			}
+			log.debug("Arrêt de " + Thread.currentThread().getName());
+		}
+		catch(InterruptedException | AsynchronousCloseException e)
+		{
+			log.debug("Arrêt de " + Thread.currentThread().getName() + " : " + e);
+			Thread.currentThread().interrupt();
+		}
+		catch(Exception e)
+		{
+			log.debug("Arrêt inattendu de " + Thread.currentThread().getName() + " : " + e);
+			e.printStackTrace();
+			e.printStackTrace(log.getPrintWriter());
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
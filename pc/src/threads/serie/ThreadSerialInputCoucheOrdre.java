@@ -15,7 +15,6 @@
 package threads.serie;
 
 import capteurs.CapteursRobot;
-import capteurs.SensorsData;
 import capteurs.SensorsDataBuffer;
 import config.Config;
 import config.ConfigInfo;
@@ -55,6 +54,7 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 
 	public static boolean capteursOn = false;
 	private int nbCapteurs;
+	private int[] mesures;
 
 	public ThreadSerialInputCoucheOrdre(Log log, Config config, BufferIncomingOrder serie, SensorsDataBuffer buffer, RobotReal robot, CheminPathfinding chemin, Container container)
 	{
@@ -74,6 +74,7 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 		log.debug("Démarrage de " + Thread.currentThread().getName());
 
 		nbCapteurs = CapteursRobot.values().length;
+		mesures = new int[nbCapteurs];
 		try
 		{
 			while(true)
@@ -89,7 +90,8 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 					paquet = serie.poll();
 				}
 
-				log.debug("Durée avant obtention du paquet : " + (System.currentTimeMillis() - avant) + ". Traitement de " + paquet, Verbose.SERIE.masque);
+				if(log.shouldLog(Verbose.SERIE.masque))
+					log.debug("Durée avant obtention du paquet : " + (System.currentTimeMillis() - avant) + ". Traitement de " + paquet, Verbose.SERIE.masque);
 
 				avant = System.currentTimeMillis();
 				int[] data = paquet.message;
@@ -144,7 +146,7 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 					if(theorique == null)
 					{
 //						log.debug("Cinématique théorique inconnue !", Verbose.PF.masque);
-						current = new Cinematique(xRobot, yRobot, orientationRobot, true, 0);
+						current.updateReel(xRobot, yRobot, orientationRobot, true, 0);
 					}
 					else
 					{
@@ -154,11 +156,12 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 
 					robot.setCinematique(current);
 
-					log.debug("Le robot est en " + current.getPosition() + ", orientation : " + orientationRobot + ", index : " + indexTrajectory, Verbose.ASSER.masque);
+					if(log.shouldLog(Verbose.ASSER.masque))
+						log.debug("Le robot est en " + current.getPosition() + ", orientation : " + orientationRobot + ", index : " + indexTrajectory, Verbose.ASSER.masque);
 
 					boolean envoi = false;
 
-					if(data.length > 6) // la présence de ces infos n'est pas
+					if(paquet.taille > 6) // la présence de ces infos n'est pas
 										// systématique
 					{
 						// changement de repère (cf la doc)
@@ -171,22 +174,23 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 						/**
 						 * Acquiert ce que voit les capteurs
 						 */
-						int[] mesures = new int[nbCapteurs];
+						boolean logCapteurs = log.shouldLog(Verbose.CAPTEURS.masque);
 						for(int i = 0; i < nbCapteurs; i++)
 						{
 							mesures[i] = data[8 + i] * CapteursRobot.values[i].type.conversion;
-							log.debug("Capteur " + CapteursRobot.values[i].name() + " : " + mesures[i], Verbose.CAPTEURS.masque);
+							if(logCapteurs)
+								log.debug("Capteur " + CapteursRobot.values[i].name() + " : " + mesures[i], Verbose.CAPTEURS.masque);
 						}
 
 						if(capteursOn)
 						{
-							buffer.add(new SensorsData(angleRoueGauche, angleRoueDroite, mesures, current));
+							buffer.add(buffer.getLibre().update(angleRoueGauche, angleRoueDroite, mesures, current));
 							envoi = true;
 						}
 					}
 					// il faut toujours envoyer la position
 					if(!envoi)
-						buffer.add(new SensorsData(current));
+						buffer.add(buffer.getLibre().update(current));
 				}
 
 				/**
@@ -203,7 +207,7 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 					}
 				}
 
-				else if(paquet.origine == OutOrder.SEND_ARC)
+				else if(paquet.origine == OutOrder.SEND_ARC || paquet.origine == OutOrder.SEND_ARC_DELTA || paquet.origine == OutOrder.BATCH)
 				{
 					paquet.ticket.set(InOrder.ORDER_ACK);
 				}
@@ -277,10 +281,12 @@ public class ThreadSerialInputCoucheOrdre extends ThreadService implements Seria
 				 * Les paquets dont l'état n'importe pas et sans donnée (par
 				 * exemple PING ou STOP) n'ont pas besoin d'être traités
 				 */
-				else if(data.length != 0)
-					log.critical("On a ignoré un paquet d'origine " + paquet.origine + " (taille : " + data.length + ")");
+				else if(paquet.taille != 0)
+					log.critical("On a ignoré un paquet d'origine " + paquet.origine + " (taille : " + paquet.taille + ")");
 
-				log.debug("Durée de traitement de " + paquet.origine + " : " + (System.currentTimeMillis() - avant), Verbose.SERIE.masque);
+				if(log.shouldLog(Verbose.SERIE.masque))
+					log.debug("Durée de traitement de " + paquet.origine + " : " + (System.currentTimeMillis() - avant), Verbose.SERIE.masque);
+				serie.libere(paquet);
 			}
 		}
 		catch(InterruptedException e)
@@ -50,7 +50,7 @@ public class ThreadSerialInputCoucheTrame extends ThreadService implements Seria
 		try
 		{
 			while(true)
-				buffer.add(serie.readData());
+				buffer.add(serie.readData(buffer.getPaquetLibre()));
 		}
 		catch(InterruptedException | ClosedSerialException e)
 		{
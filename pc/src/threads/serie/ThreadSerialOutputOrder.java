@@ -14,6 +14,9 @@
 
 package threads.serie;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import config.Config;
 import config.ConfigInfo;
 import container.dependances.SerialClass;
@@ -22,6 +25,7 @@ import serie.BufferIncomingBytes;
 import serie.BufferOutgoingOrder;
 import serie.SerieCoucheTrame;
 import serie.Ticket;
+import serie.TicketLot;
 import serie.SerialProtocol.OutOrder;
 import serie.trame.Order;
 import threads.ThreadService;
@@ -43,6 +47,12 @@ public class ThreadSerialOutputOrder extends ThreadService implements SerialClas
 	private int sleep;
 	private BufferIncomingBytes input;
 	private boolean simuleSerie;
+	private int fenetreBatch;
+	private List<Order> lot = new ArrayList<Order>();
+	private List<Ticket> ticketsLot = new ArrayList<Ticket>();
+
+	private static final int TAILLE_MAX_BATCH = 250; // la taille maximale des
+														// données d'une trame
 
 	public ThreadSerialOutputOrder(Log log, SerieCoucheTrame serie, BufferIncomingBytes input, BufferOutgoingOrder data, Config config)
 	{
@@ -52,6 +62,60 @@ public class ThreadSerialOutputOrder extends ThreadService implements SerialClas
 		this.input = input;
 		sleep = config.getInt(ConfigInfo.SLEEP_ENTRE_TRAMES);
 		simuleSerie = config.getBoolean(ConfigInfo.SIMULE_SERIE);
+		fenetreBatch = config.getInt(ConfigInfo.FENETRE_BATCH_SERIE);
+	}
+
+	/**
+	 * Regroupe avec "premier" les ordres courts qui arrivent pendant la
+	 * fenêtre de regroupement, tant qu'ils tiennent dans une trame.
+	 * Renvoie "premier" s'il est seul, un BATCH sinon.
+	 * 
+	 * @param premier
+	 * @return
+	 * @throws InterruptedException
+	 */
+	private Order regroupe(Order premier) throws InterruptedException
+	{
+		lot.clear();
+		lot.add(premier);
+		int taille = 2 + premier.getTailleMessage();
+		long fin = System.currentTimeMillis() + fenetreBatch;
+
+		synchronized(data)
+		{
+			while(true)
+			{
+				Order o = data.pollGroupable(TAILLE_MAX_BATCH - taille);
+				if(o != null)
+				{
+					lot.add(o);
+					taille += 2 + o.getTailleMessage();
+					continue;
+				}
+
+				// le prochain ordre ne peut pas être regroupé
+				long reste = fin - System.currentTimeMillis();
+				if(!data.isEmpty() || reste <= 0)
+					break;
+				data.wait(reste);
+			}
+		}
+
+		if(lot.size() == 1)
+			return premier;
+
+		ByteBuffer message = ByteBuffer.allocate(taille);
+		ticketsLot.clear();
+		for(Order o : lot)
+		{
+			message.put(o.ordre.code);
+			message.put((byte) o.getTailleMessage());
+			if(o.message != null)
+				message.put(o.message);
+			ticketsLot.add(o.ticket);
+		}
+		log.debug("Regroupement de " + lot.size() + " ordres dans un BATCH de " + taille + " octets", Verbose.SERIE.masque);
+		return new Order(message, OutOrder.BATCH, new TicketLot(ticketsLot));
 	}
 
 	@Override
@@ -113,6 +177,8 @@ public class ThreadSerialOutputOrder extends ThreadService implements SerialClas
 				}
 				if(message != null)
 				{
+					if(fenetreBatch > 0 && message.ordre.groupable)
+						message = regroupe(message);
 					serie.sendOrder(message);
 					Thread.sleep(sleep); // laisse un peu de temps entre deux trames
 											// si besoin est
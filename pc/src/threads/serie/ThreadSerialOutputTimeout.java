@@ -14,8 +14,6 @@
 
 package threads.serie;
 
-import config.Config;
-import config.ConfigInfo;
 import container.dependances.SerialClass;
 import exceptions.serie.ClosedSerialException;
 import serie.SerieCoucheTrame;
@@ -24,6 +22,7 @@ import utils.Log;
 
 /**
  * Thread qui permet de faire gaffe au timeout de la série bas niveau
+ * Il dort jusqu'à la prochaine échéance (renvoi ou mort d'une trame)
  * 
  * @author pf
  *
@@ -33,13 +32,11 @@ public class ThreadSerialOutputTimeout extends ThreadService implements SerialCl
 {
 	protected Log log;
 	private SerieCoucheTrame serie;
-	private int sleep;
 
-	public ThreadSerialOutputTimeout(Log log, SerieCoucheTrame serie, Config config)
+	public ThreadSerialOutputTimeout(Log log, SerieCoucheTrame serie)
 	{
 		this.log = log;
 		this.serie = serie;
-		sleep = config.getInt(ConfigInfo.SLEEP_ENTRE_TRAMES);
 	}
 
 	@Override
@@ -51,19 +48,9 @@ public class ThreadSerialOutputTimeout extends ThreadService implements SerialCl
 		{
 			while(true)
 			{
-				int timeResend = serie.timeBeforeResend();
-				int timeDeath = serie.timeBeforeDeath();
-
-				if(timeDeath <= timeResend)
-				{
-					Thread.sleep(timeDeath + sleep);
-					serie.kill();
-				}
-				else
-				{
-					Thread.sleep(timeResend + sleep);
-					serie.resend();
-				}
+				serie.attendProchaineEcheance();
+				serie.kill();
+				serie.resend();
 			}
 		}
 		catch(InterruptedException | ClosedSerialException e)
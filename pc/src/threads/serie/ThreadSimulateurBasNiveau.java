@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package threads.serie;
+
+import container.dependances.SerialClass;
+import serie.SimulateurBasNiveau;
+import threads.ThreadService;
+import utils.Log;
+
+/**
+ * Thread qui fait tourner le simulateur du bas niveau
+ * 
+ * @author pf
+ *
+ */
+
+public class ThreadSimulateurBasNiveau extends ThreadService implements SerialClass
+{
+	protected Log log;
+	private SimulateurBasNiveau simulateur;
+
+	public ThreadSimulateurBasNiveau(Log log, SimulateurBasNiveau simulateur)
+	{
+		this.log = log;
+		this.simulateur = simulateur;
+	}
+
+	@Override
+	public void run()
+	{
+		Thread.currentThread().setName(getClass().getSimpleName());
+		log.debug("Démarrage de " + Thread.currentThread().getName());
+		if(!simulateur.isActif())
+		{
+			log.debug("Pas de simulation du bas niveau");
+			return;
+		}
+
+		try
+		{
+			while(true)
+			{
+				simulateur.attend();
+				simulateur.execute();
+			}
+		}
+		catch(InterruptedException e)
+		{
+			log.debug("Arrêt de " + Thread.currentThread().getName() + " : " + e);
+			Thread.currentThread().interrupt();
+		}
+		catch(Exception e)
+		{
+			log.debug("Arrêt inattendu de " + Thread.currentThread().getName() + " : " + e);
+			e.printStackTrace();
+			e.printStackTrace(log.getPrintWriter());
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -57,6 +57,10 @@ public class Log implements Service, DynamicConfigurable
 		public static final int all = (1 << (Verbose.values().length + 1)) - 1;
 		private static Verbose[] values = values();
 
+		// masques précalculés des catégories affichées et écrites dans le
+		// fichier
+		private static volatile int masqueAffiche = 0, masqueFichier = 0;
+
 		private Verbose(ConfigInfo c, boolean printInFile)
 		{
 			masque = 1 << ordinal();
@@ -64,41 +68,58 @@ public class Log implements Service, DynamicConfigurable
 			this.printInFile = printInFile;
 		}
 
-		public static boolean shouldPrintInFile(int value)
+		/**
+		 * À appeler après chaque modification de status ou de printInFile
+		 */
+		public static void calculeMasques()
 		{
-			if(value == all)
-				return true;
+			int affiche = 0, fichier = 0;
 			for(Verbose v : values)
-				if(v.printInFile && (value & v.masque) != 0)
-					return true;
-			return false;
+			{
+				if(v.status)
+					affiche |= v.masque;
+				if(v.printInFile)
+					fichier |= v.masque;
+			}
+			masqueAffiche = affiche;
+			masqueFichier = fichier;
+		}
+
+		public static boolean shouldPrintInFile(int value)
+		{
+			return value == all || (value & masqueFichier) != 0;
 		}
 
 		public static boolean shouldPrint(int value)
 		{
-			if(value == all)
-				return true;
-			for(Verbose v : values)
-				if(v.status && (value & v.masque) != 0)
-					return true;
-			return false;
+			return value == all || (value & masqueAffiche) != 0;
 		}
 	}
 
-	private enum Niveau
+	public enum Niveau
 	{
-		DEBUG(" ", "\u001B[0m", System.out),
-		WARNING(" WARNING ", "\u001B[33m", System.out),
-		CRITICAL(" CRITICAL ", "\u001B[31m", System.err);
+		DEBUG(" ", "\u001B[0m", false),
+		WARNING(" WARNING ", "\u001B[33m", false),
+		CRITICAL(" CRITICAL ", "\u001B[31m", true);
 
 		public String entete, couleur;
-		public PrintStream stream;
+		private boolean erreur;
 
-		private Niveau(String entete, String couleur, PrintStream stream)
+		private Niveau(String entete, String couleur, boolean erreur)
 		{
 			this.entete = entete;
 			this.couleur = couleur;
-			this.stream = stream;
+			this.erreur = erreur;
+		}
+
+		/**
+		 * La sortie est lue à chaque message, pour suivre System.setOut
+		 * 
+		 * @return
+		 */
+		public PrintStream getStream()
+		{
+			return erreur ? System.err : System.out;
 		}
 	}
 
@@ -114,13 +135,26 @@ public class Log implements Service, DynamicConfigurable
 
 	private boolean useColor = false;
 
+	// catégories affichées ou sauvegardées
+	private volatile int masqueActif = Verbose.all;
+
 	private String couleurDefault = "\u001B[0m";
 
 	/**
 	 * date du démarrage
 	 */
 	private long dateInitiale = System.currentTimeMillis();
-	private long dateDebutMatch = -1;
+	private volatile long dateDebutMatch = -1;
+
+	/*
+	 * Écriture asynchrone : les appelants déposent les messages dans l'anneau,
+	 * le thread d'écriture les met en forme et les écrit
+	 */
+	private volatile TamponLog tampon = null;
+	private Thread ecrivain = null, crochetArret = null;
+	private final Object verrouEcrivain = new Object();
+	private StringBuilder sb = new StringBuilder();
+	private long nbPerdusSignales = 0; // seul le consommateur y touche
 
 	public Log()
 	{
@@ -144,7 +178,8 @@ public class Log implements Service, DynamicConfigurable
 	 */
 	public void debug(Object message)
 	{
-		ecrire(message.toString(), Niveau.DEBUG, Verbose.DEBUG.masque);
+		if(shouldLog(Verbose.DEBUG.masque))
+			ecrire(message, Niveau.DEBUG, Verbose.DEBUG.masque);
 	}
 
 	/**
@@ -157,7 +192,21 @@ public class Log implements Service, DynamicConfigurable
 	{
 		if(masque == 0)
 			masque = Verbose.DEBUG.masque;
-		ecrire(message.toString(), Niveau.DEBUG, masque);
+		if(shouldLog(masque))
+			ecrire(message, Niveau.DEBUG, masque);
+	}
+
+	/**
+	 * Un message avec ce masque sera-t-il affiché ou sauvegardé ? Permet
+	 * d'éviter de construire un message coûteux pour rien : l'appelant teste
+	 * shouldLog avant de concaténer.
+	 * 
+	 * @param masque
+	 * @return
+	 */
+	public boolean shouldLog(int masque)
+	{
+		return masque == Verbose.all || (masque & masqueActif) != 0;
 	}
 
 	/**
@@ -168,7 +217,8 @@ public class Log implements Service, DynamicConfigurable
 	 */
 	public void warning(Object message, int masque)
 	{
-		ecrire(message.toString(), Niveau.WARNING, masque);
+		if(shouldLog(masque))
+			ecrire(message, Niveau.WARNING, masque);
 	}
 
 	/**
@@ -179,7 +229,7 @@ public class Log implements Service, DynamicConfigurable
 	 */
 	public void warning(Object message)
 	{
-		ecrire(message.toString(), Niveau.WARNING, Verbose.all);
+		ecrire(message, Niveau.WARNING, Verbose.all);
 	}
 
 	/**
@@ -190,55 +240,224 @@ public class Log implements Service, DynamicConfigurable
 	 */
 	public void critical(Object message)
 	{
-		ecrire(message.toString(), Niveau.CRITICAL, Verbose.all);
+		ecrire(message, Niveau.CRITICAL, Verbose.all);
 	}
 
 	/**
-	 * Ce synchronized peut ralentir le programme, mais s'assure que les logs ne
-	 * se chevauchent pas.
+	 * Dépose le message. En mode asynchrone, l'appelant ne fait que noter la
+	 * date, son nom et le message brut ; sinon il écrit lui-même.
+	 * Sauf avec FAST_LOG, la pile de l'appelant est capturée ici, mais elle
+	 * n'est parcourue qu'au moment de l'écriture.
 	 * 
-	 * @param niveau
 	 * @param message
-	 * @param couleur
-	 * @param ou
+	 * @param niveau
+	 * @param masque
 	 */
-	private synchronized void ecrire(String message, Niveau niveau, int masque)
+	private void ecrire(Object message, Niveau niveau, int masque)
 	{
 		if(logClosed)
 			System.out.println("WARNING * Log fermé! Message: " + message);
 		else
 		{
-			long date = System.currentTimeMillis() - dateInitiale;
-			String tempsMatch = "";
-			if(dateDebutMatch != -1)
-				tempsMatch = " T+" + (System.currentTimeMillis() - dateDebutMatch);
-
-			String affichage;
-			if(fastLog)
-				affichage = date + tempsMatch + " > " + message;
+			TamponLog t = tampon;
+			Throwable origine = fastLog ? null : new Throwable();
+			if(t != null)
+				t.add(System.currentTimeMillis(), niveau, masque, fige(message), Thread.currentThread().getName(), origine);
 			else
+				ecrireSynchrone(System.currentTimeMillis(), niveau, masque, message, Thread.currentThread().getName(), origine);
+		}
+	}
+
+	/**
+	 * Le message est converti en texte par le thread d'écriture, sauf s'il
+	 * peut changer d'ici là : seules les valeurs immuables sont gardées
+	 * telles quelles.
+	 * 
+	 * @param message
+	 * @return
+	 */
+	private static Object fige(Object message)
+	{
+		if(message instanceof String || message instanceof Integer || message instanceof Long || message instanceof Double || message instanceof Boolean)
+			return message;
+		return String.valueOf(message);
+	}
+
+	/**
+	 * Ce synchronized peut ralentir le programme, mais s'assure que les logs ne
+	 * se chevauchent pas.
+	 * En mode asynchrone, seul le thread d'écriture l'appelle.
+	 * 
+	 * @param date
+	 * @param niveau
+	 * @param masque
+	 * @param message
+	 * @param thread
+	 * @param origine
+	 */
+	private synchronized void ecrireSynchrone(long date, Niveau niveau, int masque, Object message, String thread, Throwable origine)
+	{
+		sb.setLength(0);
+		sb.append(date - dateInitiale);
+		long debutMatch = dateDebutMatch;
+		if(debutMatch != -1)
+			sb.append(" T+").append(date - debutMatch);
+
+		if(fastLog)
+			sb.append(" > ");
+		else if(origine == null)
+			sb.append(niveau.entete).append("(").append(thread).append(") > ");
+		else
+		{
+			// [0] : ecrire, [1] : debug, warning ou critical, [2] : l'appelant
+			StackTraceElement elem = origine.getStackTrace()[2];
+			sb.append(niveau.entete).append(elem.getClassName(), elem.getClassName().lastIndexOf(".") + 1, elem.getClassName().length()).append(":").append(elem.getLineNumber()).append(" (").append(thread).append(") > ");
+		}
+		sb.append(message);
+		String affichage = sb.toString();
+
+		if(sauvegarde_fichier && writer != null && Verbose.shouldPrintInFile(masque))
+		{
+			try
 			{
-				StackTraceElement elem = Thread.currentThread().getStackTrace()[3];
-				affichage = date + tempsMatch + niveau.entete + elem.getClassName().substring(elem.getClassName().lastIndexOf(".") + 1) + ":" + elem.getLineNumber() + " (" + Thread.currentThread().getName() + ") > " + message;
+				// On met la couleur dans le fichier
+				if(useColor)
+					writer.write(masque + " " + niveau.couleur + affichage + couleurDefault + "\n");
+				else
+					writer.write(masque + " " + affichage + "\n");
 			}
+			catch(IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		if(Verbose.shouldPrint(masque))
+			niveau.getStream().println(affichage);
+	}
+
+	/**
+	 * Écrit tous les messages en attente. Réservé au thread d'écriture, ou à
+	 * celui qui l'a arrêté.
+	 * 
+	 * @return le nombre de messages écrits
+	 */
+	private int videTampon(TamponLog t)
+	{
+		int nb = 0;
+		TamponLog.Enregistrement e;
+		while((e = t.poll()) != null)
+		{
+			ecrireSynchrone(e.date, e.niveau, e.masque, e.message, e.thread, e.origine);
+			t.libere();
+			nb++;
+		}
+		return nb;
+	}
+
+	/**
+	 * Signale les messages perdus depuis le dernier appel. Réservé au thread
+	 * d'écriture, ou à celui qui l'a arrêté.
+	 * 
+	 * @param t
+	 */
+	private void signalePerdus(TamponLog t)
+	{
+		long nbPerdus = t.getNbPerdus();
+		if(nbPerdus != nbPerdusSignales)
+		{
+			ecrireSynchrone(System.currentTimeMillis(), Niveau.WARNING, Verbose.all, "Buffer du log plein : " + (nbPerdus - nbPerdusSignales) + " messages perdus", Thread.currentThread().getName(), null);
+			nbPerdusSignales = nbPerdus;
+		}
+	}
 
-			if(sauvegarde_fichier && writer != null && Verbose.shouldPrintInFile(masque))
+	/**
+	 * Démarre le thread d'écriture
+	 * 
+	 * @param taille
+	 */
+	private void demarreEcrivain(int taille)
+	{
+		final TamponLog t = new TamponLog(taille);
+		ecrivain = new Thread("ThreadLog")
+		{
+			@Override
+			public void run()
 			{
+				while(!isInterrupted())
+				{
+					if(videTampon(t) == 0)
+					{
+						signalePerdus(t);
+						if(writer != null)
+							try
+							{
+								writer.flush();
+							}
+							catch(IOException e)
+							{
+								e.printStackTrace();
+							}
+						// réveillé par le prochain message
+						t.attend();
+					}
+				}
+			}
+		};
+		ecrivain.setDaemon(true);
+		tampon = t;
+		ecrivain.start();
+
+		// en cas d'arrêt brutal, on écrit quand même ce qui reste
+		crochetArret = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				arreteEcrivain();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(crochetArret);
+	}
+
+	/**
+	 * Arrête le thread d'écriture et écrit les messages restants. Les messages
+	 * suivants seront écrits directement par l'appelant.
+	 */
+	private void arreteEcrivain()
+	{
+		synchronized(verrouEcrivain)
+		{
+			if(ecrivain == null)
+				return;
+			TamponLog t = tampon;
+			tampon = null;
+			ecrivain.interrupt();
+			try
+			{
+				ecrivain.join(1000);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			// il ne doit jamais y avoir deux consommateurs
+			if(!ecrivain.isAlive())
+			{
+				videTampon(t);
+				signalePerdus(t);
+			}
+			ecrivain = null;
+
+			if(Thread.currentThread() != crochetArret)
 				try
 				{
-					// On met la couleur dans le fichier
-					if(useColor)
-						writer.write(masque + " " + niveau.couleur + affichage + couleurDefault + "\n");
-					else
-						writer.write(masque + " " + affichage + "\n");
+					Runtime.getRuntime().removeShutdownHook(crochetArret);
 				}
-				catch(IOException e)
+				catch(IllegalStateException e)
 				{
-					e.printStackTrace();
+					// arrêt de la JVM déjà en cours
 				}
-			}
-			if(Verbose.shouldPrint(masque))
-				niveau.stream.println(affichage);
 		}
 	}
 
@@ -251,6 +470,7 @@ public class Log implements Service, DynamicConfigurable
 			try
 			{
 				debug("Sauvegarde du fichier de logs");
+				arreteEcrivain();
 				if(writer != null)
 				{
 					writer.flush();
@@ -262,6 +482,8 @@ public class Log implements Service, DynamicConfigurable
 			{
 				e.printStackTrace();
 			}
+		else
+			arreteEcrivain();
 
 		logClosed = true;
 	}
@@ -277,6 +499,7 @@ public class Log implements Service, DynamicConfigurable
 			v.status = config.getBoolean(v.c);
 			v.printInFile |= v.status;
 		}
+		Verbose.calculeMasques();
 		
 		if(sauvegarde_fichier)
 		{
@@ -314,6 +537,10 @@ public class Log implements Service, DynamicConfigurable
 				sauvegarde_fichier = false;
 			}
 		}
+		masqueActif = Verbose.masqueAffiche | (sauvegarde_fichier ? Verbose.masqueFichier : 0);
+
+		if(config.getBoolean(ConfigInfo.LOG_ASYNCHRONE))
+			demarreEcrivain(config.getInt(ConfigInfo.TAILLE_BUFFER_LOG));
 		debug("Service de log démarré");
 	}
 
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2013-2017 Pierre-François Gimenez
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ */
+
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Anneau sans verrou des messages en attente d'écriture par le log.
+ * Plusieurs producteurs (tous les threads qui loggent) et un seul
+ * consommateur (le thread d'écriture du log).
+ * Les enregistrements sont préalloués. Chaque emplacement a un numéro de
+ * séquence qui indique s'il est libre pour le tour courant du producteur ou
+ * prêt pour le consommateur : un producteur réserve un emplacement par un
+ * compareAndSet sur l'indice d'écriture, le remplit, puis le publie en
+ * avançant sa séquence.
+ * Le consommateur s'endort quand l'anneau est vide, et le producteur qui
+ * publie le réveille.
+ * Quand l'anneau est plein, un producteur n'est jamais bloqué longtemps : un
+ * message de debug est perdu tout de suite, un warning ou une erreur attend
+ * au plus ATTENTE_MAX. Les messages perdus sont comptés.
+ * 
+ * @author pf
+ *
+ */
+
+public class TamponLog
+{
+	/**
+	 * Un message brut : la mise en forme, y compris la conversion du message
+	 * en texte et la recherche de l'appelant dans la pile, est faite par le
+	 * thread d'écriture
+	 * 
+	 * @author pf
+	 *
+	 */
+	public static class Enregistrement
+	{
+		public long date;
+		public Log.Niveau niveau;
+		public int masque;
+		public Object message;
+		public String thread;
+		public Throwable origine; // null si FAST_LOG
+	}
+
+	private static final long ATTENTE_MAX = 1000000; // en ns
+
+	private final Enregistrement[] anneau;
+	private final AtomicLongArray sequences;
+	private final int masqueIndice;
+	private final AtomicLong ecriture = new AtomicLong(0);
+	private final AtomicLong nbPerdus = new AtomicLong(0);
+	private long lecture = 0; // seul le consommateur y touche
+	private volatile Thread consommateur = null;
+	private volatile boolean endormi = false;
+
+	public TamponLog(int taille)
+	{
+		// taille arrondie à la puissance de deux supérieure
+		int capacite = Integer.highestOneBit(Math.max(2, taille - 1)) << 1;
+		masqueIndice = capacite - 1;
+		anneau = new Enregistrement[capacite];
+		sequences = new AtomicLongArray(capacite);
+		for(int i = 0; i < capacite; i++)
+		{
+			anneau[i] = new Enregistrement();
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Ajoute un message. Appelé par n'importe quel thread.
+	 * 
+	 * @param date
+	 * @param niveau
+	 * @param masque
+	 * @param message
+	 * @param thread
+	 * @param origine
+	 * @return faux si l'anneau est resté plein et que le message est perdu
+	 */
+	public boolean add(long date, Log.Niveau niveau, int masque, Object message, String thread, Throwable origine)
+	{
+		long pos;
+		long finAttente = 0;
+		while(true)
+		{
+			pos = ecriture.get();
+			long dif = sequences.get((int) pos & masqueIndice) - pos;
+			if(dif == 0)
+			{
+				if(ecriture.compareAndSet(pos, pos + 1))
+					break;
+			}
+			else if(dif < 0)
+			{
+				// l'anneau est plein : on laisse un peu de temps au thread
+				// d'écriture, mais jamais au-delà de ATTENTE_MAX
+				if(niveau == Log.Niveau.DEBUG)
+				{
+					nbPerdus.incrementAndGet();
+					return false;
+				}
+				if(finAttente == 0)
+					finAttente = System.nanoTime() + ATTENTE_MAX;
+				else if(System.nanoTime() - finAttente > 0)
+				{
+					nbPerdus.incrementAndGet();
+					return false;
+				}
+				Thread.yield();
+			}
+		}
+
+		int i = (int) pos & masqueIndice;
+		Enregistrement e = anneau[i];
+		e.date = date;
+		e.niveau = niveau;
+		e.masque = masque;
+		e.message = message;
+		e.thread = thread;
+		e.origine = origine;
+		sequences.set(i, pos + 1); // publication
+
+		if(endormi)
+		{
+			endormi = false;
+			LockSupport.unpark(consommateur);
+		}
+		return true;
+	}
+
+	/**
+	 * Renvoie le plus vieux message, ou null s'il n'y en a pas.
+	 * L'enregistrement doit être rendu par libere() une fois exploité.
+	 * Réservé au consommateur.
+	 * 
+	 * @return
+	 */
+	public Enregistrement poll()
+	{
+		if(sequences.get((int) lecture & masqueIndice) != lecture + 1)
+			return null;
+		return anneau[(int) lecture & masqueIndice];
+	}
+
+	/**
+	 * Rend l'emplacement du message obtenu par poll() aux producteurs
+	 */
+	public void libere()
+	{
+		int i = (int) lecture & masqueIndice;
+		Enregistrement e = anneau[i];
+		e.message = null;
+		e.origine = null;
+		sequences.set(i, lecture + anneau.length);
+		lecture++;
+	}
+
+	/**
+	 * Le consommateur s'endort jusqu'au prochain message (ou jusqu'à son
+	 * interruption). Le drapeau est levé avant de revérifier l'anneau : un
+	 * producteur qui publie entre-temps voit forcément le drapeau, ou son
+	 * message est vu ici.
+	 */
+	public void attend()
+	{
+		consommateur = Thread.currentThread();
+		endormi = true;
+		if(poll() == null)
+			LockSupport.park(this);
+		endormi = false;
+	}
+
+	/**
+	 * Nombre de messages perdus parce que l'anneau était plein
+	 * 
+	 * @return
+	 */
+	public long getNbPerdus()
+	{
+		return nbPerdus.get();
+	}
+
+	public int getCapacite()
+	{
+		return anneau.length;
+	}
+}
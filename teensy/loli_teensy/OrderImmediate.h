@@ -123,6 +123,115 @@ public:
 };
 
 
+/*
+	Ajoute  la trajectoire courante des
+	points cods en carts : le premier point
+	est complet (7 octets), les suivants sont
+	dx, dy, do sur un octet sign suivis de la
+	courbure (5 octets)
+*/
+class AddTrajectoryPointsDelta : public OrderImmediate, public Singleton<AddTrajectoryPointsDelta>
+{
+public:
+	AddTrajectoryPointsDelta() {}
+	virtual void execute(std::vector<uint8_t> & io)
+	{
+		if (io.size() < 8 || (io.size() - 8) % 5 != 0)
+		{ // Nombre d'octets reus incorrect
+			Log::critical(40, "AddTrajectoryPointsDelta: argument incorrect");
+		}
+		else
+		{
+			uint8_t index = io.at(0);
+			Serial.printf("%u - AddTPDelta: %u -> %u\n", millis(), index, (io.size() - 8) / 5 + index);
+
+			int16_t _x = (io.at(1) << 4) + (io.at(2) >> 4);
+			int16_t _y = ((io.at(2) & 0x0F) << 8) + io.at(3);
+			int16_t _o = (io.at(4) << 8) + io.at(5);
+			addPoint(_x, _y, _o, io.at(6), io.at(7), index);
+
+			for (size_t i = 8; i < io.size(); i += 5)
+			{
+				_x += (int8_t)io.at(i);
+				_y += (int8_t)io.at(i + 1);
+				_o += (int8_t)io.at(i + 2);
+				if (_o < 0)
+				{
+					_o += DEUX_PI_MILLI;
+				}
+				else if (_o >= DEUX_PI_MILLI)
+				{
+					_o -= DEUX_PI_MILLI;
+				}
+				index++;
+				addPoint(_x, _y, _o, io.at(i + 3), io.at(i + 4), index);
+			}
+			Serial.println();
+		}
+		io.clear();
+	}
+
+private:
+	static const int16_t DEUX_PI_MILLI = 6283;
+
+	void addPoint(int16_t _x, int16_t _y, int16_t _o, uint8_t hw_sp_curv, uint8_t lw_sp_curv, uint8_t index)
+	{
+		Position pos((float)_x - 1500, (float)_y - 1000, 0);
+		pos.setOrientation(((float)_o) / 1000);
+		TrajectoryPoint newTrajPoint(pos, hw_sp_curv, lw_sp_curv);
+		Serial.println(newTrajPoint);
+		motionControlSystem.addTrajectoryPoint(newTrajPoint, index);
+	}
+};
+
+
+/*
+	Excute plusieurs ordres immdiats reus dans
+	une seule trame. Chaque ordre est cod par son
+	ID, la taille de ses donnes et ses donnes.
+	Les ordres regroups n'ont pas de rponse.
+*/
+class Batch : public OrderImmediate, public Singleton<Batch>
+{
+public:
+	Batch() : orderList(NULL) {}
+
+	void setOrderList(OrderImmediate ** list)
+	{
+		orderList = list;
+	}
+
+	virtual void execute(std::vector<uint8_t> & io)
+	{
+		size_t i = 0;
+		while (i + 2 <= io.size())
+		{
+			uint8_t id = io.at(i);
+			uint8_t length = io.at(i + 1);
+			if (i + 2 + length > io.size())
+			{
+				Log::critical(40, "Batch: argument incorrect");
+				break;
+			}
+			if (orderList == NULL || orderList[id] == NULL || orderList[id] == this)
+			{
+				Log::critical(id, "Batch: ordre inconnu");
+			}
+			else
+			{
+				std::vector<uint8_t> data(io.begin() + i + 2, io.begin() + i + 2 + length);
+				orderList[id]->execute(data);
+			}
+			i += 2 + length;
+		}
+		io.clear();
+	}
+
+private:
+	OrderImmediate ** orderList;
+};
+
+
 /*
 	Rgle la vitesse maximale courante.
 */
@@ -44,6 +44,9 @@ public:
 		immediateOrderList[0x5F] = &SetSensorMode::Instance();
 		immediateOrderList[0x60] = &SetPosition::Instance();
 		immediateOrderList[0x61] = &SetDirection::Instance();
+		immediateOrderList[0x62] = &AddTrajectoryPointsDelta::Instance();
+		immediateOrderList[0x63] = &Batch::Instance();
+		Batch::Instance().setOrderList(immediateOrderList);
 
 		// Ordres longs
 		longOrderList[0x38] = &FollowTrajectory::Instance();